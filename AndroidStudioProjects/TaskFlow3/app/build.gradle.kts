@@ -31,6 +31,8 @@ android {
     compileOptions {
         sourceCompatibility = JavaVersion.VERSION_11
         targetCompatibility = JavaVersion.VERSION_11
+        // java.time on API 24-25
+        isCoreLibraryDesugaringEnabled = true
     }
     
     // Enable view binding
@@ -78,6 +80,9 @@ dependencies {
     implementation("com.google.api-client:google-api-client-android:1.33.0")
     implementation("com.google.http-client:google-http-client-gson:1.42.0")
     
+    // Pooled HTTP/2 client behind the Google API transport
+    implementation("com.squareup.okhttp3:okhttp:4.12.0")
+    
     // Google Tasks API dependencies - Fixed version to one that exists in Maven
     implementation("com.google.apis:google-api-services-tasks:v1-rev20210709-1.32.1")
     
@@ -115,6 +120,12 @@ dependencies {
     implementation("androidx.room:room-runtime:2.6.1")
     annotationProcessor("androidx.room:room-compiler:2.6.1")
     
+    // Background replay of changes made while offline
+    implementation("androidx.work:work-runtime:2.9.0")
+    
+    // Backports java.time for minSdk 24
+    coreLibraryDesugaring("com.android.tools:desugar_jdk_libs:2.0.4")
+    
     testImplementation(libs.junit)
     androidTestImplementation(libs.ext.junit)
     androidTestImplementation(libs.espresso.core)
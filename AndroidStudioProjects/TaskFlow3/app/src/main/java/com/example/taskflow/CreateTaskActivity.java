@@ -18,9 +18,11 @@ import androidx.appcompat.app.AppCompatActivity;
 
 import com.example.taskflow.databinding.ActivityCreateTaskBinding;
 import com.example.taskflow.db.FirebaseTaskRepository;
+import com.example.taskflow.db.FreeSlotFinder;
+import com.example.taskflow.db.TimeConflictIndex;
 import com.example.taskflow.model.Task;
-import com.example.taskflow.service.DriveService;
-import com.example.taskflow.service.TaskService;
+import com.example.taskflow.service.SyncOrchestrator;
+import com.example.taskflow.util.TimeOfDay;
 import com.google.android.gms.auth.api.signin.GoogleSignIn;
 import com.google.android.gms.auth.api.signin.GoogleSignInAccount;
 import com.google.android.gms.common.api.Scope;
@@ -28,13 +30,16 @@ import com.google.api.services.drive.DriveScopes;
 
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.List;
 import java.util.Locale;
 
 public class CreateTaskActivity extends AppCompatActivity {
 
     private static final String TAG = "CreateTaskActivity";
+    private static final int FREE_SLOT_SUGGESTIONS = 3;
     
     private ActivityCreateTaskBinding binding;
     private Calendar selectedDate = Calendar.getInstance();
@@ -45,8 +50,7 @@ public class CreateTaskActivity extends AppCompatActivity {
     private String attachmentMimeType = "";
     private final SimpleDateFormat dateFormatter = new SimpleDateFormat("MMM dd, yyyy", Locale.US);
     private final SimpleDateFormat timeFormatter = new SimpleDateFormat("hh:mm a", Locale.US);
-    private TaskService taskService;
-    private DriveService driveService;
+    private SyncOrchestrator syncOrchestrator;
     private FirebaseTaskRepository taskRepository;
     private String currentUserEmail = null;
 
@@ -74,6 +78,8 @@ public class CreateTaskActivity extends AppCompatActivity {
         GoogleSignInAccount account = GoogleSignIn.getLastSignedInAccount(this);
         if (account != null && account.getEmail() != null) {
             currentUserEmail = account.getEmail();
+            // Build the conflict index now so checking on save is instant
+            TimeConflictIndex.getInstance(this, currentUserEmail).preload();
             // Check if we have the required Drive scope
             if (!GoogleSignIn.hasPermissions(account, new Scope(DriveScopes.DRIVE_FILE))) {
                 requestDrivePermission();
@@ -123,8 +129,7 @@ public class CreateTaskActivity extends AppCompatActivity {
      * Initialize Google services
      */
     private void initializeServices(GoogleSignInAccount account) {
-        taskService = new TaskService(this, account.getEmail());
-        driveService = new DriveService(this, account.getEmail());
+        syncOrchestrator = SyncOrchestrator.getInstance(this);
     }
 
     private void setupUI() {
@@ -347,103 +352,57 @@ public class CreateTaskActivity extends AppCompatActivity {
             task.setUserEmail(currentUserEmail);
         }
         
+        // Check for time conflicts before saving; answered locally, so this works offline too
+        if (currentUserEmail != null) {
+            // Answered at once if the index is built, otherwise after loading it in the background
+            binding.progressIndicator.setVisibility(View.VISIBLE);
+            TimeConflictIndex.getInstance(this, currentUserEmail).check(task, hasConflict ->
+                    runOnUiThread(() -> onConflictChecked(task, hasConflict)));
+        } else {
+            onConflictChecked(task, false);
+        }
+    }
+    
+    private void onConflictChecked(Task task, boolean hasConflict) {
+        if (hasConflict) {
+            // Time conflict detected
+            binding.progressIndicator.setVisibility(View.GONE);
+            showTimeConflictDialog(task);
+            return;
+        }
+        
         // Show progress indicator
         binding.progressIndicator.setVisibility(View.VISIBLE);
         
         // Check if Google account is available
         GoogleSignInAccount account = GoogleSignIn.getLastSignedInAccount(this);
-        if (account == null || taskService == null) {
+        if (account == null || syncOrchestrator == null) {
             saveTaskToFirestore(task);
             return;
         }
         
-        // Check for time conflicts before saving
-        taskService.checkForTimeConflict(task, new TaskService.TimeConflictCallback() {
-            @Override
-            public void onConflictCheckComplete(boolean hasConflict) {
-                runOnUiThread(() -> {
-                    if (hasConflict) {
-                        // Time conflict detected
-                        binding.progressIndicator.setVisibility(View.GONE);
-                        showTimeConflictDialog();
-                    } else {
-                        // No conflict, proceed with saving
-                        saveTaskWithAttachment(task);
-                    }
-                });
-            }
-        });
+        saveTaskWithAttachment(task);
     }
 
     private void saveTaskWithAttachment(Task task) {
-        // First save the task to Google Tasks
-        taskService.createTask(task, new TaskService.TaskCallback() {
-            @Override
-            public void onSuccess(String taskId) {
-                // Task saved successfully, now upload attachment if any
-                task.setGoogleTaskId(taskId);
+        // Lands in Room right away; the outbox sends it to Google Tasks and Drive when it can
+        syncOrchestrator.createTask(currentUserEmail, task, attachmentUri, attachmentName, attachmentMimeType, () -> {
+            // Invalidate the profile statistics cache since a new task was created
+            ProfileActivity.invalidateTaskStatisticsCache();
+            
+            runOnUiThread(() -> {
+                binding.progressIndicator.setVisibility(View.GONE);
+                Toast.makeText(CreateTaskActivity.this, 
+                    "Task created successfully!", Toast.LENGTH_SHORT).show();
                 
-                if (attachmentUri != null && driveService != null) {
-                    uploadAttachment(task);
-                } else {
-                    // No attachment to upload, save directly to Firestore
-                    saveTaskToFirestore(task);
-                }
-            }
-
-            @Override
-            public void onFailure(Exception e) {
-                // Handle error but still save to Firestore
-                Log.e(TAG, "Failed to save task to Google Tasks", e);
-                saveTaskToFirestore(task);
-            }
-        });
-    }
-    
-    /**
-     * Upload the attachment to Google Drive
-     */
-    private void uploadAttachment(Task task) {
-        if (attachmentUri == null || attachmentName == null || attachmentName.isEmpty()) {
-            saveTaskToFirestore(task);
-            return;
-        }
-        
-        // Save attachment URI for local storage
-        task.setAttachmentUri(attachmentUri.toString());
-        task.setAttachmentName(attachmentName);
-        
-        // Upload to Drive
-        driveService.uploadFile(
-            attachmentUri, 
-            task.getId(), 
-            attachmentName, 
-            attachmentMimeType,
-            new DriveService.DriveCallback<String>() {
-                @Override
-                public void onSuccess(String driveFileId) {
-                    // Store Drive file ID with task
-                    task.setDriveFileId(driveFileId);
-                    
-                    runOnUiThread(() -> {
-                        Toast.makeText(CreateTaskActivity.this, 
-                            "Attachment saved to Google Drive", 
-                            Toast.LENGTH_SHORT).show();
-                    });
-                    saveTaskToFirestore(task);
-                }
-
-                @Override
-                public void onFailure(Exception e) {
-                    Log.e(TAG, "Failed to upload attachment to Drive", e);
-                    runOnUiThread(() -> {
-                        Toast.makeText(CreateTaskActivity.this, 
-                            "Error saving attachment to Drive", 
-                            Toast.LENGTH_SHORT).show();
-                    });
-                    saveTaskToFirestore(task);
-                }
+                // Set flag to refresh task list in MainActivity
+                Intent returnIntent = new Intent();
+                returnIntent.putExtra("TASK_CREATED", true);
+                setResult(RESULT_OK, returnIntent);
+                
+                finish();
             });
+        });
     }
     
     /**
@@ -525,15 +484,68 @@ public class CreateTaskActivity extends AppCompatActivity {
             .show();
     }
     
-    private void showTimeConflictDialog() {
+    private void showTimeConflictDialog(Task task) {
+        List<FreeSlotFinder.Slot> slots = findFreeSlots(task);
+        if (slots.isEmpty()) {
+            new androidx.appcompat.app.AlertDialog.Builder(this)
+                .setTitle("Time Conflict Detected")
+                .setMessage("This task overlaps with an existing task at the selected time. Please choose a different time.")
+                .setPositiveButton("OK", (dialog, which) -> dialog.dismiss())
+                .setIcon(android.R.drawable.ic_dialog_alert)
+                .show();
+            return;
+        }
+        
+        // Offer the next free times so the user can reschedule with one tap
+        long selectedDay = TimeConflictIndex.epochDay(selectedDate.getTimeInMillis());
+        String[] options = new String[slots.size()];
+        for (int i = 0; i < slots.size(); i++) {
+            FreeSlotFinder.Slot slot = slots.get(i);
+            String times = slot.getStartTime() + " - " + slot.getEndTime();
+            options[i] = slot.epochDay == selectedDay
+                    ? times
+                    : dateFormatter.format(slot.getDate()) + ", " + times;
+        }
+        
         new androidx.appcompat.app.AlertDialog.Builder(this)
-            .setTitle("Time Conflict Detected")
-            .setMessage("This task overlaps with an existing task at the selected time. Please choose a different time.")
-            .setPositiveButton("OK", (dialog, which) -> dialog.dismiss())
+            .setTitle("Time Conflict - Free Times")
+            .setItems(options, (dialog, which) -> applyFreeSlot(slots.get(which)))
+            .setNegativeButton("Choose Myself", (dialog, which) -> dialog.dismiss())
             .setIcon(android.R.drawable.ic_dialog_alert)
             .show();
     }
     
+    private List<FreeSlotFinder.Slot> findFreeSlots(Task task) {
+        int start = TimeOfDay.parse(task.getStartTime());
+        int end = TimeOfDay.parse(task.getEndTime());
+        if (currentUserEmail == null || start == TimeOfDay.INVALID || end == TimeOfDay.INVALID || end == start) {
+            return new ArrayList<>();
+        }
+        // The index is loaded by the time a conflict is found, so this is a quick in-memory scan.
+        // If it was invalidated since, offer no suggestions rather than ones that ignore busy times.
+        TimeConflictIndex index = TimeConflictIndex.getInstance(this, currentUserEmail);
+        if (!index.isLoaded()) {
+            return new ArrayList<>();
+        }
+        // An overnight task keeps its length when moved into the workday
+        int duration = Math.floorMod(end - start, TimeOfDay.MINUTES_PER_DAY);
+        return new FreeSlotFinder(index).findNextSlots(task.getDate(), start, duration, FREE_SLOT_SUGGESTIONS, task.getId());
+    }
+    
+    private void applyFreeSlot(FreeSlotFinder.Slot slot) {
+        Calendar slotDay = Calendar.getInstance();
+        slotDay.setTime(slot.getDate());
+        selectedDate.set(slotDay.get(Calendar.YEAR), slotDay.get(Calendar.MONTH), slotDay.get(Calendar.DAY_OF_MONTH));
+        binding.etDate.setText(dateFormatter.format(selectedDate.getTime()));
+        
+        startTime = slot.getStartTime();
+        endTime = slot.getEndTime();
+        binding.etStartTime.setText(startTime);
+        binding.etEndTime.setText(endTime);
+        
+        validateAndSaveTask();
+    }
+    
     private void saveTaskToFirestore(Task task) {
         // Save the task to Firestore
         taskRepository.saveTask(task, new FirebaseTaskRepository.TaskCallback() {
@@ -542,6 +554,11 @@ public class CreateTaskActivity extends AppCompatActivity {
                 // Invalidate the profile statistics cache since a new task was created
                 ProfileActivity.invalidateTaskStatisticsCache();
                 
+                // Later checks should see the new task's time slot
+                if (currentUserEmail != null) {
+                    TimeConflictIndex.getInstance(CreateTaskActivity.this, currentUserEmail).put(task);
+                }
+                
                 runOnUiThread(() -> {
                     binding.progressIndicator.setVisibility(View.GONE);
                     Toast.makeText(CreateTaskActivity.this, 
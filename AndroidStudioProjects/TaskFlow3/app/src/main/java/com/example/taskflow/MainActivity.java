@@ -17,7 +17,9 @@ import com.example.taskflow.adapter.TaskAdapter;
 import com.example.taskflow.databinding.ActivityHomeBinding;
 import com.example.taskflow.db.FirebaseTaskRepository;
 import com.example.taskflow.db.TaskDatabase;
+import com.example.taskflow.db.TaskLayoutMigrator;
 import com.example.taskflow.model.Task;
+import com.example.taskflow.service.SyncOrchestrator;
 import com.example.taskflow.service.TaskService;
 import com.google.android.gms.auth.api.signin.GoogleSignIn;
 import com.google.android.gms.auth.api.signin.GoogleSignInAccount;
@@ -26,9 +28,7 @@ import com.google.android.gms.auth.api.signin.GoogleSignInOptions;
 import com.google.android.material.dialog.MaterialAlertDialogBuilder;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
@@ -39,6 +39,7 @@ public class MainActivity extends AppCompatActivity implements TaskAdapter.TaskA
     private TaskAdapter taskAdapter;
     private List<Task> taskList;
     private TaskService taskService;
+    private SyncOrchestrator syncOrchestrator;
     private FirebaseTaskRepository taskRepository;
     private ExecutorService executorService;
     private TaskDatabase taskDatabase;
@@ -50,6 +51,10 @@ public class MainActivity extends AppCompatActivity implements TaskAdapter.TaskA
     private boolean tasksLoaded = false;
     private String currentUserEmail = null;
     
+    // Set once the current load has shown tasks fetched from the network,
+    // so a late answer from the local cache never overwrites fresher data
+    private boolean freshTasksShown = false;
+    
     // Refresh control
     private long lastRefreshTime = 0;
     private static final long MIN_REFRESH_INTERVAL = 30 * 1000; // 30 seconds
@@ -62,6 +67,7 @@ public class MainActivity extends AppCompatActivity implements TaskAdapter.TaskA
         
         // Initialize Firebase task repository and executor service
         taskRepository = FirebaseTaskRepository.getInstance();
+        syncOrchestrator = SyncOrchestrator.getInstance(this);
         executorService = Executors.newSingleThreadExecutor();
         
         // Initialize Room database
@@ -110,192 +116,36 @@ public class MainActivity extends AppCompatActivity implements TaskAdapter.TaskA
     // TaskActionListener implementation methods
     @Override
     public void onTaskCompletionChanged(Task task, boolean isCompleted) {
-        // Update task status
-        String newStatus = isCompleted ? "COMPLETED" : "PENDING";
-        
-        // Save the task ID before any modifications
-        String taskId = task.getId();
-        String googleTaskId = task.getGoogleTaskId();
+        if (currentUserEmail == null) {
+            Toast.makeText(this, "Please sign in to update your tasks", Toast.LENGTH_SHORT).show();
+            return;
+        }
         
         // Invalidate the profile statistics cache since task status changed
         ProfileActivity.invalidateTaskStatisticsCache();
         
-        // First, update the status in Firestore directly without creating a new document
-        Map<String, Object> statusUpdate = new HashMap<>();
-        statusUpdate.put("status", newStatus);
-        
-        // If this task has a Google Task ID, update in Google Tasks API first for speed
-        if (taskService != null && googleTaskId != null) {
-            executorService.execute(() -> {
-                try {
-                    // Update in Google Tasks first (faster response)
-                    task.setStatus(newStatus); // Make sure task status is updated before sending
-                    taskService.updateTaskStatus(task, isCompleted);
-                    
-                    // Then update in Firestore with a field update to prevent duplication
-                    runOnUiThread(() -> {
-                        taskRepository.updateTaskFields(taskId, statusUpdate, new FirebaseTaskRepository.TaskCallback() {
-                            @Override
-                            public void onSuccess() {
-                                // Update local database
-                                executorService.execute(() -> {
-                                    try {
-                                        // First, get the existing task to avoid duplicates
-                                        Task existingTask = taskDatabase.taskDao().getTaskById(taskId);
-                                        if (existingTask != null) {
-                                            existingTask.setStatus(newStatus);
-                                            taskDatabase.taskDao().updateTask(existingTask);
-                                        } else {
-                                            // Fallback if not found by ID
-                                            task.setStatus(newStatus);
-                                            taskDatabase.taskDao().insertOrUpdate(task);
-                                        }
-                                        
-                                        // Find and remove any duplicates
-                                        if (task.getTitle() != null && task.getDate() != null) {
-                                            List<Task> similarTasks = taskDatabase.taskDao().getSimilarTasks(task.getTitle(), task.getDate());
-                                            
-                                            if (similarTasks != null && similarTasks.size() > 1) {
-                                                // Keep only one task (the one we're updating) and delete others
-                                                for (Task similarTask : similarTasks) {
-                                                    if (!similarTask.getId().equals(taskId)) {
-                                                        taskDatabase.taskDao().deleteTask(similarTask);
-                                                        Log.d("MainActivity", "Deleted duplicate task from Room: " + similarTask.getId());
-                                                    }
-                                                }
-                                            }
-                                        }
-                                    } catch (Exception e) {
-                                        Log.e("MainActivity", "Error updating task in Room: " + e.getMessage());
-                                    }
-                                });
-                                
-                                // Update UI
-                                runOnUiThread(() -> {
-                                    // Update task in the list to match new status
-                                    for (int i = 0; i < taskList.size(); i++) {
-                                        Task t = taskList.get(i);
-                                        if ((t.getId() != null && t.getId().equals(taskId)) ||
-                                           (t.getGoogleTaskId() != null && googleTaskId != null && 
-                                            t.getGoogleTaskId().equals(googleTaskId))) {
-                                            t.setStatus(newStatus);
-                                            break;
-                                        }
-                                    }
-                                    
-                                    taskAdapter.notifyDataSetChanged();
-                                    Toast.makeText(MainActivity.this, 
-                                            isCompleted ? "Task marked as completed" : "Task marked as pending", 
-                                            Toast.LENGTH_SHORT).show();
-                                });
-                            }
-                            
-                            @Override
-                            public void onFailure(Exception e) {
-                                runOnUiThread(() -> {
-                                    Toast.makeText(MainActivity.this, 
-                                            "Failed to update task in Firestore: " + e.getMessage(), 
-                                            Toast.LENGTH_SHORT).show();
-                                });
-                            }
-                        });
-                    });
-                } catch (Exception e) {
-                    // If Google Tasks update fails, fall back to only Firestore update
-                    runOnUiThread(() -> {
-                        Toast.makeText(MainActivity.this, 
-                                "Failed to update in Google Tasks. Updating in Firestore only.", 
-                                Toast.LENGTH_SHORT).show();
-                                
-                        taskRepository.updateTaskFields(taskId, statusUpdate, new FirebaseTaskRepository.TaskCallback() {
-                            @Override
-                            public void onSuccess() {
-                                updateTaskInLocalUI(task, newStatus);
-                            }
-                            
-                            @Override
-                            public void onFailure(Exception e) {
-                                Toast.makeText(MainActivity.this, 
-                                        "Failed to update task: " + e.getMessage(), 
-                                        Toast.LENGTH_SHORT).show();
-                            }
-                        });
-                    });
-                }
-            });
-        } else {
-            // No Google Task ID, update in Firestore only
-            taskRepository.updateTaskFields(taskId, statusUpdate, new FirebaseTaskRepository.TaskCallback() {
-                @Override
-                public void onSuccess() {
-                    updateTaskInLocalUI(task, newStatus);
-                }
-                
-                @Override
-                public void onFailure(Exception e) {
-                    runOnUiThread(() -> {
-                        Toast.makeText(MainActivity.this, 
-                                "Failed to update task: " + e.getMessage(), 
-                                Toast.LENGTH_SHORT).show();
-                    });
-                }
-            });
-        }
+        // Saved locally at once; Google Tasks and Firestore are updated in the background
+        syncOrchestrator.setTaskStatus(currentUserEmail, task, isCompleted);
+        updateTaskInLocalUI(task, task.getStatus());
     }
     
     // Helper method to update the task in the local UI after status change
     private void updateTaskInLocalUI(Task task, String newStatus) {
-        task.setStatus(newStatus);
-        
-        // Update the local database
-        executorService.execute(() -> {
-            try {
-                // Get the existing task
-                Task existingTask = taskDatabase.taskDao().getTaskById(task.getId());
-                if (existingTask != null) {
-                    existingTask.setStatus(newStatus);
-                    taskDatabase.taskDao().updateTask(existingTask);
-                } else {
-                    taskDatabase.taskDao().insertOrUpdate(task);
-                }
-                
-                // Find and remove any duplicates
-                if (task.getTitle() != null && task.getDate() != null) {
-                    List<Task> similarTasks = taskDatabase.taskDao().getSimilarTasks(task.getTitle(), task.getDate());
-                    
-                    if (similarTasks != null && similarTasks.size() > 1) {
-                        // Keep only one task (the one we're updating) and delete others
-                        for (Task similarTask : similarTasks) {
-                            if (!similarTask.getId().equals(task.getId())) {
-                                taskDatabase.taskDao().deleteTask(similarTask);
-                                Log.d("MainActivity", "Deleted duplicate task from Room DB: " + similarTask.getId());
-                            }
-                        }
-                    }
-                }
-            } catch (Exception e) {
-                Log.e("MainActivity", "Error updating task in Room DB: " + e.getMessage());
+        // Update the task in the list
+        for (int i = 0; i < taskList.size(); i++) {
+            Task t = taskList.get(i);
+            if ((t.getId() != null && t.getId().equals(task.getId())) ||
+                (t.getGoogleTaskId() != null && task.getGoogleTaskId() != null && 
+                 t.getGoogleTaskId().equals(task.getGoogleTaskId()))) {
+                t.setStatus(newStatus);
+                break;
             }
-        });
+        }
         
-        // Update the UI
-        runOnUiThread(() -> {
-            // Update the task in the list
-            for (int i = 0; i < taskList.size(); i++) {
-                Task t = taskList.get(i);
-                if ((t.getId() != null && t.getId().equals(task.getId())) ||
-                    (t.getGoogleTaskId() != null && task.getGoogleTaskId() != null && 
-                     t.getGoogleTaskId().equals(task.getGoogleTaskId()))) {
-                    taskList.set(i, task);
-                    break;
-                }
-            }
-            
-            taskAdapter.notifyDataSetChanged();
-            Toast.makeText(MainActivity.this, 
-                    "COMPLETED".equals(newStatus) ? "Task marked as completed" : "Task marked as pending", 
-                    Toast.LENGTH_SHORT).show();
-        });
+        taskAdapter.notifyDataSetChanged();
+        Toast.makeText(MainActivity.this, 
+                "COMPLETED".equals(newStatus) ? "Task marked as completed" : "Task marked as pending", 
+                Toast.LENGTH_SHORT).show();
     }
     
     @Override
@@ -305,6 +155,10 @@ public class MainActivity extends AppCompatActivity implements TaskAdapter.TaskA
             Toast.makeText(this, "Only completed tasks can be deleted", Toast.LENGTH_SHORT).show();
             return;
         }
+        if (currentUserEmail == null) {
+            Toast.makeText(this, "Please sign in to update your tasks", Toast.LENGTH_SHORT).show();
+            return;
+        }
         
         // Show confirmation dialog
         new MaterialAlertDialogBuilder(this)
@@ -314,37 +168,15 @@ public class MainActivity extends AppCompatActivity implements TaskAdapter.TaskA
                 // Invalidate the profile statistics cache since a task is being deleted
                 ProfileActivity.invalidateTaskStatisticsCache();
                 
-                // Delete the task from Firestore
-                taskRepository.deleteTask(task, new FirebaseTaskRepository.TaskCallback() {
-                    @Override
-                    public void onSuccess() {
-                        // If using Google Tasks API, delete there too
-                        if (taskService != null && task.getGoogleTaskId() != null) {
-                            executorService.execute(() -> {
-                                taskService.deleteTask(task);
-                            });
-                        }
-                        
-                        // Update UI
-                        runOnUiThread(() -> {
-                            // Remove the task from the list
-                            taskList.remove(task);
-                            taskAdapter.notifyDataSetChanged();
-                            showEmptyState(taskList.isEmpty());
-                            
-                            Toast.makeText(MainActivity.this, "Task deleted", Toast.LENGTH_SHORT).show();
-                        });
-                    }
-                    
-                    @Override
-                    public void onFailure(Exception e) {
-                        runOnUiThread(() -> {
-                            Toast.makeText(MainActivity.this, 
-                                    "Failed to delete task: " + e.getMessage(), 
-                                    Toast.LENGTH_SHORT).show();
-                        });
-                    }
-                });
+                // Removed from Room, Google Tasks and Firestore by the sync orchestrator
+                syncOrchestrator.deleteTask(currentUserEmail, task);
+                
+                // Remove the task from the list
+                taskList.remove(task);
+                taskAdapter.notifyDataSetChanged();
+                showEmptyState(taskList.isEmpty());
+                
+                Toast.makeText(MainActivity.this, "Task deleted", Toast.LENGTH_SHORT).show();
             })
             .setNegativeButton("Cancel", null)
             .show();
@@ -387,7 +219,7 @@ public class MainActivity extends AppCompatActivity implements TaskAdapter.TaskA
     private void setupUI() {
         // Set up refresh listener
         binding.swipeRefreshLayout.setOnRefreshListener(() -> {
-            loadTasks();
+            loadTasks(true);
         });
         
         // Set user information from Google Sign-In
@@ -407,7 +239,7 @@ public class MainActivity extends AppCompatActivity implements TaskAdapter.TaskA
             
             // Initialize TaskService with user account
             if (userEmail != null) {
-                taskService = new TaskService(this, userEmail);
+                taskService = TaskService.getInstance(this, userEmail);
                 currentUserEmail = userEmail;
             } else {
                 Toast.makeText(this, "Failed to get user email. Some features may not work.", Toast.LENGTH_SHORT).show();
@@ -419,7 +251,7 @@ public class MainActivity extends AppCompatActivity implements TaskAdapter.TaskA
             
             // Try to initialize TaskService even if Google Sign-In isn't available
             if (userEmail != null) {
-                taskService = new TaskService(this, userEmail);
+                taskService = TaskService.getInstance(this, userEmail);
                 currentUserEmail = userEmail;
             }
         }
@@ -463,25 +295,39 @@ public class MainActivity extends AppCompatActivity implements TaskAdapter.TaskA
     }
     
     private void loadTasks() {
+        loadTasks(false);
+    }
+    
+    /**
+     * @param forceRefresh sync with Google even if TaskService has fresh cached tasks
+     */
+    private void loadTasks(boolean forceRefresh) {
         // Show loading indicator
         binding.swipeRefreshLayout.setRefreshing(true);
         
         // Clear previous tasks
         taskList.clear();
+        freshTasksShown = false;
         
         // Get current user email
         GoogleSignInAccount account = GoogleSignIn.getLastSignedInAccount(this);
         if (account != null && account.getEmail() != null) {
             currentUserEmail = account.getEmail();
             
+            // Move any tasks still stored in the old shared collection; a no-op once done
+            TaskLayoutMigrator.getInstance().migrateUser(currentUserEmail, null);
+            
+            // Show cached tasks straight away so the home screen doesn't wait on the network
+            showCachedTasks();
+            
             // Make sure TaskService is initialized
             if (taskService == null && currentUserEmail != null) {
-                taskService = new TaskService(this, currentUserEmail);
+                taskService = TaskService.getInstance(this, currentUserEmail);
             }
             
             if (taskService != null) {
                 // Primary source: Fetch tasks from Google Tasks API for speed
-                loadTasksFromGoogleTasks(0); // Start with 0 retries
+                loadTasksFromGoogleTasks(0, forceRefresh); // Start with 0 retries
             } else {
                 // If no task service could be initialized, use Firestore tasks
                 loadFirestoreTasks();
@@ -495,58 +341,107 @@ public class MainActivity extends AppCompatActivity implements TaskAdapter.TaskA
     }
     
     // Modified method to only use Google Tasks API without falling back to Firestore
-    private void loadTasksFromGoogleTasks(int retryCount) {
+    private void loadTasksFromGoogleTasks(int retryCount, boolean forceRefresh) {
         final int MAX_RETRIES = 2;
         
-        taskService.getAllTasks(
-            null, // We don't need the task lists here
-            new TaskService.TasksCallback() {
-                @Override
-                public void onSuccess(List<Task> tasks) {
-                    // We got tasks from Google Tasks API
-                    if (tasks != null && !tasks.isEmpty()) {
-                        // Update UI with retrieved tasks immediately for fast display
-                        runOnUiThread(() -> {
+        TaskService.TasksCallback callback = new TaskService.TasksCallback() {
+            @Override
+            public void onSuccess(List<Task> tasks) {
+                // We got tasks from Google Tasks API
+                if (tasks != null && !tasks.isEmpty()) {
+                    // Update UI with retrieved tasks immediately for fast display
+                    runOnUiThread(() -> {
+                        freshTasksShown = true;
+                        // A refresh that changed nothing leaves the list alone
+                        if (!Task.sameContent(taskList, tasks)) {
                             taskList.clear(); // Clear list in case we're retrying
                             taskList.addAll(tasks);
                             taskAdapter.notifyDataSetChanged();
-                            showEmptyState(false);
-                            binding.swipeRefreshLayout.setRefreshing(false);
-                            tasksLoaded = true;
-                            // Update refresh time
-                            lastRefreshTime = System.currentTimeMillis();
-                        });
-                        
-                        // Sync with local database in background for offline access
-                        executorService.execute(() -> {
-                            for (Task task : tasks) {
-                                taskDatabase.taskDao().insertOrUpdateTask(task);
-                            }
-                        });
-                    } else {
-                        // Google Tasks API returned empty data - show empty state instead of falling back
-                        runOnUiThread(() -> {
-                            taskList.clear();
-                            taskAdapter.notifyDataSetChanged();
-                            showEmptyState(true);
-                            binding.swipeRefreshLayout.setRefreshing(false);
-                            lastRefreshTime = System.currentTimeMillis();
-                        });
-                    }
-                }
-                
-                @Override
-                public void onFailure(Exception e) {
-                    // Show error message and empty state instead of falling back to Firestore
-                    runOnUiThread(() -> {
-                        Toast.makeText(MainActivity.this, "Failed to load tasks: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+                        }
+                        showEmptyState(false);
                         binding.swipeRefreshLayout.setRefreshing(false);
+                        tasksLoaded = true;
+                        // Update refresh time
+                        lastRefreshTime = System.currentTimeMillis();
+                    });
+                    
+                    // Sync with local database in background for offline access; only changed tasks are written
+                    executorService.execute(() -> taskDatabase.taskDao().insertOrUpdateChanged(currentUserEmail, tasks));
+                } else {
+                    // Google Tasks API returned empty data - show empty state instead of falling back
+                    runOnUiThread(() -> {
+                        freshTasksShown = true;
+                        taskList.clear();
+                        taskAdapter.notifyDataSetChanged();
                         showEmptyState(true);
+                        binding.swipeRefreshLayout.setRefreshing(false);
                         lastRefreshTime = System.currentTimeMillis();
                     });
                 }
             }
-        );
+            
+            @Override
+            public void onFailure(Exception e) {
+                // Show error message and empty state instead of falling back to Firestore
+                runOnUiThread(() -> {
+                    Toast.makeText(MainActivity.this, "Failed to load tasks: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+                    binding.swipeRefreshLayout.setRefreshing(false);
+                    showEmptyState(true);
+                    lastRefreshTime = System.currentTimeMillis();
+                });
+            }
+        };
+        
+        // We don't need the task lists here. A refresh runs a full sync pass across
+        // Google Tasks and Firestore, joining one that is already running.
+        if (forceRefresh) {
+            syncOrchestrator.sync(currentUserEmail, new SyncOrchestrator.SyncCallback() {
+                @Override
+                public void onSuccess(List<Task> tasks) {
+                    callback.onSuccess(tasks);
+                }
+                
+                @Override
+                public void onFailure(Exception e) {
+                    callback.onFailure(e);
+                }
+            });
+        } else {
+            taskService.getAllTasks(null, callback);
+        }
+    }
+    
+    /**
+     * Paint tasks from Firestore's local cache without waiting for any network round trip.
+     * Ignored once fresher data from the network is already on screen.
+     */
+    private void showCachedTasks() {
+        if (currentUserEmail == null) {
+            return;
+        }
+        
+        taskRepository.getCachedTasksByUser(currentUserEmail, new FirebaseTaskRepository.TasksCallback() {
+            @Override
+            public void onSuccess(List<Task> tasks) {
+                if (tasks == null || tasks.isEmpty()) {
+                    return;
+                }
+                runOnUiThread(() -> {
+                    if (freshTasksShown) {
+                        return;
+                    }
+                    taskList.clear();
+                    taskList.addAll(tasks);
+                    taskAdapter.notifyDataSetChanged();
+                    showEmptyState(false);
+                });
+            }
+            
+            @Override
+            public void onFailure(Exception e) {
+                Log.w("MainActivity", "No cached tasks available: " + e.getMessage());
+            }
+        });
     }
     
     private void loadFirestoreTasks() {
@@ -562,7 +457,9 @@ public class MainActivity extends AppCompatActivity implements TaskAdapter.TaskA
             public void onSuccess(List<Task> tasks) {
                 if (tasks != null && !tasks.isEmpty()) {
                     // Update UI with retrieved tasks from Firestore
+                    // (called again if the server revalidation differs from the cached result)
                     runOnUiThread(() -> {
+                        taskList.clear();
                         taskList.addAll(tasks);
                         taskAdapter.notifyDataSetChanged();
                         showEmptyState(false);
@@ -701,6 +598,9 @@ public class MainActivity extends AppCompatActivity implements TaskAdapter.TaskA
     private void signOut() {
         mGoogleSignInClient.signOut()
             .addOnCompleteListener(this, task -> {
+                // The signed-out account's service and cached tasks are no longer needed
+                TaskService.releaseAll();
+                
                 // Navigate back to login screen
                 Intent intent = new Intent(MainActivity.this, LoginActivity.class);
                 startActivity(intent);
@@ -86,7 +86,7 @@ public class ProfileActivity extends AppCompatActivity {
         
         // Initialize TaskService if we have a user email
         if (userEmail != null) {
-            taskService = new TaskService(this, userEmail);
+            taskService = TaskService.getInstance(this, userEmail);
         }
         
         // Set user information in UI
@@ -320,6 +320,9 @@ public class ProfileActivity extends AppCompatActivity {
     private void signOut() {
         mGoogleSignInClient.signOut()
             .addOnCompleteListener(this, task -> {
+                // The signed-out account's service and cached tasks are no longer needed
+                TaskService.releaseAll();
+                
                 // Navigate back to login screen
                 Intent intent = new Intent(this, LoginActivity.class);
                 startActivity(intent);
@@ -23,6 +23,8 @@ import com.google.android.gms.auth.api.signin.GoogleSignInAccount;
 import com.google.android.gms.auth.api.signin.GoogleSignInClient;
 import com.google.android.gms.auth.api.signin.GoogleSignInOptions;
 import com.google.android.material.switchmaterial.SwitchMaterial;
+import com.example.taskflow.service.TaskService;
+import com.example.taskflow.service.TaskSyncWorker;
 import com.example.taskflow.util.EmailNotificationUtil;
 
 import java.util.Calendar;
@@ -172,8 +174,10 @@ public class SettingsActivity extends AppCompatActivity {
         // Data sync switch
         switchDataSync.setOnCheckedChangeListener((buttonView, isChecked) -> {
             SharedPreferences.Editor editor = sharedPreferences.edit();
-            editor.putBoolean("data_sync_enabled", isChecked);
+            editor.putBoolean(TaskSyncWorker.PREF_DATA_SYNC_ENABLED, isChecked);
             editor.apply();
+            // Starts or stops the background sync
+            TaskSyncWorker.schedule(this);
             Toast.makeText(this, isChecked ? "Data sync enabled" : "Data sync disabled", Toast.LENGTH_SHORT).show();
         });
 
@@ -268,6 +272,9 @@ public class SettingsActivity extends AppCompatActivity {
     private void signOut() {
         mGoogleSignInClient.signOut()
             .addOnCompleteListener(this, task -> {
+                // The signed-out account's service and cached tasks are no longer needed
+                TaskService.releaseAll();
+                
                 // Clear any saved preferences related to user data if needed
                 Toast.makeText(this, "Logged out successfully", Toast.LENGTH_SHORT).show();
                 
@@ -518,7 +525,9 @@ public class SettingsActivity extends AppCompatActivity {
                         new java.util.concurrent.atomic.AtomicReference<>();
                 java.util.concurrent.CountDownLatch latch = new java.util.concurrent.CountDownLatch(1);
                 
-                repository.getTasksByUser(userEmail, new com.example.taskflow.db.FirebaseTaskRepository.TasksCallback() {
+                // Export needs one authoritative answer, so skip the cache-first read
+                repository.getTasksByUser(userEmail, com.example.taskflow.db.FirebaseTaskRepository.ReadPolicy.SERVER_FIRST,
+                        new com.example.taskflow.db.FirebaseTaskRepository.TasksCallback() {
                     @Override
                     public void onSuccess(java.util.List<com.example.taskflow.model.Task> tasks) {
                         tasksRef.set(tasks);
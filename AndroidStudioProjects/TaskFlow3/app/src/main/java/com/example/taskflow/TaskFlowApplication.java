@@ -1,9 +1,15 @@
 package com.example.taskflow;
 
+import android.app.Activity;
 import android.app.Application;
 import android.content.Context;
+import android.os.Bundle;
 import android.util.Log;
 
+import com.example.taskflow.db.FirebaseTaskRepository;
+import com.example.taskflow.service.OutboxWorker;
+import com.example.taskflow.service.TaskService;
+import com.example.taskflow.service.TaskSyncWorker;
 import com.example.taskflow.util.TranssionCompatHelper;
 import com.google.android.gms.common.GoogleApiAvailability;
 import com.google.android.gms.common.GooglePlayServicesNotAvailableException;
@@ -12,12 +18,17 @@ import com.google.android.gms.security.ProviderInstaller;
 import com.google.firebase.FirebaseApp;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.FirebaseFirestoreSettings;
+import com.google.firebase.firestore.PersistentCacheSettings;
 
 /**
  * Application class for TaskFlow to initialize Firebase and other app-wide configurations
  */
 public class TaskFlowApplication extends Application {
     private static final String TAG = "TaskFlowApplication";
+    
+    // Upper bound for Firestore's on-disk cache. Once exceeded, Firestore's LRU
+    // garbage collector evicts the least recently used documents.
+    private static final long FIRESTORE_CACHE_SIZE_BYTES = 50L * 1024 * 1024; // 50 MB
 
     @Override
     public void onCreate() {
@@ -31,20 +42,33 @@ public class TaskFlowApplication extends Application {
             FirebaseApp.initializeApp(this);
             Log.d(TAG, "Firebase initialized successfully");
             
-            // Configure Firestore settings for better offline support
+            // Configure Firestore settings for better offline support.
+            // The persistent cache is bounded so reads can be served from disk
+            // without the cache growing forever.
             FirebaseFirestoreSettings settings = new FirebaseFirestoreSettings.Builder()
-                .setPersistenceEnabled(true)
-                .setCacheSizeBytes(FirebaseFirestoreSettings.CACHE_SIZE_UNLIMITED)
+                .setLocalCacheSettings(PersistentCacheSettings.newBuilder()
+                    .setSizeBytes(FIRESTORE_CACHE_SIZE_BYTES)
+                    .build())
                 .build();
             
             FirebaseFirestore.getInstance().setFirestoreSettings(settings);
             Log.d(TAG, "Firestore settings configured for offline use");
+            
+            // Users whose tasks were already moved to the per-user layout skip legacy reads
+            FirebaseTaskRepository.getInstance().getLayout().restoreMigratedUsers(this);
         } catch (Exception e) {
             Log.e(TAG, "Error initializing Firebase", e);
         }
         
         // Initialize any app-wide resources here
         
+        // Send any changes queued while offline in an earlier session
+        OutboxWorker.schedule(this);
+        
+        // Keep Room fresh in the background, syncing more often while the app is in use
+        TaskSyncWorker.schedule(this);
+        registerActivityLifecycleCallbacks(new UsageTracker());
+        
         // Handle Transsion device compatibility
         handleTranssionCompatibility();
     }
@@ -133,6 +157,49 @@ public class TaskFlowApplication extends Application {
         return false;
     }
     
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        // Cached task lists are cheap to rebuild from Room; give the memory back once we're in the background
+        if (level >= TRIM_MEMORY_BACKGROUND) {
+            TaskService.trimMemory();
+        }
+    }
+    
+    /**
+     * Tells the background sync whenever a screen comes to the foreground
+     */
+    private static class UsageTracker implements ActivityLifecycleCallbacks {
+        @Override
+        public void onActivityStarted(Activity activity) {
+            TaskSyncWorker.onUserActive(activity.getApplicationContext());
+        }
+        
+        @Override
+        public void onActivityCreated(Activity activity, Bundle savedInstanceState) {
+        }
+        
+        @Override
+        public void onActivityResumed(Activity activity) {
+        }
+        
+        @Override
+        public void onActivityPaused(Activity activity) {
+        }
+        
+        @Override
+        public void onActivityStopped(Activity activity) {
+        }
+        
+        @Override
+        public void onActivitySaveInstanceState(Activity activity, Bundle outState) {
+        }
+        
+        @Override
+        public void onActivityDestroyed(Activity activity) {
+        }
+    }
+    
     @Override
     protected void attachBaseContext(Context base) {
         super.attachBaseContext(base);
@@ -19,6 +19,7 @@ import com.example.taskflow.adapter.TaskListAdapter;
 import com.example.taskflow.db.FirebaseTaskRepository;
 import com.example.taskflow.db.TaskDatabase;
 import com.example.taskflow.model.Task;
+import com.example.taskflow.service.SyncOrchestrator;
 import com.example.taskflow.service.TaskService;
 import com.google.android.gms.auth.api.signin.GoogleSignIn;
 import com.google.android.gms.auth.api.signin.GoogleSignInAccount;
@@ -31,9 +32,7 @@ import com.google.android.material.tabs.TabLayout;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.RejectedExecutionException;
@@ -58,6 +57,7 @@ public class TasksActivity extends AppCompatActivity implements TaskAdapter.Task
     private ExecutorService executorService;
     private TaskDatabase taskDatabase;
     private TaskService taskService;
+    private SyncOrchestrator syncOrchestrator;
     private String userEmail;
     private List<Task> taskList;
     private GoogleSignInClient mGoogleSignInClient;
@@ -77,6 +77,7 @@ public class TasksActivity extends AppCompatActivity implements TaskAdapter.Task
         
         // Initialize repositories and services
         taskRepository = FirebaseTaskRepository.getInstance();
+        syncOrchestrator = SyncOrchestrator.getInstance(this);
         executorService = Executors.newSingleThreadExecutor();
         taskDatabase = TaskDatabase.getInstance(this);
         
@@ -103,7 +104,7 @@ public class TasksActivity extends AppCompatActivity implements TaskAdapter.Task
         
         // Initialize TaskService if we have a user email
         if (userEmail != null) {
-            taskService = new TaskService(this, userEmail);
+            taskService = TaskService.getInstance(this, userEmail);
         }
         
         // Set up task list and adapters
@@ -291,24 +292,23 @@ public class TasksActivity extends AppCompatActivity implements TaskAdapter.Task
                     if (tasks != null && !tasks.isEmpty()) {
                         // Update UI with retrieved tasks
                         runOnUiThread(() -> {
-                            taskList.clear();
-                            taskList.addAll(tasks);
-                            taskAdapter.setTasks(tasks);
-                            
-                            // Update calendar with dates that have tasks
-                            calendarAdapter.setDatesWithTasks(taskAdapter.getDatesWithTasks());
+                            // A refresh that changed nothing leaves the list and calendar alone
+                            if (!Task.sameContent(taskList, tasks)) {
+                                taskList.clear();
+                                taskList.addAll(tasks);
+                                taskAdapter.setTasks(tasks);
+                                
+                                // Update calendar with dates that have tasks
+                                calendarAdapter.setDatesWithTasks(taskAdapter.getDatesWithTasks());
+                            }
                             
                             // Apply current filter
                             int currentFilter = taskAdapter.getCurrentFilter();
                             updateEmptyState(taskAdapter.getItemCount() == 0, currentFilter);
                         });
                         
-                        // Sync with local database in background for offline access
-                        executorService.execute(() -> {
-                            for (Task task : tasks) {
-                                taskDatabase.taskDao().insertOrUpdateTask(task);
-                            }
-                        });
+                        // Sync with local database in background for offline access; only changed tasks are written
+                        executorService.execute(() -> taskDatabase.taskDao().insertOrUpdateChanged(userEmail, tasks));
                     } else {
                         // No tasks found, show empty state
                         runOnUiThread(() -> {
@@ -403,135 +403,59 @@ public class TasksActivity extends AppCompatActivity implements TaskAdapter.Task
     // TaskActionListener Implementation
     @Override
     public void onTaskCompletionChanged(Task task, boolean isCompleted) {
-        // Update task status
-        String newStatus = isCompleted ? "COMPLETED" : "PENDING";
+        if (userEmail == null) {
+            showError("Please sign in to update your tasks");
+            return;
+        }
         
         // Save the task ID before any modifications
         String taskId = task.getId();
         String googleTaskId = task.getGoogleTaskId();
         
-        // First, update the status in Firestore directly without creating a new document
-        Map<String, Object> statusUpdate = new HashMap<>();
-        statusUpdate.put("status", newStatus);
-        
-        // Update Firestore using just the status field update
-        taskRepository.updateTaskFields(taskId, statusUpdate, new FirebaseTaskRepository.TaskCallback() {
-            @Override
-            public void onSuccess() {
-                // Update the task in our local model
-                task.setStatus(newStatus);
-                
-                // Update Google Tasks if available
-                if (taskService != null && googleTaskId != null) {
-                    executorService.execute(() -> {
-                        try {
-                            taskService.updateTaskStatus(task, isCompleted);
-                        } catch (Exception e) {
-                            android.util.Log.e("TasksActivity", "Failed to update task in Google Tasks: " + e.getMessage());
-                        }
-                    });
-                }
-                
-                // Update local Room database (only update the status field)
-                executorService.execute(() -> {
-                    try {
-                        // First, get the existing task to avoid duplicates
-                        Task existingTask = taskDatabase.taskDao().getTaskById(taskId);
-                        if (existingTask != null) {
-                            existingTask.setStatus(newStatus);
-                            taskDatabase.taskDao().updateTask(existingTask);
-                        } else {
-                            // Fallback if not found by ID
-                            taskDatabase.taskDao().insertOrUpdate(task);
-                        }
-                        
-                        // Now find and remove any duplicates
-                        if (task.getTitle() != null && task.getDate() != null) {
-                            List<Task> similarTasks = taskDatabase.taskDao().getSimilarTasks(task.getTitle(), task.getDate());
-                            
-                            if (similarTasks != null && similarTasks.size() > 1) {
-                                // Keep only one task (the one we're updating) and delete others
-                                for (Task similarTask : similarTasks) {
-                                    if (!similarTask.getId().equals(taskId)) {
-                                        taskDatabase.taskDao().deleteTask(similarTask);
-                                        android.util.Log.d("TasksActivity", "Deleted duplicate task from Room: " + similarTask.getId());
-                                    }
-                                }
-                            }
-                        }
-                    } catch (Exception e) {
-                        android.util.Log.e("TasksActivity", "Error updating task in Room: " + e.getMessage());
-                    }
-                });
-                
-                // Update the UI
-                runOnUiThread(() -> {
-                    // Update task in the list to match new status
-                    for (int i = 0; i < taskList.size(); i++) {
-                        Task t = taskList.get(i);
-                        if ((t.getId() != null && t.getId().equals(taskId)) ||
-                            (t.getGoogleTaskId() != null && googleTaskId != null &&
-                             t.getGoogleTaskId().equals(googleTaskId))) {
-                            t.setStatus(newStatus);
-                            break;
-                        }
-                    }
-                    
-                    // Update UI without creating new tasks
-                    taskAdapter.setTasks(taskList);
-                    Toast.makeText(TasksActivity.this, 
-                            isCompleted ? "Task marked as completed" : "Task marked as pending", 
-                            Toast.LENGTH_SHORT).show();
-                });
-            }
-            
-            @Override
-            public void onFailure(Exception e) {
-                showError("Failed to update task status: " + e.getMessage());
+        // Saved locally at once; Google Tasks and Firestore are updated in the background
+        syncOrchestrator.setTaskStatus(userEmail, task, isCompleted);
+        String newStatus = task.getStatus();
+        
+        // Update task in the list to match new status
+        for (int i = 0; i < taskList.size(); i++) {
+            Task t = taskList.get(i);
+            if ((t.getId() != null && t.getId().equals(taskId)) ||
+                (t.getGoogleTaskId() != null && googleTaskId != null &&
+                 t.getGoogleTaskId().equals(googleTaskId))) {
+                t.setStatus(newStatus);
+                break;
             }
-        });
+        }
+        
+        // Update UI without creating new tasks
+        taskAdapter.setTasks(taskList);
+        Toast.makeText(TasksActivity.this, 
+                isCompleted ? "Task marked as completed" : "Task marked as pending", 
+                Toast.LENGTH_SHORT).show();
     }
     
     @Override
     public void onTaskDeleted(Task task) {
-        // Delete task from Firestore
-        taskRepository.deleteTask(task, new FirebaseTaskRepository.TaskCallback() {
-            @Override
-            public void onSuccess() {
-                // Delete from Google Tasks if available
-                if (taskService != null && task.getGoogleTaskId() != null) {
-                    executorService.execute(() -> {
-                        taskService.deleteTask(task);
-                    });
-                }
-                
-                // Delete from local Room database
-                executorService.execute(() -> {
-                    taskDatabase.taskDao().deleteTask(task);
-                });
-                
-                // Update UI
-                runOnUiThread(() -> {
-                    taskList.remove(task);
-                    
-                    // Update the task adapter
-                    taskAdapter.setTasks(taskList);
-                    
-                    // Update calendar with dates that have tasks
-                    calendarAdapter.setDatesWithTasks(taskAdapter.getDatesWithTasks());
-                    
-                    // Check if we need to show empty state
-                    updateEmptyState(taskAdapter.getItemCount() == 0, taskAdapter.getCurrentFilter());
-                    
-                    showError("Task deleted successfully");
-                });
-            }
-            
-            @Override
-            public void onFailure(Exception e) {
-                showError("Failed to delete task: " + e.getMessage());
-            }
-        });
+        if (userEmail == null) {
+            showError("Please sign in to update your tasks");
+            return;
+        }
+        
+        // Removed from Room, Google Tasks and Firestore by the sync orchestrator
+        syncOrchestrator.deleteTask(userEmail, task);
+        
+        taskList.remove(task);
+        
+        // Update the task adapter
+        taskAdapter.setTasks(taskList);
+        
+        // Update calendar with dates that have tasks
+        calendarAdapter.setDatesWithTasks(taskAdapter.getDatesWithTasks());
+        
+        // Check if we need to show empty state
+        updateEmptyState(taskAdapter.getItemCount() == 0, taskAdapter.getCurrentFilter());
+        
+        showError("Task deleted successfully");
     }
     
     @Override
@@ -8,15 +8,24 @@ import com.example.taskflow.model.Task;
 import com.google.android.gms.tasks.OnCompleteListener;
 import com.google.android.gms.tasks.OnFailureListener;
 import com.google.android.gms.tasks.OnSuccessListener;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.CollectionReference;
 import com.google.firebase.firestore.DocumentReference;
 import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
 import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.FirebaseFirestoreException;
 import com.google.firebase.firestore.Query;
 import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.Source;
+import com.google.firebase.firestore.WriteBatch;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Executor;
@@ -26,19 +35,40 @@ import java.util.concurrent.Executor;
  */
 public class FirebaseTaskRepository {
     private static final String TAG = "FirebaseTaskRepository";
-    private static final String COLLECTION_TASKS = "tasks";
+    
+    // Server time of a document's last write in the per-user layout; lets a sync pull only what changed
+    public static final String FIELD_UPDATED_AT = "updatedAt";
     
     private final FirebaseFirestore db;
+    private final TaskCollectionLayout layout;
     private static FirebaseTaskRepository instance;
     
-    // Cache for tasks by user to reduce Firestore reads
-    private Map<String, List<Task>> userTasksCache = new HashMap<>();
-    private Map<String, Long> userTasksCacheTimestamp = new HashMap<>();
+    // Cache for tasks by user to reduce Firestore reads (bounded, least recently used entries are evicted)
+    private static final int MAX_CACHED_USERS = 4;
+    private final Map<String, List<Task>> userTasksCache = newLruMap(MAX_CACHED_USERS);
+    private final Map<String, Long> userTasksCacheTimestamp = newLruMap(MAX_CACHED_USERS);
     private static final long CACHE_EXPIRATION_MS = 5 * 60 * 1000; // 5 minutes
     
     // Cache for date-specific tasks
-    private Map<String, List<Task>> dateTasksCache = new HashMap<>();
-    private Map<String, Long> dateTasksCacheTimestamp = new HashMap<>();
+    private static final int MAX_CACHED_DATES = 31;
+    private final Map<String, List<Task>> dateTasksCache = newLruMap(MAX_CACHED_DATES);
+    private final Map<String, Long> dateTasksCacheTimestamp = newLruMap(MAX_CACHED_DATES);
+    
+    /**
+     * How list reads are answered.
+     */
+    public enum ReadPolicy {
+        /** Ask the server first; Firestore falls back to its cache only when offline. */
+        SERVER_FIRST,
+        /**
+         * Answer from Firestore's local cache immediately, then revalidate against the server.
+         * The callback is invoked a second time only if the server result differs.
+         */
+        CACHE_THEN_SERVER
+    }
+    
+    // Used by list reads that don't specify a policy
+    private static final ReadPolicy DEFAULT_READ_POLICY = ReadPolicy.CACHE_THEN_SERVER;
 
     // Task ID cache to prevent duplications during rapid status toggling
     private final Map<String, Long> recentlyUpdatedTasks = new HashMap<>();
@@ -64,8 +94,18 @@ public class FirebaseTaskRepository {
         void onFailure(Exception e);
     }
     
+    public interface TaskChangesCallback {
+        /**
+         * @param watermark the newest update time among the changes, to pass as {@code since} next time;
+         *                  null if there were none
+         */
+        void onSuccess(List<Task> tasks, Date watermark);
+        void onFailure(Exception e);
+    }
+    
     private FirebaseTaskRepository() {
         this.db = FirebaseFirestore.getInstance();
+        this.layout = new TaskCollectionLayout(db);
     }
     
     public static synchronized FirebaseTaskRepository getInstance() {
@@ -75,6 +115,25 @@ public class FirebaseTaskRepository {
         return instance;
     }
     
+    /**
+     * The Firestore layout used by this repository
+     */
+    public TaskCollectionLayout getLayout() {
+        return layout;
+    }
+    
+    /**
+     * Creates a size-bounded map that evicts its least recently accessed entry
+     */
+    private static <K, V> Map<K, V> newLruMap(int maxEntries) {
+        return Collections.synchronizedMap(new LinkedHashMap<K, V>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > maxEntries;
+            }
+        });
+    }
+    
     /**
      * Save a task to Firestore
      * This method is enhanced to prevent duplicates by checking the task's ID and Google Task ID
@@ -102,13 +161,10 @@ public class FirebaseTaskRepository {
         // First check if we're saving a task with a Google Task ID
         if (task.getGoogleTaskId() != null && !task.getGoogleTaskId().isEmpty()) {
             // Check for existing tasks with this Google Task ID to prevent duplication
-            db.collection(COLLECTION_TASKS)
-                .whereEqualTo("googleTaskId", task.getGoogleTaskId())
-                .whereEqualTo("userEmail", task.getUserEmail())
-                .get()
+            findUserTaskDocuments(task.getUserEmail(), "googleTaskId", task.getGoogleTaskId())
                 .addOnCompleteListener(queryTask -> {
                     if (queryTask.isSuccessful()) {
-                        List<DocumentSnapshot> matchingDocs = queryTask.getResult().getDocuments();
+                        List<DocumentSnapshot> matchingDocs = queryTask.getResult();
                         
                         if (!matchingDocs.isEmpty()) {
                             // Task with this Google Task ID already exists
@@ -123,7 +179,7 @@ public class FirebaseTaskRepository {
                                 // Delete all duplicates except the one we're keeping
                                 for (DocumentSnapshot doc : matchingDocs) {
                                     if (!doc.getId().equals(keepDoc.getId())) {
-                                        db.collection(COLLECTION_TASKS).document(doc.getId()).delete();
+                                        doc.getReference().delete();
                                         Log.d(TAG, "Deleted duplicate task with ID: " + doc.getId());
                                     }
                                 }
@@ -139,21 +195,7 @@ public class FirebaseTaskRepository {
                             }
                             
                             // Now save with the existing document ID
-                            db.collection(COLLECTION_TASKS)
-                                .document(task.getId())
-                                .set(task.toMap())
-                                .addOnSuccessListener(aVoid -> {
-                                    Log.d(TAG, "Task updated successfully: " + task.getId());
-                                    if (callback != null) {
-                                        callback.onSuccess();
-                                    }
-                                })
-                                .addOnFailureListener(e -> {
-                                    Log.e(TAG, "Error updating task", e);
-                                    if (callback != null) {
-                                        callback.onFailure(e);
-                                    }
-                                });
+                            saveTaskDirectly(task, callback);
                         } else {
                             // No existing task with this Google Task ID, check if there's a similar task by title/date
                             checkForSimilarTaskAndSave(task, callback);
@@ -215,13 +257,10 @@ public class FirebaseTaskRepository {
     private void checkForSimilarTaskAndSave(Task task, TaskCallback callback) {
         // Only perform similarity check if we have enough information
         if (task.getTitle() != null && task.getUserEmail() != null) {
-            db.collection(COLLECTION_TASKS)
-                .whereEqualTo("userEmail", task.getUserEmail())
-                .whereEqualTo("title", task.getTitle())
-                .get()
+            findUserTaskDocuments(task.getUserEmail(), "title", task.getTitle())
                 .addOnCompleteListener(queryTask -> {
                     if (queryTask.isSuccessful()) {
-                        List<DocumentSnapshot> docs = queryTask.getResult().getDocuments();
+                        List<DocumentSnapshot> docs = queryTask.getResult();
                         boolean foundSimilar = false;
                         
                         if (docs.size() > 1) {
@@ -273,7 +312,7 @@ public class FirebaseTaskRepository {
                                 // Delete any other duplicates
                                 for (DocumentSnapshot doc : docs) {
                                     if (!doc.getId().equals(bestMatchTask.getId())) {
-                                        db.collection(COLLECTION_TASKS).document(doc.getId()).delete();
+                                        doc.getReference().delete();
                                         Log.d(TAG, "Deleted duplicate task with ID: " + doc.getId());
                                     }
                                 }
@@ -315,24 +354,78 @@ public class FirebaseTaskRepository {
     }
     
     /**
-     * Helper method to directly save a task to Firestore
+     * Query a user's tasks in both layouts for documents whose field equals the given value
+     */
+    private com.google.android.gms.tasks.Task<List<DocumentSnapshot>> findUserTaskDocuments(
+            String userEmail, String field, Object value) {
+        if (userEmail == null) {
+            return layout.legacyTasks()
+                .whereEqualTo(field, value)
+                .whereEqualTo("userEmail", null)
+                .get()
+                .continueWith(task -> new ArrayList<>(task.getResult().getDocuments()));
+        }
+        
+        com.google.android.gms.tasks.Task<QuerySnapshot> current = layout.userTasks(userEmail)
+            .whereEqualTo(field, value)
+            .get();
+        if (!layout.needsLegacyReads(userEmail)) {
+            return current.continueWith(task -> new ArrayList<>(task.getResult().getDocuments()));
+        }
+        
+        com.google.android.gms.tasks.Task<QuerySnapshot> legacy = layout.legacyTasksOf(userEmail)
+            .whereEqualTo(field, value)
+            .get();
+        return Tasks.whenAllSuccess(current, legacy).continueWith(task -> {
+            List<DocumentSnapshot> documents = new ArrayList<>(current.getResult().getDocuments());
+            documents.addAll(legacy.getResult().getDocuments());
+            return documents;
+        });
+    }
+    
+    /**
+     * Helper method to save a task to Firestore. An existing document is merged with the
+     * task field by field ({@link TaskMergeEngine}): only the fields where this copy is newer
+     * are written, so an edit made elsewhere in the meantime isn't overwritten.
      */
     private void saveTaskDirectly(Task task, TaskCallback callback) {
-        Map<String, Object> taskMap = task.toMap();
+        CollectionReference collection = layout.tasksFor(task.getUserEmail());
         
         // Get the document reference
         DocumentReference docRef;
         if (task.getId() != null && !task.getId().isEmpty()) {
             // Use task's ID as the document ID
-            docRef = db.collection(COLLECTION_TASKS).document(task.getId());
+            docRef = collection.document(task.getId());
         } else {
             // Create a new document with auto-generated ID
-            docRef = db.collection(COLLECTION_TASKS).document();
+            docRef = collection.document();
             task.setId(docRef.getId());
-            taskMap = task.toMap(); // Update map with the new ID
         }
         
-        docRef.set(taskMap)
+        // Writing into the per-user layout retires any legacy copy of the same task
+        DocumentReference legacyRef = task.getUserEmail() != null && layout.needsLegacyReads(task.getUserEmail())
+                ? layout.legacyTasks().document(task.getId())
+                : null;
+        
+        db.runTransaction(transaction -> {
+            DocumentSnapshot snapshot = transaction.get(docRef);
+            Map<String, Object> fields;
+            if (snapshot.exists()) {
+                // This copy was just saved by the user, so it wins ties
+                TaskMergeEngine.Result merge = TaskMergeEngine.merge(task, snapshot.toObject(Task.class), true);
+                fields = merge.getLocalWins().isEmpty() ? null : TaskMergeEngine.fieldsOf(task, merge.getLocalWins());
+            } else {
+                fields = task.toMap();
+            }
+            if (fields != null) {
+                fields.put(FIELD_UPDATED_AT, FieldValue.serverTimestamp());
+                transaction.set(docRef, fields, SetOptions.merge());
+            }
+            if (legacyRef != null) {
+                transaction.delete(legacyRef);
+            }
+            return null;
+        })
             .addOnSuccessListener(aVoid -> {
                 Log.d(TAG, "Task saved successfully: " + task.getId());
                 if (callback != null) {
@@ -340,6 +433,13 @@ public class FirebaseTaskRepository {
                 }
             })
             .addOnFailureListener(e -> {
+                if (e instanceof FirebaseFirestoreException
+                        && ((FirebaseFirestoreException) e).getCode() == FirebaseFirestoreException.Code.UNAVAILABLE) {
+                    // Transactions need the server; offline, merge against the cached copy instead
+                    Log.d(TAG, "Offline, merging task against the cache: " + task.getId());
+                    saveTaskOffline(task, docRef, legacyRef, callback);
+                    return;
+                }
                 Log.e(TAG, "Error saving task", e);
                 if (callback != null) {
                     callback.onFailure(e);
@@ -348,8 +448,126 @@ public class FirebaseTaskRepository {
     }
     
     /**
-     * Update only specific fields of a task without creating duplicates
-     * This is especially useful for status updates
+     * Queue a write of the fields where this copy beats the cached document, like the
+     * transaction does against the server copy. Writing the whole task would overwrite
+     * fields another device changed more recently. Without a cached copy the task is
+     * treated as new and written whole.
+     */
+    private void saveTaskOffline(Task task, DocumentReference docRef, DocumentReference legacyRef, TaskCallback callback) {
+        docRef.get(Source.CACHE).addOnCompleteListener(read -> {
+            DocumentSnapshot cached = read.isSuccessful() ? read.getResult() : null;
+            Map<String, Object> fields;
+            if (cached != null && cached.exists()) {
+                TaskMergeEngine.Result merge = TaskMergeEngine.merge(task, cached.toObject(Task.class), true);
+                fields = merge.getLocalWins().isEmpty() ? null : TaskMergeEngine.fieldsOf(task, merge.getLocalWins());
+            } else {
+                fields = task.toMap();
+            }
+            commitOffline(task, docRef, legacyRef, fields, callback);
+        });
+    }
+    
+    private void commitOffline(Task task, DocumentReference docRef, DocumentReference legacyRef,
+                               Map<String, Object> fields, TaskCallback callback) {
+        WriteBatch batch = db.batch();
+        if (fields != null) {
+            fields.put(FIELD_UPDATED_AT, FieldValue.serverTimestamp());
+            batch.set(docRef, fields, SetOptions.merge());
+        }
+        if (legacyRef != null) {
+            batch.delete(legacyRef);
+        }
+        
+        batch.commit()
+            .addOnSuccessListener(aVoid -> {
+                Log.d(TAG, "Task saved successfully: " + task.getId());
+                if (callback != null) {
+                    callback.onSuccess();
+                }
+            })
+            .addOnFailureListener(e -> {
+                Log.e(TAG, "Error saving task", e);
+                if (callback != null) {
+                    callback.onFailure(e);
+                }
+            });
+    }
+    
+    /**
+     * Update only specific fields of a user's task without creating duplicates.
+     * Pass the fields' versions along, e.g. via {@link TaskMergeEngine#fieldsOf}.
+     * A task still in the legacy layout is moved to users/{uid}/tasks as part of the update.
+     */
+    public void updateTaskFields(String userEmail, String taskId, Map<String, Object> fields, TaskCallback callback) {
+        if (userEmail == null) {
+            updateTaskFields(taskId, fields, callback);
+            return;
+        }
+        if (taskId == null || fields == null || fields.isEmpty()) {
+            if (callback != null) {
+                callback.onFailure(new IllegalArgumentException("Task ID and fields cannot be null or empty"));
+            }
+            return;
+        }
+        
+        // No debounce here: an update addresses the document by ID, so it can't create a
+        // duplicate, and dropping it would lose the change
+        layout.getUserTaskDocument(userEmail, taskId).addOnCompleteListener(task -> {
+            if (!task.isSuccessful()) {
+                Log.e(TAG, "Error checking if task document exists", task.getException());
+                if (callback != null) {
+                    callback.onFailure(task.getException());
+                }
+                return;
+            }
+            
+            DocumentSnapshot document = task.getResult();
+            DocumentReference target = layout.userTasks(userEmail).document(taskId);
+            WriteBatch batch = db.batch();
+            Map<String, Object> stampedFields = new HashMap<>(fields);
+            stampedFields.put(FIELD_UPDATED_AT, FieldValue.serverTimestamp());
+            
+            if (document == null) {
+                // Document does not exist, create it with these fields
+                Log.d(TAG, "Task document does not exist, creating new one: " + taskId);
+                Task newTask = new Task();
+                newTask.setId(taskId);
+                newTask.setUserEmail(userEmail);
+                Map<String, Object> taskMap = newTask.toMap();
+                taskMap.putAll(stampedFields);
+                batch.set(target, taskMap);
+            } else if (document.getReference().equals(target)) {
+                // Merging keeps the document's other fields and its versions of them
+                batch.set(target, stampedFields, SetOptions.merge());
+            } else {
+                // Found in the legacy collection, move it while we are touching it anyway
+                Map<String, Object> taskMap = new HashMap<>(document.getData());
+                taskMap.putAll(stampedFields);
+                taskMap.put("userEmail", userEmail);
+                batch.set(target, taskMap);
+                batch.delete(document.getReference());
+                Log.d(TAG, "Moved task to per-user collection during update: " + taskId);
+            }
+            
+            batch.commit()
+                .addOnSuccessListener(aVoid -> {
+                    Log.d(TAG, "Task fields updated successfully: " + taskId);
+                    if (callback != null) {
+                        callback.onSuccess();
+                    }
+                })
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "Error updating task fields", e);
+                    if (callback != null) {
+                        callback.onFailure(e);
+                    }
+                });
+        });
+    }
+    
+    /**
+     * Update only specific fields of a task in the legacy top-level collection.
+     * Prefer {@link #updateTaskFields(String, String, Map, TaskCallback)} when the owner is known.
      */
     public void updateTaskFields(String taskId, Map<String, Object> fields, TaskCallback callback) {
         if (taskId == null || fields == null || fields.isEmpty()) {
@@ -371,7 +589,7 @@ public class FirebaseTaskRepository {
         markTaskAsUpdated(taskId);
         
         // First check if document exists
-        db.collection(COLLECTION_TASKS)
+        layout.legacyTasks()
             .document(taskId)
             .get()
             .addOnCompleteListener(task -> {
@@ -380,8 +598,7 @@ public class FirebaseTaskRepository {
                     
                     if (document.exists()) {
                         // Document exists, update it
-                        db.collection(COLLECTION_TASKS)
-                            .document(taskId)
+                        document.getReference()
                             .update(fields)
                             .addOnSuccessListener(aVoid -> {
                                 Log.d(TAG, "Task fields updated successfully: " + taskId);
@@ -439,7 +656,7 @@ public class FirebaseTaskRepository {
      * Helper method to save a new task with the provided fields
      */
     private void saveNewTaskWithFields(String taskId, Map<String, Object> taskMap, TaskCallback callback) {
-        db.collection(COLLECTION_TASKS)
+        layout.legacyTasks()
             .document(taskId)
             .set(taskMap)
             .addOnSuccessListener(aVoid -> {
@@ -457,10 +674,11 @@ public class FirebaseTaskRepository {
     }
     
     /**
-     * Try to find a user email from another task with the same Google Task ID
+     * Try to find a user email from another task with the same Google Task ID.
+     * This scans every user's legacy documents, so it is only used when the owner is unknown.
      */
     private void findUserEmailByGoogleTaskId(String googleTaskId, UserEmailCallback callback) {
-        db.collection(COLLECTION_TASKS)
+        layout.legacyTasks()
             .whereEqualTo("googleTaskId", googleTaskId)
             .limit(1)
             .get()
@@ -486,16 +704,32 @@ public class FirebaseTaskRepository {
      * Update just the status of a task - optimized method to prevent duplication
      */
     public void updateTaskStatus(String taskId, String status, TaskCallback callback) {
+        updateTaskStatus(null, taskId, status, callback);
+    }
+    
+    /**
+     * Update just the status of a user's task
+     */
+    public void updateTaskStatus(String userEmail, String taskId, String status, TaskCallback callback) {
         Map<String, Object> fields = new HashMap<>();
         fields.put("status", status);
         
-        updateTaskFields(taskId, fields, callback);
+        updateTaskFields(userEmail, taskId, fields, callback);
     }
     
     /**
-     * Get all tasks for a specific user
+     * Get all tasks for a specific user with {@link ReadPolicy#CACHE_THEN_SERVER}.
+     * The callback may be invoked twice: once with the cached tasks and once more if the
+     * server returns something different.
      */
     public void getTasksByUser(String userEmail, TasksCallback callback) {
+        getTasksByUser(userEmail, DEFAULT_READ_POLICY, callback);
+    }
+    
+    /**
+     * Get all tasks for a specific user
+     */
+    public void getTasksByUser(String userEmail, ReadPolicy policy, TasksCallback callback) {
         // Check cache first
         if (userTasksCache.containsKey(userEmail) && userTasksCacheTimestamp.containsKey(userEmail)) {
             long lastCacheTime = userTasksCacheTimestamp.get(userEmail);
@@ -505,86 +739,105 @@ public class FirebaseTaskRepository {
                 return;
             }
         }
-
-        // Use a simpler query that doesn't require complex compound index
-        db.collection(COLLECTION_TASKS)
-            .whereEqualTo("userEmail", userEmail)
-            .get()
-            .addOnCompleteListener(task -> {
-                if (task.isSuccessful() && callback != null) {
-                    List<Task> tasks = new ArrayList<>();
-                    Map<String, Task> uniqueTasks = new HashMap<>();
-                    
-                    for (DocumentSnapshot document : task.getResult()) {
-                        Task taskObj = document.toObject(Task.class);
-                        if (taskObj != null) {
-                            // Use a composite key of title+date to identify potential duplicates
-                            String key = taskObj.getTitle() + "_" + (taskObj.getDate() != null ? taskObj.getDate().getTime() : "null");
-                            
-                            // If we already have this task, keep the one with more complete information
-                            if (uniqueTasks.containsKey(key)) {
-                                Task existingTask = uniqueTasks.get(key);
-                                
-                                // Prefer tasks with Google Task ID if available
-                                if (existingTask.getGoogleTaskId() == null && taskObj.getGoogleTaskId() != null) {
-                                    uniqueTasks.put(key, taskObj);
-                                    // Delete the duplicate from Firestore
-                                    db.collection(COLLECTION_TASKS).document(existingTask.getId()).delete();
-                                    Log.d(TAG, "Deleted duplicate task during query: " + existingTask.getId());
-                                } else if (existingTask.getGoogleTaskId() != null && taskObj.getGoogleTaskId() == null) {
-                                    // Keep existing, delete the duplicate
-                                    db.collection(COLLECTION_TASKS).document(taskObj.getId()).delete();
-                                    Log.d(TAG, "Deleted duplicate task during query: " + taskObj.getId());
-                                } 
-                                // If both have Google Task ID but they're different, keep both
-                                else if (existingTask.getGoogleTaskId() != null && taskObj.getGoogleTaskId() != null && 
-                                        !existingTask.getGoogleTaskId().equals(taskObj.getGoogleTaskId())) {
-                                    // Different Google tasks, generate a different key
-                                    uniqueTasks.put(key + "_" + taskObj.getGoogleTaskId(), taskObj);
-                                }
-                                // Otherwise keep what we have
-                            } else {
-                                // New unique task
-                                uniqueTasks.put(key, taskObj);
-                            }
-                        }
+        
+        if (policy != ReadPolicy.CACHE_THEN_SERVER) {
+            fetchTasksByUserFromServer(userEmail, Source.DEFAULT, null, callback);
+            return;
+        }
+        
+        // Serve whatever is on disk right away, then revalidate with the server
+        layout.getUserTaskDocuments(userEmail, Source.CACHE)
+            .addOnCompleteListener(cacheTask -> {
+                List<Task> cachedTasks = null;
+                if (cacheTask.isSuccessful() && !cacheTask.getResult().isEmpty()) {
+                    cachedTasks = toSortedUniqueTasks(cacheTask.getResult(), false);
+                    Log.d(TAG, "Serving " + cachedTasks.size() + " tasks from Firestore cache for user: " + userEmail);
+                    if (callback != null) {
+                        callback.onSuccess(cachedTasks);
                     }
-                    
-                    // Convert map to list
-                    tasks.addAll(uniqueTasks.values());
-                    
-                    // Sort in memory
-                    if (!tasks.isEmpty()) {
-                        tasks.sort((task1, task2) -> {
-                            // First compare by date
-                            int dateCompare = 0;
-                            if (task1.getDate() != null && task2.getDate() != null) {
-                                dateCompare = task1.getDate().compareTo(task2.getDate());
-                            } else if (task1.getDate() == null && task2.getDate() != null) {
-                                return -1;
-                            } else if (task1.getDate() != null && task2.getDate() == null) {
-                                return 1;
-                            }
-                            
-                            // If dates are equal, compare by startTime
-                            if (dateCompare == 0) {
-                                if (task1.getStartTime() != null && task2.getStartTime() != null) {
-                                    return task1.getStartTime().compareTo(task2.getStartTime());
-                                } else if (task1.getStartTime() == null && task2.getStartTime() != null) {
-                                    return -1;
-                                } else if (task1.getStartTime() != null && task2.getStartTime() == null) {
-                                    return 1;
-                                }
-                            }
-                            return dateCompare;
-                        });
+                }
+                fetchTasksByUserFromServer(userEmail, Source.SERVER, cachedTasks, callback);
+            });
+    }
+    
+    /**
+     * Get a user's tasks written since the given server time, or all of them if {@code since}
+     * is null. Asks the server, since a delta from the local cache could miss changes.
+     * Only the per-user layout is read; tasks still in the legacy layout have no update time.
+     */
+    public void getTaskChangesSince(String userEmail, Date since, TaskChangesCallback callback) {
+        Query query = layout.userTasks(userEmail);
+        if (since != null) {
+            query = query.whereGreaterThan(FIELD_UPDATED_AT, since);
+        }
+        query.get(Source.SERVER)
+            .addOnSuccessListener(snapshot -> {
+                List<Task> tasks = new ArrayList<>();
+                Date watermark = null;
+                for (DocumentSnapshot document : snapshot.getDocuments()) {
+                    Task task = document.toObject(Task.class);
+                    if (task == null) {
+                        continue;
                     }
+                    if (task.getId() == null) {
+                        task.setId(document.getId());
+                    }
+                    tasks.add(task);
+                    Date updatedAt = document.getDate(FIELD_UPDATED_AT);
+                    if (updatedAt != null && (watermark == null || updatedAt.after(watermark))) {
+                        watermark = updatedAt;
+                    }
+                }
+                Log.d(TAG, "Fetched " + tasks.size() + " changed tasks for user: " + userEmail);
+                callback.onSuccess(tasks, watermark);
+            })
+            .addOnFailureListener(callback::onFailure);
+    }
+    
+    /**
+     * Get the tasks for a user from Firestore's local cache only, without touching the network.
+     * Succeeds with an empty list if nothing is cached yet.
+     */
+    public void getCachedTasksByUser(String userEmail, TasksCallback callback) {
+        layout.getUserTaskDocuments(userEmail, Source.CACHE)
+            .addOnCompleteListener(task -> {
+                if (callback == null) {
+                    return;
+                }
+                if (task.isSuccessful()) {
+                    callback.onSuccess(toSortedUniqueTasks(task.getResult(), false));
+                } else {
+                    callback.onFailure(task.getException());
+                }
+            });
+    }
+    
+    /**
+     * Query a user's tasks from the given source, cache the result and deliver it.
+     * If {@code alreadyDelivered} is not null, the result is only delivered when it differs,
+     * and a failure is swallowed because the caller already has data to show.
+     */
+    private void fetchTasksByUserFromServer(String userEmail, Source source,
+                                            List<Task> alreadyDelivered, TasksCallback callback) {
+        layout.getUserTaskDocuments(userEmail, source)
+            .addOnCompleteListener(task -> {
+                if (task.isSuccessful()) {
+                    List<Task> tasks = toSortedUniqueTasks(task.getResult(), true);
                     
                     // Cache the result
                     userTasksCache.put(userEmail, tasks);
                     userTasksCacheTimestamp.put(userEmail, System.currentTimeMillis());
-
+                    
+                    if (callback == null) {
+                        return;
+                    }
+                    if (alreadyDelivered != null && sameTasks(alreadyDelivered, tasks)) {
+                        Log.d(TAG, "Server tasks match the cached result for user: " + userEmail);
+                        return;
+                    }
                     callback.onSuccess(tasks);
+                } else if (alreadyDelivered != null) {
+                    Log.w(TAG, "Revalidation against server failed, keeping cached tasks", task.getException());
                 } else if (callback != null) {
                     callback.onFailure(task.getException());
                 }
@@ -592,12 +845,121 @@ public class FirebaseTaskRepository {
     }
     
     /**
-     * Delete a task from Firestore
+     * Convert a query result into a de-duplicated list sorted by date and start time.
+     * Duplicates are only deleted from Firestore when {@code pruneDuplicates} is set,
+     * so a possibly stale cache read never triggers remote deletes.
+     */
+    private List<Task> toSortedUniqueTasks(List<DocumentSnapshot> documents, boolean pruneDuplicates) {
+        List<Task> tasks = new ArrayList<>();
+        Map<String, Task> uniqueTasks = new HashMap<>();
+        Map<String, DocumentReference> references = new HashMap<>();
+        
+        for (DocumentSnapshot document : documents) {
+            Task taskObj = document.toObject(Task.class);
+            if (taskObj != null) {
+                references.put(taskObj.getId(), document.getReference());
+                
+                // Use a composite key of title+date to identify potential duplicates
+                String key = taskObj.getTitle() + "_" + (taskObj.getDate() != null ? taskObj.getDate().getTime() : "null");
+                
+                // If we already have this task, keep the one with more complete information
+                if (uniqueTasks.containsKey(key)) {
+                    Task existingTask = uniqueTasks.get(key);
+                    
+                    // Prefer tasks with Google Task ID if available
+                    if (existingTask.getGoogleTaskId() == null && taskObj.getGoogleTaskId() != null) {
+                        uniqueTasks.put(key, taskObj);
+                        // Delete the duplicate from Firestore
+                        if (pruneDuplicates) {
+                            references.get(existingTask.getId()).delete();
+                            Log.d(TAG, "Deleted duplicate task during query: " + existingTask.getId());
+                        }
+                    } else if (existingTask.getGoogleTaskId() != null && taskObj.getGoogleTaskId() == null) {
+                        // Keep existing, delete the duplicate
+                        if (pruneDuplicates) {
+                            document.getReference().delete();
+                            Log.d(TAG, "Deleted duplicate task during query: " + taskObj.getId());
+                        }
+                    } 
+                    // If both have Google Task ID but they're different, keep both
+                    else if (existingTask.getGoogleTaskId() != null && taskObj.getGoogleTaskId() != null && 
+                            !existingTask.getGoogleTaskId().equals(taskObj.getGoogleTaskId())) {
+                        // Different Google tasks, generate a different key
+                        uniqueTasks.put(key + "_" + taskObj.getGoogleTaskId(), taskObj);
+                    }
+                    // Otherwise keep what we have
+                } else {
+                    // New unique task
+                    uniqueTasks.put(key, taskObj);
+                }
+            }
+        }
+        
+        // Convert map to list
+        tasks.addAll(uniqueTasks.values());
+        
+        // Sort in memory
+        if (!tasks.isEmpty()) {
+            tasks.sort((task1, task2) -> {
+                // First compare by date
+                int dateCompare = 0;
+                if (task1.getDate() != null && task2.getDate() != null) {
+                    dateCompare = task1.getDate().compareTo(task2.getDate());
+                } else if (task1.getDate() == null && task2.getDate() != null) {
+                    return -1;
+                } else if (task1.getDate() != null && task2.getDate() == null) {
+                    return 1;
+                }
+                
+                // If dates are equal, compare by startTime
+                if (dateCompare == 0) {
+                    if (task1.getStartTime() != null && task2.getStartTime() != null) {
+                        int timeCompare = task1.getStartTime().compareTo(task2.getStartTime());
+                        if (timeCompare != 0) {
+                            return timeCompare;
+                        }
+                    } else if (task1.getStartTime() == null && task2.getStartTime() != null) {
+                        return -1;
+                    } else if (task1.getStartTime() != null && task2.getStartTime() == null) {
+                        return 1;
+                    }
+                    // Fall back to the ID so the order is stable between cache and server reads
+                    return task1.getId().compareTo(task2.getId());
+                }
+                return dateCompare;
+            });
+        }
+        
+        return tasks;
+    }
+    
+    /**
+     * Check whether two sorted task lists hold the same data
+     */
+    private boolean sameTasks(List<Task> first, List<Task> second) {
+        if (first.size() != second.size()) {
+            return false;
+        }
+        for (int i = 0; i < first.size(); i++) {
+            if (!first.get(i).toMap().equals(second.get(i).toMap())) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Delete a task from Firestore, in whichever layout it lives
      */
     public void deleteTask(Task task, TaskCallback callback) {
-        db.collection(COLLECTION_TASKS)
-            .document(task.getId())
-            .delete()
+        WriteBatch batch = db.batch();
+        if (task.getUserEmail() != null) {
+            batch.delete(layout.userTasks(task.getUserEmail()).document(task.getId()));
+        }
+        if (layout.needsLegacyReads(task.getUserEmail())) {
+            batch.delete(layout.legacyTasks().document(task.getId()));
+        }
+        batch.commit()
             .addOnSuccessListener(aVoid -> {
                 Log.d(TAG, "Task deleted successfully: " + task.getId());
                 if (callback != null) {
@@ -616,10 +978,7 @@ public class FirebaseTaskRepository {
      * Count tasks by user and status
      */
     public void getTaskCountByStatusAndUser(String status, String userEmail, TaskCountCallback callback) {
-        db.collection(COLLECTION_TASKS)
-            .whereEqualTo("userEmail", userEmail)
-            .whereEqualTo("status", status)
-            .get()
+        findUserTaskDocuments(userEmail, "status", status)
             .addOnCompleteListener(task -> {
                 if (task.isSuccessful() && callback != null) {
                     callback.onSuccess(task.getResult().size());
@@ -647,9 +1006,7 @@ public class FirebaseTaskRepository {
      * Count all tasks for a user
      */
     public void getTaskCountByUser(String userEmail, TaskCountCallback callback) {
-        db.collection(COLLECTION_TASKS)
-            .whereEqualTo("userEmail", userEmail)
-            .get()
+        layout.getUserTaskDocuments(userEmail, Source.DEFAULT)
             .addOnCompleteListener(task -> {
                 if (task.isSuccessful() && callback != null) {
                     callback.onSuccess(task.getResult().size());
@@ -660,16 +1017,14 @@ public class FirebaseTaskRepository {
     }
     
     /**
-     * Get a specific task by ID
+     * Get a specific task of a user by ID
      */
-    public void getTaskById(String taskId, SingleTaskCallback callback) {
-        db.collection(COLLECTION_TASKS)
-            .document(taskId)
-            .get()
+    public void getTaskById(String userEmail, String taskId, SingleTaskCallback callback) {
+        layout.getUserTaskDocument(userEmail, taskId)
             .addOnCompleteListener(task -> {
                 if (task.isSuccessful() && callback != null) {
                     DocumentSnapshot document = task.getResult();
-                    if (document.exists()) {
+                    if (document != null) {
                         Task taskObj = document.toObject(Task.class);
                         callback.onSuccess(taskObj);
                     } else {
@@ -697,8 +1052,32 @@ public class FirebaseTaskRepository {
             }
         }
 
-        db.collection(COLLECTION_TASKS)
-            .whereEqualTo("userEmail", userEmail)
+        // Tasks that haven't been migrated yet still live in the legacy collection
+        if (layout.needsLegacyReads(userEmail)) {
+            getTasksByUser(userEmail, ReadPolicy.SERVER_FIRST, new TasksCallback() {
+                @Override
+                public void onSuccess(List<Task> allTasks) {
+                    List<Task> tasks = new ArrayList<>();
+                    for (Task taskObj : allTasks) {
+                        if (date.equals(taskObj.getDate())) {
+                            tasks.add(taskObj);
+                        }
+                    }
+                    dateTasksCache.put(cacheKey, tasks);
+                    dateTasksCacheTimestamp.put(cacheKey, System.currentTimeMillis());
+                    callback.onSuccess(tasks);
+                }
+                
+                @Override
+                public void onFailure(Exception e) {
+                    callback.onFailure(e);
+                }
+            });
+            return;
+        }
+        
+        // Scoped to the user's own collection, so no userEmail filter is needed
+        layout.userTasks(userEmail)
             .whereEqualTo("date", date)
             .orderBy("startTime", Query.Direction.ASCENDING)
             .get()
@@ -760,13 +1139,11 @@ public class FirebaseTaskRepository {
     public void deleteAllTasksForUser(String userEmail, TaskCallback callback) {
         Log.d(TAG, "Attempting to delete all tasks for user: " + userEmail);
         
-        db.collection(COLLECTION_TASKS)
-            .whereEqualTo("userEmail", userEmail)
-            .get()
+        layout.getUserTaskDocuments(userEmail, Source.SERVER)
             .addOnCompleteListener(task -> {
                 if (task.isSuccessful()) {
                     // Create a batched write to efficiently delete multiple documents
-                    com.google.firebase.firestore.WriteBatch batch = db.batch();
+                    WriteBatch batch = db.batch();
                     
                     // Add each document to the batch for deletion
                     for (DocumentSnapshot document : task.getResult()) {
@@ -0,0 +1,142 @@
+package com.example.taskflow.db;
+
+import com.example.taskflow.util.TimeOfDay;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * Finds open time slots in a user's schedule, e.g. to suggest another time when a new
+ * task overlaps an existing one.
+ *
+ * Works on the busy intervals kept by {@link TimeConflictIndex}. Those are already sorted
+ * by start time, so each day's gaps come out of a single pass that tracks the latest end
+ * seen so far. Suggested slots start on a quarter hour and lie within working hours.
+ */
+public class FreeSlotFinder {
+    public static final int DEFAULT_WORKDAY_START = 8 * 60;
+    public static final int DEFAULT_WORKDAY_END = 20 * 60;
+    
+    // Slots start on these boundaries, e.g. 10:15 rather than 10:07
+    private static final int SLOT_STEP_MINUTES = 15;
+    // How far ahead to look before giving up on finding enough slots
+    private static final int SEARCH_DAYS = 7;
+    
+    private final TimeConflictIndex index;
+    private final int workdayStart;
+    private final int workdayEnd;
+    
+    /**
+     * A free period on one day, in minutes since midnight, end exclusive
+     */
+    public static class Slot {
+        public final long epochDay;
+        public final int start;
+        public final int end;
+        
+        Slot(long epochDay, int start, int end) {
+            this.epochDay = epochDay;
+            this.start = start;
+            this.end = end;
+        }
+        
+        /**
+         * Local midnight of the slot's day
+         */
+        public Date getDate() {
+            return new Date(LocalDate.ofEpochDay(epochDay)
+                    .atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        }
+        
+        public String getStartTime() {
+            return TimeOfDay.format(start);
+        }
+        
+        public String getEndTime() {
+            return TimeOfDay.format(end);
+        }
+    }
+    
+    public FreeSlotFinder(TimeConflictIndex index) {
+        this(index, DEFAULT_WORKDAY_START, DEFAULT_WORKDAY_END);
+    }
+    
+    public FreeSlotFinder(TimeConflictIndex index, int workdayStart, int workdayEnd) {
+        this.index = index;
+        this.workdayStart = workdayStart;
+        this.workdayEnd = workdayEnd;
+    }
+    
+    /**
+     * The first free slots of the given length at or after a time, earliest first.
+     * Slots on the same day don't overlap each other, and none lie in the past.
+     * Loads the index if needed, so call it off the main thread unless it is loaded.
+     *
+     * @param date          the day to start searching on
+     * @param fromMinute    the earliest start on that day, in minutes since midnight
+     * @param excludeTaskId a task whose own slot counts as free, e.g. the one being moved
+     * @return up to {@code count} slots; fewer if the next week has no more room
+     */
+    public List<Slot> findNextSlots(Date date, int fromMinute, int durationMinutes, int count,
+                                    String excludeTaskId) {
+        List<Slot> slots = new ArrayList<>(Math.max(count, 0));
+        if (count <= 0 || durationMinutes <= 0 || durationMinutes > workdayEnd - workdayStart) {
+            return slots;
+        }
+        
+        long now = System.currentTimeMillis();
+        long today = TimeConflictIndex.epochDay(now);
+        long day = TimeConflictIndex.epochDay(date.getTime());
+        if (day < today) {
+            day = today;
+            fromMinute = 0;
+        }
+        if (day == today) {
+            fromMinute = Math.max(fromMinute, minuteOfDay(now));
+        }
+        
+        for (int searched = 0; searched < SEARCH_DAYS; searched++, day++) {
+            int cursor = Math.max(workdayStart, searched == 0 ? fromMinute : 0);
+            for (TimeConflictIndex.Interval busy : index.getIntervals(day)) {
+                if (busy.start >= workdayEnd) {
+                    break;
+                }
+                if (busy.taskId.equals(excludeTaskId)) {
+                    continue;
+                }
+                addSlots(slots, count, day, cursor, busy.start, durationMinutes);
+                cursor = Math.max(cursor, busy.end);
+            }
+            addSlots(slots, count, day, cursor, workdayEnd, durationMinutes);
+            if (slots.size() >= count) {
+                break;
+            }
+        }
+        return slots;
+    }
+    
+    /**
+     * Fill the gap [gapStart, gapEnd) with back-to-back slots until there are enough
+     */
+    private static void addSlots(List<Slot> slots, int count, long day, int gapStart, int gapEnd,
+                                 int durationMinutes) {
+        int start = roundUp(gapStart);
+        while (slots.size() < count && start + durationMinutes <= gapEnd) {
+            slots.add(new Slot(day, start, start + durationMinutes));
+            start = roundUp(start + durationMinutes);
+        }
+    }
+    
+    private static int roundUp(int minute) {
+        return (minute + SLOT_STEP_MINUTES - 1) / SLOT_STEP_MINUTES * SLOT_STEP_MINUTES;
+    }
+    
+    private static int minuteOfDay(long timeMillis) {
+        long local = timeMillis + TimeZone.getDefault().getOffset(timeMillis);
+        return (int) (Math.floorMod(local, 24L * 60 * 60 * 1000) / (60 * 1000));
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.taskflow.db;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+import com.example.taskflow.model.PendingOperation;
+
+import java.util.List;
+
+@Dao
+public interface PendingOperationDao {
+    
+    // An operation queued twice under the same key is only kept once
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    long insert(PendingOperation operation);
+    
+    // The queued copy is dropped and this one appended, taking a new place at the end of the queue
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    long insertReplacing(PendingOperation operation);
+    
+    @Query("SELECT * FROM pending_operations ORDER BY sequence ASC")
+    List<PendingOperation> getAll();
+    
+    @Query("SELECT * FROM pending_operations WHERE sequence = :sequence")
+    PendingOperation get(long sequence);
+    
+    @Query("SELECT * FROM pending_operations WHERE taskId = :taskId ORDER BY sequence ASC")
+    List<PendingOperation> getForTask(String taskId);
+    
+    @Query("SELECT COUNT(*) FROM pending_operations")
+    int count();
+    
+    // Tasks with changes that haven't reached Google yet
+    @Query("SELECT DISTINCT taskId FROM pending_operations WHERE taskId IS NOT NULL")
+    List<String> getPendingTaskIds();
+    
+    @Query("UPDATE pending_operations SET attempts = attempts + 1, lastError = :error WHERE sequence = :sequence")
+    void recordFailure(long sequence, String error);
+    
+    @Query("UPDATE pending_operations SET googleTaskId = :googleTaskId WHERE taskId = :taskId AND googleTaskId IS NULL")
+    void setGoogleTaskId(String taskId, String googleTaskId);
+    
+    @Query("DELETE FROM pending_operations WHERE sequence = :sequence")
+    void delete(long sequence);
+    
+    @Query("DELETE FROM pending_operations WHERE taskId = :taskId")
+    void deleteForTask(String taskId);
+}
@@ -0,0 +1,182 @@
+package com.example.taskflow.db;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.Source;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Knows where a user's task documents live in Firestore.
+ *
+ * Tasks are stored per user under users/{uid}/tasks. Older installs wrote every
+ * task to the top-level "tasks" collection, so until a user's documents have been
+ * moved by {@link TaskLayoutMigrator} reads merge both layouts.
+ */
+public class TaskCollectionLayout {
+    static final String COLLECTION_USERS = "users";
+    static final String COLLECTION_TASKS = "tasks";
+    static final String COLLECTION_LEGACY_TASKS = "tasks";
+    
+    private static final String PREFS_NAME = "task_collection_layout";
+    // Versioned, so a new layout version migrates everyone again
+    private static final String KEY_MIGRATED_USERS = "migrated_users_v" + TaskLayoutMigrator.LAYOUT_VERSION;
+    
+    private final FirebaseFirestore db;
+    
+    // Users whose legacy documents are known to be fully migrated
+    private final Set<String> migratedUsers = Collections.synchronizedSet(new HashSet<>());
+    // Where migratedUsers is kept across launches; null until restoreMigratedUsers
+    private volatile SharedPreferences preferences;
+    
+    public TaskCollectionLayout(FirebaseFirestore db) {
+        this.db = db;
+    }
+    
+    /**
+     * The key of a user's document under users/. The app identifies users by their
+     * Google account email, so the normalized email is used as the uid.
+     */
+    public static String userKey(String userEmail) {
+        return userEmail.trim().toLowerCase(Locale.US);
+    }
+    
+    /**
+     * The users/{uid} document that holds per-user metadata such as migration state
+     */
+    public DocumentReference userDocument(String userEmail) {
+        return db.collection(COLLECTION_USERS).document(userKey(userEmail));
+    }
+    
+    /**
+     * The users/{uid}/tasks collection for a user
+     */
+    public CollectionReference userTasks(String userEmail) {
+        return userDocument(userEmail).collection(COLLECTION_TASKS);
+    }
+    
+    /**
+     * The top-level collection used before the per-user layout
+     */
+    public CollectionReference legacyTasks() {
+        return db.collection(COLLECTION_LEGACY_TASKS);
+    }
+    
+    /**
+     * A user's documents in the legacy collection. Their userEmail may be the email as the
+     * account reports it or its normalized form, so both are matched.
+     */
+    public Query legacyTasksOf(String userEmail) {
+        String key = userKey(userEmail);
+        return legacyTasks().whereIn("userEmail", userEmail.equals(key)
+                ? Collections.singletonList(key)
+                : Arrays.asList(userEmail, key));
+    }
+    
+    /**
+     * Where a task is written. Tasks without an owner can only live in the legacy collection.
+     */
+    public CollectionReference tasksFor(String userEmail) {
+        return userEmail != null ? userTasks(userEmail) : legacyTasks();
+    }
+    
+    /**
+     * Whether the legacy collection still has to be consulted for this user
+     */
+    public boolean needsLegacyReads(String userEmail) {
+        return userEmail == null || !migratedUsers.contains(userKey(userEmail));
+    }
+    
+    void markMigrated(String userEmail) {
+        migratedUsers.add(userKey(userEmail));
+        SharedPreferences store = preferences;
+        if (store != null) {
+            synchronized (migratedUsers) {
+                store.edit().putStringSet(KEY_MIGRATED_USERS, new HashSet<>(migratedUsers)).apply();
+            }
+        }
+    }
+    
+    /**
+     * Load the users migrated in earlier launches and remember new ones from now on,
+     * so their reads skip the legacy collection straight away. Call once at startup.
+     */
+    public void restoreMigratedUsers(Context context) {
+        SharedPreferences store = context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        migratedUsers.addAll(store.getStringSet(KEY_MIGRATED_USERS, Collections.emptySet()));
+        preferences = store;
+    }
+    
+    /**
+     * Read all of a user's task documents from both layouts.
+     * A document present in both places is returned once, preferring the per-user copy.
+     */
+    public com.google.android.gms.tasks.Task<List<DocumentSnapshot>> getUserTaskDocuments(String userEmail, Source source) {
+        com.google.android.gms.tasks.Task<QuerySnapshot> current = userTasks(userEmail).get(source);
+        if (!needsLegacyReads(userEmail)) {
+            return current.continueWith(task -> new ArrayList<>(task.getResult().getDocuments()));
+        }
+        
+        com.google.android.gms.tasks.Task<QuerySnapshot> legacy = legacyTasksOf(userEmail).get(source);
+        
+        return Tasks.whenAllComplete(current, legacy).continueWith(ignored -> {
+            // Fail only if neither layout could be read
+            if (!current.isSuccessful() && !legacy.isSuccessful()) {
+                throw current.getException();
+            }
+            
+            Map<String, DocumentSnapshot> merged = new LinkedHashMap<>();
+            if (legacy.isSuccessful()) {
+                for (DocumentSnapshot document : legacy.getResult().getDocuments()) {
+                    merged.put(document.getId(), document);
+                }
+            }
+            if (current.isSuccessful()) {
+                for (DocumentSnapshot document : current.getResult().getDocuments()) {
+                    merged.put(document.getId(), document);
+                }
+            }
+            return new ArrayList<>(merged.values());
+        });
+    }
+    
+    /**
+     * Look up a single task document, checking the per-user layout first.
+     * Resolves to null if the document exists in neither layout.
+     */
+    public com.google.android.gms.tasks.Task<DocumentSnapshot> getUserTaskDocument(String userEmail, String taskId) {
+        return userTasks(userEmail).document(taskId).get().continueWithTask(task -> {
+            if (task.isSuccessful() && task.getResult().exists()) {
+                return Tasks.forResult(task.getResult());
+            }
+            if (!needsLegacyReads(userEmail)) {
+                return Tasks.forResult(null);
+            }
+            return legacyTasks().document(taskId).get().continueWith(legacyTask -> {
+                DocumentSnapshot document = legacyTask.getResult();
+                if (document == null || !document.exists()) {
+                    return null;
+                }
+                // Legacy documents are shared by all users, so make sure this one is ours
+                String owner = document.getString("userEmail");
+                return owner == null || userKey(owner).equals(userKey(userEmail)) ? document : null;
+            });
+        });
+    }
+}
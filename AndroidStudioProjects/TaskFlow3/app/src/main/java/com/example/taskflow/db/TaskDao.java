@@ -5,12 +5,16 @@ import androidx.room.Delete;
 import androidx.room.Insert;
 import androidx.room.OnConflictStrategy;
 import androidx.room.Query;
+import androidx.room.Transaction;
 import androidx.room.Update;
 
 import com.example.taskflow.model.Task;
 
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Dao
 public interface TaskDao {
@@ -62,6 +66,19 @@ public interface TaskDao {
     
     @Query("SELECT * FROM tasks WHERE googleTaskId IS NULL AND userEmail = :userEmail")
     List<Task> getLocalOnlyTasksByUser(String userEmail);
+    
+    @Query("SELECT * FROM tasks WHERE googleTaskId = :googleTaskId LIMIT 1")
+    Task getTaskByGoogleTaskId(String googleTaskId);
+    
+    @Query("SELECT * FROM tasks WHERE googleTaskId IS NOT NULL AND userEmail = :userEmail")
+    List<Task> getSyncedTasksByUser(String userEmail);
+    
+    @Query("DELETE FROM tasks WHERE googleTaskId = :googleTaskId")
+    void deleteTaskByGoogleTaskId(String googleTaskId);
+    
+    // Rows synced from Google before synced tasks were tagged with their account
+    @Query("DELETE FROM tasks WHERE googleTaskId IS NOT NULL AND userEmail IS NULL")
+    void deleteUnownedSyncedTasks();
 
     @Query("DELETE FROM tasks WHERE userEmail = :userEmail")
     void deleteAllTasksForUser(String userEmail);
@@ -81,7 +98,39 @@ public interface TaskDao {
     @Query("DELETE FROM tasks WHERE id = :taskId")
     void deleteTaskById(String taskId);
     
+    @Query("SELECT id, contentHash FROM tasks WHERE userEmail = :userEmail")
+    List<StoredHash> getContentHashesByUser(String userEmail);
+    
+    /**
+     * Insert or replace only the tasks whose content differs from their stored row,
+     * so a refresh that brings nothing new writes nothing.
+     *
+     * @return the tasks that were actually written
+     */
+    @Transaction
+    default List<Task> insertOrUpdateChanged(String userEmail, List<Task> tasks) {
+        Map<String, Long> storedHashes = new HashMap<>();
+        for (StoredHash row : getContentHashesByUser(userEmail)) {
+            storedHashes.put(row.id, row.contentHash);
+        }
+        List<Task> written = new ArrayList<>();
+        for (Task task : tasks) {
+            Long storedHash = storedHashes.get(task.getId());
+            if (storedHash != null && storedHash == task.getContentHash()) {
+                continue;
+            }
+            insertOrUpdate(task);
+            written.add(task);
+        }
+        return written;
+    }
+    
     // Added method to get similar tasks by title and date
     @Query("SELECT * FROM tasks WHERE title = :title AND date = :date")
     List<Task> getSimilarTasks(String title, Date date);
+    
+    class StoredHash {
+        public String id;
+        public long contentHash;
+    }
 }
@@ -10,10 +10,12 @@ import androidx.room.TypeConverters;
 import androidx.room.migration.Migration;
 import androidx.sqlite.db.SupportSQLiteDatabase;
 
+import com.example.taskflow.model.PendingOperation;
 import com.example.taskflow.model.Task;
+import com.example.taskflow.model.TaskLocation;
 import com.example.taskflow.util.DateConverter;
 
-@Database(entities = {Task.class}, version = 3, exportSchema = false)
+@Database(entities = {Task.class, TaskLocation.class, PendingOperation.class}, version = 8, exportSchema = false)
 @TypeConverters({DateConverter.class})
 public abstract class TaskDatabase extends RoomDatabase {
     
@@ -22,6 +24,10 @@ public abstract class TaskDatabase extends RoomDatabase {
     
     public abstract TaskDao taskDao();
     
+    public abstract TaskLocationDao taskLocationDao();
+    
+    public abstract PendingOperationDao pendingOperationDao();
+    
     private static final Migration MIGRATION_1_2 = new Migration(1, 2) {
         @Override
         public void migrate(@NonNull SupportSQLiteDatabase database) {
@@ -39,13 +45,85 @@ public abstract class TaskDatabase extends RoomDatabase {
         }
     };
     
+    private static final Migration MIGRATION_3_4 = new Migration(3, 4) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            // Index of which Google task list holds each synced task; filled again by the next sync
+            database.execSQL("CREATE TABLE IF NOT EXISTS `task_locations` ("
+                    + "`googleTaskId` TEXT NOT NULL, "
+                    + "`taskListId` TEXT NOT NULL, "
+                    + "PRIMARY KEY(`googleTaskId`))");
+        }
+    };
+    
+    private static final Migration MIGRATION_4_5 = new Migration(4, 5) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            // Earlier syncs inserted a new row for every Google task on every refresh.
+            // Keep the newest row per googleTaskId, filling in app-only fields from its duplicates.
+            for (String column : new String[] {"category", "attachmentUri", "attachmentName", "driveFileId"}) {
+                database.execSQL("UPDATE tasks SET `" + column + "` = ("
+                        + "SELECT d.`" + column + "` FROM tasks d "
+                        + "WHERE d.googleTaskId = tasks.googleTaskId AND d.`" + column + "` IS NOT NULL AND d.`" + column + "` != '' "
+                        + "ORDER BY d.rowid DESC LIMIT 1) "
+                        + "WHERE googleTaskId IS NOT NULL AND (`" + column + "` IS NULL OR `" + column + "` = '')");
+            }
+            database.execSQL("UPDATE tasks SET createdAt = ("
+                    + "SELECT MIN(d.createdAt) FROM tasks d WHERE d.googleTaskId = tasks.googleTaskId) "
+                    + "WHERE googleTaskId IS NOT NULL");
+            database.execSQL("DELETE FROM tasks WHERE googleTaskId IS NOT NULL AND rowid NOT IN ("
+                    + "SELECT MAX(rowid) FROM tasks WHERE googleTaskId IS NOT NULL GROUP BY googleTaskId)");
+            database.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS `index_tasks_googleTaskId` ON `tasks` (`googleTaskId`)");
+        }
+    };
+    
+    private static final Migration MIGRATION_5_6 = new Migration(5, 6) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            // Outbox of local changes waiting to be sent to Google
+            database.execSQL("CREATE TABLE IF NOT EXISTS `pending_operations` ("
+                    + "`sequence` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, "
+                    + "`idempotencyKey` TEXT NOT NULL, "
+                    + "`type` TEXT NOT NULL, "
+                    + "`userEmail` TEXT, "
+                    + "`taskId` TEXT, "
+                    + "`googleTaskId` TEXT, "
+                    + "`payload` TEXT, "
+                    + "`fileName` TEXT, "
+                    + "`mimeType` TEXT, "
+                    + "`attempts` INTEGER NOT NULL, "
+                    + "`lastError` TEXT, "
+                    + "`createdAt` INTEGER NOT NULL)");
+            database.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS `index_pending_operations_idempotencyKey` "
+                    + "ON `pending_operations` (`idempotencyKey`)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_pending_operations_taskId` "
+                    + "ON `pending_operations` (`taskId`)");
+        }
+    };
+    
+    private static final Migration MIGRATION_6_7 = new Migration(6, 7) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            // Content hash of each row; 0 never matches, so existing rows are rewritten once by the next sync
+            database.execSQL("ALTER TABLE tasks ADD COLUMN `contentHash` INTEGER NOT NULL DEFAULT 0");
+        }
+    };
+    
+    private static final Migration MIGRATION_7_8 = new Migration(7, 8) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            // Per-field versions as JSON; existing rows start unversioned and lose ties to stamped edits
+            database.execSQL("ALTER TABLE tasks ADD COLUMN `fieldVersions` TEXT");
+        }
+    };
+    
     public static synchronized TaskDatabase getInstance(Context context) {
         if (instance == null) {
             instance = Room.databaseBuilder(
                     context.getApplicationContext(),
                     TaskDatabase.class,
                     DATABASE_NAME)
-                    .addMigrations(MIGRATION_1_2, MIGRATION_2_3)
+                    .addMigrations(MIGRATION_1_2, MIGRATION_2_3, MIGRATION_3_4, MIGRATION_4_5, MIGRATION_5_6, MIGRATION_6_7, MIGRATION_7_8)
                     .fallbackToDestructiveMigration()
                     .setJournalMode(RoomDatabase.JournalMode.TRUNCATE) // Helps with some integrity issues
                     .build();
@@ -0,0 +1,86 @@
+package com.example.taskflow.db;
+
+import com.example.taskflow.model.Task;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Maps Google tasks onto local rows so each Google task has exactly one row in Room.
+ *
+ * A Google task that already has a row keeps that row's ID and app-only fields
+ * (category, attachment, creation time). A task seen for the first time keeps the ID
+ * recorded in its notes footer, or gets one derived from its googleTaskId, so
+ * converting the same task twice always yields the same primary key and
+ * insertOrUpdate replaces instead of adding another row.
+ *
+ * Known rows are loaded once per sync instead of looking each task up separately.
+ */
+public class TaskIdentityMapper {
+    private static final String ID_NAMESPACE = "google-task:";
+    
+    private final Map<String, Task> rowsByGoogleTaskId = new HashMap<>();
+    
+    /**
+     * @param syncedRows the user's rows that already have a googleTaskId
+     */
+    public TaskIdentityMapper(List<Task> syncedRows) {
+        for (Task row : syncedRows) {
+            rowsByGoogleTaskId.put(row.getGoogleTaskId(), row);
+        }
+    }
+    
+    /**
+     * Deterministic local ID for a Google task that has no row yet
+     */
+    public static String localIdFor(String googleTaskId) {
+        return UUID.nameUUIDFromBytes((ID_NAMESPACE + googleTaskId).getBytes(StandardCharsets.UTF_8)).toString();
+    }
+    
+    /**
+     * Give a task converted from Google the identity of its existing row, if any.
+     * The task is updated in place and remembered for the rest of the sync.
+     */
+    public Task map(Task incoming) {
+        Task existing = rowsByGoogleTaskId.get(incoming.getGoogleTaskId());
+        if (existing != null) {
+            incoming.setId(existing.getId());
+            incoming.setCreatedAt(existing.getCreatedAt());
+            // Tasks from other clients carry no category or attachment, so keep what we have
+            if (incoming.getCategory() == null) {
+                incoming.setCategory(existing.getCategory());
+            }
+            if (incoming.getDriveFileId() == null) {
+                incoming.setDriveFileId(existing.getDriveFileId());
+            }
+            incoming.setAttachmentUri(existing.getAttachmentUri());
+            incoming.setAttachmentName(existing.getAttachmentName());
+        }
+        // A new row keeps the ID it was converted with: the footer's, or one derived from googleTaskId
+        rowsByGoogleTaskId.put(incoming.getGoogleTaskId(), incoming);
+        return incoming;
+    }
+    
+    /**
+     * The stored row for a Google task as loaded, or null if it has none. Call before
+     * {@link #map}, which replaces it with the incoming task.
+     */
+    public Task rowOf(String googleTaskId) {
+        return rowsByGoogleTaskId.get(googleTaskId);
+    }
+    
+    /**
+     * Local ID of the row for a Google task, or null if it has none
+     */
+    public String localIdOf(String googleTaskId) {
+        Task row = rowsByGoogleTaskId.get(googleTaskId);
+        return row != null ? row.getId() : null;
+    }
+    
+    public void forget(String googleTaskId) {
+        rowsByGoogleTaskId.remove(googleTaskId);
+    }
+}
@@ -0,0 +1,184 @@
+package com.example.taskflow.db;
+
+import android.util.Log;
+
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.Source;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Moves a user's documents from the legacy top-level "tasks" collection to users/{uid}/tasks.
+ *
+ * Each batch copies a document and deletes the legacy original in the same write, so a
+ * migration interrupted at any point simply continues with whatever is left the next time
+ * it runs. Progress is recorded on the users/{uid} document.
+ */
+public class TaskLayoutMigrator {
+    private static final String TAG = "TaskLayoutMigrator";
+    
+    // Current layout version stored on users/{uid} once migration completes
+    static final int LAYOUT_VERSION = 2;
+    static final String FIELD_LAYOUT_VERSION = "tasksLayoutVersion";
+    static final String FIELD_MIGRATED_COUNT = "migratedTaskCount";
+    static final String FIELD_MIGRATION_UPDATED_AT = "tasksMigrationUpdatedAt";
+    
+    // Two writes per document, well within Firestore's 500 writes per batch
+    private static final int BATCH_SIZE = 100;
+    
+    private static TaskLayoutMigrator instance;
+    
+    private final FirebaseFirestore db;
+    private final TaskCollectionLayout layout;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Set<String> running = Collections.synchronizedSet(new HashSet<>());
+    
+    public interface MigrationCallback {
+        void onComplete(int migratedCount);
+        void onFailure(Exception e);
+    }
+    
+    private TaskLayoutMigrator() {
+        this.db = FirebaseFirestore.getInstance();
+        this.layout = FirebaseTaskRepository.getInstance().getLayout();
+    }
+    
+    public static synchronized TaskLayoutMigrator getInstance() {
+        if (instance == null) {
+            instance = new TaskLayoutMigrator();
+        }
+        return instance;
+    }
+    
+    /**
+     * Start migrating a user's tasks in the background if that hasn't finished yet.
+     * Calling this again while a migration for the same user is running does nothing.
+     */
+    public void migrateUser(String userEmail, MigrationCallback callback) {
+        if (userEmail == null || !layout.needsLegacyReads(userEmail)) {
+            return;
+        }
+        String key = TaskCollectionLayout.userKey(userEmail);
+        if (!running.add(key)) {
+            Log.d(TAG, "Migration already running for user: " + userEmail);
+            return;
+        }
+        
+        executor.execute(() -> {
+            try {
+                int migrated = migrate(userEmail);
+                if (callback != null) {
+                    callback.onComplete(migrated);
+                }
+            } catch (Exception e) {
+                // Whatever was moved stays moved; the next run picks up the rest
+                Log.e(TAG, "Task layout migration interrupted for user: " + userEmail, e);
+                if (callback != null) {
+                    callback.onFailure(e);
+                }
+            } finally {
+                running.remove(key);
+            }
+        });
+    }
+    
+    private int migrate(String userEmail) throws Exception {
+        DocumentReference userDoc = layout.userDocument(userEmail);
+        DocumentSnapshot userState = Tasks.await(userDoc.get());
+        Long version = userState.exists() ? userState.getLong(FIELD_LAYOUT_VERSION) : null;
+        if (version != null && version >= LAYOUT_VERSION) {
+            layout.markMigrated(userEmail);
+            return 0;
+        }
+        
+        Long previous = userState.exists() ? userState.getLong(FIELD_MIGRATED_COUNT) : null;
+        int migrated = previous != null ? previous.intValue() : 0;
+        int movedThisRun = 0;
+        
+        // Documents already written to the new layout are newer than their legacy copies
+        Set<String> existing = new HashSet<>();
+        List<DocumentReference> unstamped = new ArrayList<>();
+        for (DocumentSnapshot document : Tasks.await(layout.userTasks(userEmail).get(Source.SERVER))) {
+            existing.add(document.getId());
+            if (document.get(FirebaseTaskRepository.FIELD_UPDATED_AT) == null) {
+                unstamped.add(document.getReference());
+            }
+        }
+        stampUpdatedAt(unstamped);
+        
+        while (true) {
+            // Moved documents drop out of this query, so there is no cursor to keep
+            QuerySnapshot page = Tasks.await(layout.legacyTasksOf(userEmail)
+                .limit(BATCH_SIZE)
+                .get(Source.SERVER));
+            if (page.isEmpty()) {
+                break;
+            }
+            
+            WriteBatch batch = db.batch();
+            for (DocumentSnapshot document : page.getDocuments()) {
+                if (!existing.contains(document.getId())) {
+                    // Stamped like any other write, so incremental pulls on other devices see the copy
+                    Map<String, Object> data = new HashMap<>(document.getData());
+                    data.put(FirebaseTaskRepository.FIELD_UPDATED_AT, FieldValue.serverTimestamp());
+                    batch.set(layout.userTasks(userEmail).document(document.getId()), data);
+                }
+                batch.delete(document.getReference());
+            }
+            migrated += page.size();
+            movedThisRun += page.size();
+            batch.set(userDoc, progress(migrated, null), SetOptions.merge());
+            Tasks.await(batch.commit());
+            
+            Log.d(TAG, "Moved " + page.size() + " tasks for user " + userEmail + " (" + migrated + " total)");
+        }
+        
+        Tasks.await(userDoc.set(progress(migrated, LAYOUT_VERSION), SetOptions.merge()));
+        layout.markMigrated(userEmail);
+        Log.d(TAG, "Task layout migration complete for user: " + userEmail);
+        return movedThisRun;
+    }
+    
+    /**
+     * Give per-user documents written without an update time their first one. Incremental
+     * pulls filter on that field, and Firestore leaves out documents that lack it, so
+     * devices that already have a watermark would never see them otherwise.
+     */
+    private void stampUpdatedAt(List<DocumentReference> documents) throws Exception {
+        for (int start = 0; start < documents.size(); start += BATCH_SIZE) {
+            WriteBatch batch = db.batch();
+            for (DocumentReference document : documents.subList(start, Math.min(start + BATCH_SIZE, documents.size()))) {
+                batch.update(document, FirebaseTaskRepository.FIELD_UPDATED_AT, FieldValue.serverTimestamp());
+            }
+            Tasks.await(batch.commit());
+        }
+        if (!documents.isEmpty()) {
+            Log.d(TAG, "Stamped " + documents.size() + " tasks without an update time");
+        }
+    }
+    
+    private Map<String, Object> progress(int migrated, Integer layoutVersion) {
+        Map<String, Object> fields = new HashMap<>();
+        fields.put(FIELD_MIGRATED_COUNT, migrated);
+        fields.put(FIELD_MIGRATION_UPDATED_AT, FieldValue.serverTimestamp());
+        if (layoutVersion != null) {
+            fields.put(FIELD_LAYOUT_VERSION, layoutVersion);
+        }
+        return fields;
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.taskflow.db;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+import com.example.taskflow.model.TaskLocation;
+
+import java.util.List;
+
+@Dao
+public interface TaskLocationDao {
+    
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void insertOrUpdate(TaskLocation location);
+    
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void insertOrUpdateAll(List<TaskLocation> locations);
+    
+    @Query("SELECT taskListId FROM task_locations WHERE googleTaskId = :googleTaskId")
+    String getTaskListId(String googleTaskId);
+    
+    @Query("SELECT * FROM task_locations WHERE googleTaskId IN (:googleTaskIds)")
+    List<TaskLocation> getLocations(List<String> googleTaskIds);
+    
+    @Query("DELETE FROM task_locations WHERE googleTaskId = :googleTaskId")
+    void deleteLocation(String googleTaskId);
+    
+    @Query("DELETE FROM task_locations WHERE taskListId = :taskListId")
+    void deleteLocationsInList(String taskListId);
+}
@@ -0,0 +1,205 @@
+package com.example.taskflow.db;
+
+import com.example.taskflow.model.Task;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Resolves concurrent edits between two copies of a task one field at a time.
+ *
+ * Every synced field carries a version, the time it was last changed (see {@link Task#stamp}).
+ * For each field the newer version wins, so a title edited on one device and a status
+ * toggled on another both survive instead of one copy overwriting the other.
+ * When both versions are equal:
+ * <ul>
+ *   <li>googleTaskId and driveFileId are assigned once, so a value beats no value;</li>
+ *   <li>status only moves forward, so COMPLETED beats PENDING;</li>
+ *   <li>any other field keeps the local value, and counts as a local win only if asked to.</li>
+ * </ul>
+ */
+public final class TaskMergeEngine {
+    public static final String STATUS = "status";
+    
+    private static final String[] FIELDS = {
+            "title", "description", "date", "startTime", "endTime", STATUS, "category",
+            "googleTaskId", "attachmentUri", "attachmentName", "driveFileId"
+    };
+    private static final List<String> WRITE_ONCE_FIELDS = Arrays.asList("googleTaskId", "driveFileId");
+    private static final List<String> STATUS_ORDER = Arrays.asList("PENDING", "COMPLETED");
+    
+    private TaskMergeEngine() {
+    }
+    
+    /**
+     * Outcome of a merge: the merged task and which side each differing field came from
+     */
+    public static class Result {
+        private final Task merged;
+        private final List<String> localWins;
+        private final List<String> remoteWins;
+        
+        Result(Task merged, List<String> localWins, List<String> remoteWins) {
+            this.merged = merged;
+            this.localWins = localWins;
+            this.remoteWins = remoteWins;
+        }
+        
+        public Task getMerged() {
+            return merged;
+        }
+        
+        /**
+         * Fields where the local value won; the remote copy needs them
+         */
+        public List<String> getLocalWins() {
+            return localWins;
+        }
+        
+        /**
+         * Fields where the remote value won; the local copy needs them
+         */
+        public List<String> getRemoteWins() {
+            return remoteWins;
+        }
+    }
+    
+    /**
+     * Merge a remote copy of a task into the local one. Neither input is modified.
+     *
+     * @param localWinsTies whether a tie the rules don't settle counts as a local win,
+     *                      i.e. whether the local copy is known to be current
+     */
+    public static Result merge(Task local, Task remote, boolean localWinsTies) {
+        Task merged = new Task(local);
+        List<String> localWins = new ArrayList<>();
+        List<String> remoteWins = new ArrayList<>();
+        
+        for (String field : FIELDS) {
+            Object localValue = get(local, field);
+            Object remoteValue = get(remote, field);
+            long localVersion = local.getFieldVersion(field);
+            long remoteVersion = remote.getFieldVersion(field);
+            if (Objects.equals(localValue, remoteValue)) {
+                merged.setFieldVersion(field, Math.max(localVersion, remoteVersion));
+                continue;
+            }
+            
+            int winner = Long.compare(localVersion, remoteVersion);
+            if (winner == 0) {
+                winner = breakTie(field, localValue, remoteValue);
+            }
+            if (winner > 0 || (winner == 0 && localWinsTies)) {
+                localWins.add(field);
+            } else if (winner < 0) {
+                set(merged, field, remoteValue);
+                merged.setFieldVersion(field, remoteVersion);
+                remoteWins.add(field);
+            }
+        }
+        return new Result(merged, localWins, remoteWins);
+    }
+    
+    /**
+     * Positive if the local value wins the tie, negative if the remote one does, 0 if undecided
+     */
+    private static int breakTie(String field, Object localValue, Object remoteValue) {
+        if (WRITE_ONCE_FIELDS.contains(field)) {
+            return localValue != null ? 1 : -1;
+        }
+        if (STATUS.equals(field)) {
+            return Integer.compare(STATUS_ORDER.indexOf(localValue), STATUS_ORDER.indexOf(remoteValue));
+        }
+        return 0;
+    }
+    
+    /**
+     * Stamp every synced field, for a task that is new everywhere
+     */
+    public static void stampAll(Task task) {
+        task.stamp(FIELDS);
+    }
+    
+    /**
+     * Stamp every synced field with the same version, e.g. the time Google last updated the task
+     */
+    public static void stampAll(Task task, long version) {
+        for (String field : FIELDS) {
+            task.setFieldVersion(field, version);
+        }
+    }
+    
+    /**
+     * Synced fields whose values differ between two copies of a task
+     */
+    public static List<String> changedFields(Task before, Task after) {
+        List<String> changed = new ArrayList<>();
+        for (String field : FIELDS) {
+            if (!Objects.equals(get(before, field), get(after, field))) {
+                changed.add(field);
+            }
+        }
+        return changed;
+    }
+    
+    /**
+     * Firestore update for just the given fields, carrying their versions along.
+     * The versions are a nested map, so a merging write adds to the document's versions
+     * instead of replacing them.
+     */
+    public static Map<String, Object> fieldsOf(Task task, Collection<String> fields) {
+        Map<String, Object> values = new HashMap<>();
+        Map<String, Long> versions = new HashMap<>();
+        for (String field : fields) {
+            values.put(field, get(task, field));
+            versions.put(field, task.getFieldVersion(field));
+        }
+        values.put("fieldVersions", versions);
+        return values;
+    }
+    
+    public static Map<String, Object> fieldsOf(Task task, String field) {
+        return fieldsOf(task, Collections.singletonList(field));
+    }
+    
+    private static Object get(Task task, String field) {
+        switch (field) {
+            case "title": return task.getTitle();
+            case "description": return task.getDescription();
+            case "date": return task.getDate();
+            case "startTime": return task.getStartTime();
+            case "endTime": return task.getEndTime();
+            case STATUS: return task.getStatus();
+            case "category": return task.getCategory();
+            case "googleTaskId": return task.getGoogleTaskId();
+            case "attachmentUri": return task.getAttachmentUri();
+            case "attachmentName": return task.getAttachmentName();
+            case "driveFileId": return task.getDriveFileId();
+            default: throw new IllegalArgumentException("Not a synced field: " + field);
+        }
+    }
+    
+    private static void set(Task task, String field, Object value) {
+        switch (field) {
+            case "title": task.setTitle((String) value); break;
+            case "description": task.setDescription((String) value); break;
+            case "date": task.setDate((Date) value); break;
+            case "startTime": task.setStartTime((String) value); break;
+            case "endTime": task.setEndTime((String) value); break;
+            case STATUS: task.setStatus((String) value); break;
+            case "category": task.setCategory((String) value); break;
+            case "googleTaskId": task.setGoogleTaskId((String) value); break;
+            case "attachmentUri": task.setAttachmentUri((String) value); break;
+            case "attachmentName": task.setAttachmentName((String) value); break;
+            case "driveFileId": task.setDriveFileId((String) value); break;
+            default: throw new IllegalArgumentException("Not a synced field: " + field);
+        }
+    }
+}
@@ -0,0 +1,365 @@
+package com.example.taskflow.db;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.example.taskflow.model.Task;
+import com.example.taskflow.util.TimeOfDay;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * In-memory index of each user's scheduled time slots, used to detect overlapping tasks
+ * without going to the network.
+ *
+ * Tasks are grouped by local calendar day. Each day keeps its intervals sorted by start
+ * time along with a running maximum of end times, so an overlap query is a binary search.
+ * A task that ends before it starts runs overnight, and is indexed as the rest of its own
+ * day plus the start of the next one.
+ * The index is built once from Room and then kept current by the code paths that write
+ * tasks, instead of being rebuilt on every check. Checks never read Room on the calling
+ * thread; until the index is built they are answered on the loader thread.
+ */
+public class TimeConflictIndex {
+    private static final String TAG = "TimeConflictIndex";
+    private static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+    
+    private static final Map<String, TimeConflictIndex> instances = new HashMap<>();
+    private static final ExecutorService loader = Executors.newSingleThreadExecutor();
+    
+    private final TaskDao taskDao;
+    private final String userEmail;
+    private final Map<Long, DaySchedule> days = new HashMap<>();
+    private final Map<String, long[]> daysByTaskId = new HashMap<>();
+    private volatile boolean loaded;
+    
+    /**
+     * A task's time slot in minutes since midnight, end exclusive
+     */
+    public static class Interval {
+        public final String taskId;
+        public final int start;
+        public final int end;
+        
+        Interval(String taskId, int start, int end) {
+            this.taskId = taskId;
+            this.start = start;
+            this.end = end;
+        }
+    }
+    
+    public interface ConflictCallback {
+        void onConflictCheckComplete(boolean hasConflict);
+    }
+    
+    /**
+     * One day's part of a task's time slot
+     */
+    private static class DaySlot {
+        final long day;
+        final int start;
+        final int end;
+        
+        DaySlot(long day, int start, int end) {
+            this.day = day;
+            this.start = start;
+            this.end = end;
+        }
+    }
+    
+    private TimeConflictIndex(Context context, String userEmail) {
+        this(TaskDatabase.getInstance(context).taskDao(), userEmail);
+    }
+    
+    TimeConflictIndex(TaskDao taskDao, String userEmail) {
+        this.taskDao = taskDao;
+        this.userEmail = userEmail;
+    }
+    
+    public static synchronized TimeConflictIndex getInstance(Context context, String userEmail) {
+        TimeConflictIndex index = instances.get(userEmail);
+        if (index == null) {
+            index = new TimeConflictIndex(context, userEmail);
+            instances.put(userEmail, index);
+        }
+        return index;
+    }
+    
+    public boolean isLoaded() {
+        return loaded;
+    }
+    
+    /**
+     * Build the index in the background so the first conflict check doesn't wait for Room
+     */
+    public void preload() {
+        if (!loaded) {
+            loader.execute(this::load);
+        }
+    }
+    
+    /**
+     * Build the index from Room if that hasn't happened yet. Must be called off the main thread.
+     */
+    public synchronized void load() {
+        if (loaded) {
+            return;
+        }
+        index(taskDao.getAllTasksForUser(userEmail));
+        Log.d(TAG, "Indexed " + daysByTaskId.size() + " timed tasks across " + days.size() + " days");
+    }
+    
+    /**
+     * Build the index from the given tasks instead of Room
+     */
+    synchronized void index(Collection<Task> tasks) {
+        for (Task task : tasks) {
+            // Tasks put before loading may also be in Room
+            put(task);
+        }
+        loaded = true;
+    }
+    
+    /**
+     * Record a new or changed task
+     */
+    public synchronized void put(Task task) {
+        remove(task.getId());
+        add(task);
+    }
+    
+    public synchronized void remove(String taskId) {
+        long[] taskDays = daysByTaskId.remove(taskId);
+        if (taskDays == null) {
+            return;
+        }
+        for (long day : taskDays) {
+            DaySchedule schedule = days.get(day);
+            schedule.remove(taskId);
+            if (schedule.isEmpty()) {
+                days.remove(day);
+            }
+        }
+    }
+    
+    /**
+     * Apply the outcome of a sync: changed tasks are re-indexed, removed ones dropped
+     */
+    public synchronized void applyChanges(Collection<Task> changed, Collection<String> removedIds) {
+        if (!loaded) {
+            // Nothing to keep current yet; load() will see these rows
+            return;
+        }
+        for (String taskId : removedIds) {
+            remove(taskId);
+        }
+        for (Task task : changed) {
+            put(task);
+        }
+    }
+    
+    /**
+     * Forget everything, e.g. after the user's tasks were wiped; the next load rebuilds it
+     */
+    public synchronized void invalidate() {
+        days.clear();
+        daysByTaskId.clear();
+        loaded = false;
+    }
+    
+    /**
+     * Check whether a task's time slot overlaps another task's.
+     * Tasks without a valid time range never conflict. The task itself is ignored,
+     * so an edited task doesn't conflict with its old slot.
+     *
+     * Once the index is built the callback runs at once on the calling thread. Before that,
+     * or after {@link #invalidate()}, the index is built and the callback run on the loader
+     * thread, so this is safe to call from the main thread either way.
+     */
+    public void check(Task task, ConflictCallback callback) {
+        Boolean hasConflict = hasConflictIfLoaded(task);
+        if (hasConflict != null) {
+            callback.onConflictCheckComplete(hasConflict);
+        } else {
+            loader.execute(() -> callback.onConflictCheckComplete(loadAndCheck(task)));
+        }
+    }
+    
+    /**
+     * The busy intervals on a day, sorted by start time; empty until the index is loaded
+     */
+    public synchronized List<Interval> getIntervals(long epochDay) {
+        DaySchedule schedule = days.get(epochDay);
+        return schedule != null ? new ArrayList<>(schedule.intervals) : new ArrayList<>();
+    }
+    
+    /**
+     * Local calendar day of a timestamp, counted from 1970-01-01
+     */
+    public static long epochDay(long timeMillis) {
+        int offset = TimeZone.getDefault().getOffset(timeMillis);
+        return Math.floorDiv(timeMillis + offset, MILLIS_PER_DAY);
+    }
+    
+    /**
+     * The overlap check, or null if the index isn't built and answering would mean reading Room
+     */
+    private synchronized Boolean hasConflictIfLoaded(Task task) {
+        return loaded ? hasConflict(task) : null;
+    }
+    
+    private synchronized boolean loadAndCheck(Task task) {
+        load();
+        return hasConflict(task);
+    }
+    
+    private boolean hasConflict(Task task) {
+        long[] indexedDays = daysByTaskId.get(task.getId());
+        for (DaySlot slot : slotsOf(task)) {
+            DaySchedule schedule = days.get(slot.day);
+            if (schedule == null) {
+                continue;
+            }
+            // Only an edited task already indexed on this day needs to be skipped
+            String excludeId = contains(indexedDays, slot.day) ? task.getId() : null;
+            if (schedule.overlaps(slot.start, slot.end, excludeId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private void add(Task task) {
+        List<DaySlot> slots = slotsOf(task);
+        if (slots.isEmpty()) {
+            return;
+        }
+        long[] taskDays = new long[slots.size()];
+        for (int i = 0; i < slots.size(); i++) {
+            DaySlot slot = slots.get(i);
+            DaySchedule schedule = days.get(slot.day);
+            if (schedule == null) {
+                schedule = new DaySchedule();
+                days.put(slot.day, schedule);
+            }
+            schedule.add(new Interval(task.getId(), slot.start, slot.end));
+            taskDays[i] = slot.day;
+        }
+        daysByTaskId.put(task.getId(), taskDays);
+    }
+    
+    /**
+     * A task's time slot split at midnight: one part for a same-day task, up to two for one
+     * running overnight. Empty if the task has no valid time range.
+     */
+    private static List<DaySlot> slotsOf(Task task) {
+        List<DaySlot> slots = new ArrayList<>(2);
+        int start = TimeOfDay.parse(task.getStartTime());
+        int end = TimeOfDay.parse(task.getEndTime());
+        if (task.getDate() == null || start == TimeOfDay.INVALID || end == TimeOfDay.INVALID || end == start) {
+            return slots;
+        }
+        long day = epochDay(task.getDate().getTime());
+        if (end > start) {
+            slots.add(new DaySlot(day, start, end));
+            return slots;
+        }
+        slots.add(new DaySlot(day, start, TimeOfDay.MINUTES_PER_DAY));
+        if (end > 0) {
+            // Ending at 12:00 AM leaves nothing on the next day
+            slots.add(new DaySlot(day + 1, 0, end));
+        }
+        return slots;
+    }
+    
+    private static boolean contains(long[] values, long value) {
+        if (values != null) {
+            for (long v : values) {
+                if (v == value) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * One day's intervals sorted by start, with maxEnd[i] the latest end among the first i + 1
+     */
+    private static class DaySchedule {
+        private final List<Interval> intervals = new ArrayList<>();
+        private int[] maxEnd = new int[0];
+        
+        void add(Interval interval) {
+            intervals.add(firstStartingAtOrAfter(interval.start), interval);
+            rebuildMaxEnd();
+        }
+        
+        void remove(String taskId) {
+            for (int i = 0; i < intervals.size(); i++) {
+                if (intervals.get(i).taskId.equals(taskId)) {
+                    intervals.remove(i);
+                    rebuildMaxEnd();
+                    return;
+                }
+            }
+        }
+        
+        boolean isEmpty() {
+            return intervals.isEmpty();
+        }
+        
+        /**
+         * True if any interval other than excludeId's overlaps [start, end).
+         * Only intervals starting before {@code end} can overlap; among those, one does
+         * if the latest end is after {@code start}.
+         */
+        boolean overlaps(int start, int end, String excludeId) {
+            int candidates = firstStartingAtOrAfter(end);
+            if (candidates == 0 || maxEnd[candidates - 1] <= start) {
+                return false;
+            }
+            if (excludeId == null) {
+                return true;
+            }
+            // The task's own slot may be what overlaps; check the candidates one by one
+            for (int i = 0; i < candidates; i++) {
+                Interval interval = intervals.get(i);
+                if (interval.end > start && !interval.taskId.equals(excludeId)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        
+        private int firstStartingAtOrAfter(int minute) {
+            int low = 0;
+            int high = intervals.size();
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (intervals.get(mid).start < minute) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+        
+        private void rebuildMaxEnd() {
+            maxEnd = new int[intervals.size()];
+            int latest = 0;
+            for (int i = 0; i < maxEnd.length; i++) {
+                latest = Math.max(latest, intervals.get(i).end);
+                maxEnd[i] = latest;
+            }
+        }
+    }
+}
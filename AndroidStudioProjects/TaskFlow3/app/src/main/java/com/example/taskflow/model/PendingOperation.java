@@ -0,0 +1,144 @@
+package com.example.taskflow.model;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+/**
+ * A change to a task that has been made locally but not yet sent to Google.
+ *
+ * Operations are replayed in sequence order; the operations of one task never overtake
+ * each other. The idempotency key identifies the operation itself, so enqueueing it again
+ * or replaying it after a crash never applies it twice.
+ */
+@Entity(tableName = "pending_operations",
+        indices = {@Index(value = "idempotencyKey", unique = true), @Index("taskId")})
+public class PendingOperation {
+    public static final String CREATE = "CREATE";
+    public static final String PATCH = "PATCH";
+    public static final String DELETE = "DELETE";
+    public static final String UPLOAD = "UPLOAD";
+    
+    @PrimaryKey(autoGenerate = true)
+    private long sequence;
+    @NonNull
+    private String idempotencyKey;
+    @NonNull
+    private String type;
+    private String userEmail;
+    // Local task ID; the Google task ID may not exist yet when the operation is queued
+    private String taskId;
+    private String googleTaskId;
+    // PATCH: the Google task fields to send, as JSON. UPLOAD: path of the queued copy of the file.
+    private String payload;
+    private String fileName;
+    private String mimeType;
+    private int attempts;
+    private String lastError;
+    private long createdAt;
+    
+    public PendingOperation(@NonNull String idempotencyKey, @NonNull String type) {
+        this.idempotencyKey = idempotencyKey;
+        this.type = type;
+        this.createdAt = System.currentTimeMillis();
+    }
+    
+    public long getSequence() {
+        return sequence;
+    }
+    
+    public void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
+    
+    @NonNull
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+    
+    public void setIdempotencyKey(@NonNull String idempotencyKey) {
+        this.idempotencyKey = idempotencyKey;
+    }
+    
+    @NonNull
+    public String getType() {
+        return type;
+    }
+    
+    public void setType(@NonNull String type) {
+        this.type = type;
+    }
+    
+    public String getUserEmail() {
+        return userEmail;
+    }
+    
+    public void setUserEmail(String userEmail) {
+        this.userEmail = userEmail;
+    }
+    
+    public String getTaskId() {
+        return taskId;
+    }
+    
+    public void setTaskId(String taskId) {
+        this.taskId = taskId;
+    }
+    
+    public String getGoogleTaskId() {
+        return googleTaskId;
+    }
+    
+    public void setGoogleTaskId(String googleTaskId) {
+        this.googleTaskId = googleTaskId;
+    }
+    
+    public String getPayload() {
+        return payload;
+    }
+    
+    public void setPayload(String payload) {
+        this.payload = payload;
+    }
+    
+    public String getFileName() {
+        return fileName;
+    }
+    
+    public void setFileName(String fileName) {
+        this.fileName = fileName;
+    }
+    
+    public String getMimeType() {
+        return mimeType;
+    }
+    
+    public void setMimeType(String mimeType) {
+        this.mimeType = mimeType;
+    }
+    
+    public int getAttempts() {
+        return attempts;
+    }
+    
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+    
+    public String getLastError() {
+        return lastError;
+    }
+    
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+    
+    public long getCreatedAt() {
+        return createdAt;
+    }
+    
+    public void setCreatedAt(long createdAt) {
+        this.createdAt = createdAt;
+    }
+}
@@ -1,21 +1,32 @@
 package com.example.taskflow.model;
 
 import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
 import androidx.room.Entity;
 import androidx.room.Ignore;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
 import androidx.room.TypeConverters;
 
+import com.example.taskflow.util.ContentHash;
 import com.example.taskflow.util.DateConverter;
+import com.example.taskflow.util.FieldVersionsConverter;
+import com.example.taskflow.util.VersionClock;
+import com.google.firebase.firestore.Exclude;
+import com.google.firebase.firestore.IgnoreExtraProperties;
 
 import java.io.Serializable;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
-@Entity(tableName = "tasks")
-@TypeConverters({DateConverter.class})
+// At most one row per Google task; local-only rows have a null googleTaskId
+@Entity(tableName = "tasks", indices = {@Index(value = "googleTaskId", unique = true)})
+@TypeConverters({DateConverter.class, FieldVersionsConverter.class})
+// Firestore documents also carry bookkeeping such as updatedAt
+@IgnoreExtraProperties
 public class Task implements Serializable {
     @PrimaryKey
     @NonNull
@@ -33,6 +44,11 @@ public class Task implements Serializable {
     private String attachmentName;
     private String driveFileId;
     private Date createdAt; // New field to track when the task was created
+    // Hash of the synced fields, stored so a sync can spot unchanged tasks without loading whole rows
+    @ColumnInfo(defaultValue = "0")
+    private long contentHash;
+    // When each synced field was last changed, so concurrent edits can be merged field by field
+    private Map<String, Long> fieldVersions = new HashMap<>();
 
     public Task() {
         this.id = UUID.randomUUID().toString();
@@ -74,6 +90,7 @@ public class Task implements Serializable {
         this.attachmentName = sourceTask.attachmentName;
         this.driveFileId = sourceTask.driveFileId;
         this.createdAt = sourceTask.createdAt;
+        this.fieldVersions = new HashMap<>(sourceTask.fieldVersions);
     }
     
     // Convert Task to Firestore document
@@ -93,8 +110,71 @@ public class Task implements Serializable {
         map.put("attachmentName", attachmentName);
         map.put("driveFileId", driveFileId);
         map.put("createdAt", createdAt); // Include creation time in Firestore
+        map.put("fieldVersions", new HashMap<>(fieldVersions));
         return map;
     }
+    
+    /**
+     * Record a local change to the given fields. Versions are wall-clock times kept close to
+     * server time (see {@link VersionClock}), bumped past the previous version so an edit
+     * always outranks the value it replaced.
+     */
+    public void stamp(String... fields) {
+        long now = VersionClock.now();
+        for (String field : fields) {
+            fieldVersions.put(field, Math.max(now, getFieldVersion(field) + 1));
+        }
+    }
+    
+    /**
+     * Version of a field, 0 if it was never stamped
+     */
+    public long getFieldVersion(String field) {
+        Long version = fieldVersions.get(field);
+        return version != null ? version : 0;
+    }
+    
+    public void setFieldVersion(String field, long version) {
+        fieldVersions.put(field, version);
+    }
+    
+    /**
+     * Hash of every field that syncs to Google Tasks or Firestore. The local ID, creation
+     * time and field versions are left out, they are bookkeeping rather than content.
+     */
+    public long computeContentHash() {
+        return new ContentHash()
+                .add(title)
+                .add(description)
+                .add(date)
+                .add(startTime)
+                .add(endTime)
+                .add(status)
+                .add(category)
+                .add(googleTaskId)
+                .add(userEmail)
+                .add(attachmentUri)
+                .add(attachmentName)
+                .add(driveFileId)
+                .get();
+    }
+    
+    /**
+     * True if both lists hold the same tasks with the same content, in the same order
+     */
+    public static boolean sameContent(List<Task> a, List<Task> b) {
+        if (a.size() != b.size()) {
+            return false;
+        }
+        for (int i = 0; i < a.size(); i++) {
+            Task x = a.get(i);
+            Task y = b.get(i);
+            if (!x.id.equals(y.id) || x.computeContentHash() != y.computeContentHash()) {
+                return false;
+            }
+        }
+        return true;
+    }
 
     @NonNull
     public String getId() {
@@ -208,4 +288,24 @@ public class Task implements Serializable {
     public void setCreatedAt(Date createdAt) {
         this.createdAt = createdAt;
     }
+    
+    public Map<String, Long> getFieldVersions() {
+        return fieldVersions;
+    }
+    
+    public void setFieldVersions(Map<String, Long> fieldVersions) {
+        this.fieldVersions = fieldVersions != null ? fieldVersions : new HashMap<>();
+    }
+    
+    // Always derived from the current fields, so the value Room writes can't go stale
+    @Exclude
+    public long getContentHash() {
+        return computeContentHash();
+    }
+    
+    // Only here for Room; the hash read back from the row is recomputed on the next write
+    @Exclude
+    public void setContentHash(long contentHash) {
+        this.contentHash = contentHash;
+    }
 }
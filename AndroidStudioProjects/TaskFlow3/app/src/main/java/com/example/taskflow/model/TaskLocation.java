@@ -0,0 +1,41 @@
+package com.example.taskflow.model;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+/**
+ * Records which Google task list holds a Google task, so mutations can address
+ * the right list directly instead of trying each list in turn.
+ */
+@Entity(tableName = "task_locations")
+public class TaskLocation {
+    @PrimaryKey
+    @NonNull
+    private String googleTaskId;
+    @NonNull
+    private String taskListId;
+    
+    public TaskLocation(@NonNull String googleTaskId, @NonNull String taskListId) {
+        this.googleTaskId = googleTaskId;
+        this.taskListId = taskListId;
+    }
+    
+    @NonNull
+    public String getGoogleTaskId() {
+        return googleTaskId;
+    }
+    
+    public void setGoogleTaskId(@NonNull String googleTaskId) {
+        this.googleTaskId = googleTaskId;
+    }
+    
+    @NonNull
+    public String getTaskListId() {
+        return taskListId;
+    }
+    
+    public void setTaskListId(@NonNull String taskListId) {
+        this.taskListId = taskListId;
+    }
+}
@@ -6,9 +6,6 @@ import android.util.Log;
 
 import com.google.api.client.googleapis.extensions.android.gms.auth.GoogleAccountCredential;
 import com.google.api.client.http.FileContent;
-import com.google.api.client.http.javanet.NetHttpTransport;
-import com.google.api.client.json.JsonFactory;
-import com.google.api.client.json.gson.GsonFactory;
 import com.google.api.services.drive.Drive;
 import com.google.api.services.drive.DriveScopes;
 import com.google.api.services.drive.model.File;
@@ -28,7 +25,6 @@ import java.util.concurrent.Executors;
  */
 public class DriveService {
     private static final String TAG = "DriveService";
-    private static final String APPLICATION_NAME = "TaskFlow";
     private static final String ROOT_FOLDER_NAME = "TaskFlow Attachments";
     
     private final Context context;
@@ -36,6 +32,7 @@ public class DriveService {
     private final Executor executor;
     private GoogleAccountCredential credential;
     private Drive service;
+    private final GoogleRequestExecutor requests = GoogleRequestExecutor.getInstance();
 
     public interface DriveCallback<T> {
         void onSuccess(T result);
@@ -56,13 +53,7 @@ public class DriveService {
                     context, Collections.singletonList(DriveScopes.DRIVE_FILE));
             credential.setSelectedAccountName(accountName);
 
-            // Create Drive service with NetHttpTransport
-            NetHttpTransport transport = new NetHttpTransport();
-            JsonFactory jsonFactory = GsonFactory.getDefaultInstance();
-            
-            service = new Drive.Builder(transport, jsonFactory, credential)
-                    .setApplicationName(APPLICATION_NAME)
-                    .build();
+            service = GoogleApiClientFactory.drive(credential);
         } catch (Exception e) {
             Log.e(TAG, "Error setting up Drive credential", e);
         }
@@ -87,15 +78,7 @@ public class DriveService {
                     throw new IOException("Failed to create temp file from Uri");
                 }
                 
-                // First, ensure root folder exists
-                String rootFolderId = getOrCreateRootFolder();
-                
-                // Then, ensure task folder exists
-                String taskFolderName = "Task_" + taskId;
-                String taskFolderId = getOrCreateFolder(taskFolderName, rootFolderId);
-                
-                // Finally, upload the file to the task folder
-                String fileId = uploadFileToFolder(tempFile, fileName, mimeType, taskFolderId);
+                String fileId = uploadFileBlocking(tempFile, taskId, fileName, mimeType);
                 
                 // Clean up the temp file
                 if (!tempFile.delete()) {
@@ -114,6 +97,22 @@ public class DriveService {
         });
     }
     
+    /**
+     * Uploads a local file into the task's folder and returns its Drive file ID.
+     * Blocks, so must be called off the main thread.
+     */
+    public String uploadFileBlocking(java.io.File file, String taskId, String fileName, String mimeType) throws IOException {
+        // First, ensure root folder exists
+        String rootFolderId = getOrCreateRootFolder();
+        
+        // Then, ensure task folder exists
+        String taskFolderName = "Task_" + taskId;
+        String taskFolderId = getOrCreateFolder(taskFolderName, rootFolderId);
+        
+        // Finally, upload the file to the task folder
+        return uploadFileToFolder(file, fileName, mimeType, taskFolderId);
+    }
+    
     /**
      * Creates a temporary file from a content URI
      */
@@ -178,11 +177,10 @@ public class DriveService {
             query += " and '" + parentFolderId + "' in parents";
         }
         
-        FileList result = service.files().list()
+        FileList result = requests.execute(accountName, service.files().list()
                 .setQ(query)
                 .setSpaces("drive")
-                .setFields("files(id, name)")
-                .execute();
+                .setFields(GoogleApiFields.DRIVE_FILE_PAGE));
                 
         if (result.getFiles() != null && !result.getFiles().isEmpty()) {
             return result.getFiles().get(0).getId();
@@ -203,9 +201,8 @@ public class DriveService {
             fileMetadata.setParents(Collections.singletonList(parentFolderId));
         }
         
-        File folder = service.files().create(fileMetadata)
-                .setFields("id")
-                .execute();
+        File folder = requests.execute(accountName, service.files().create(fileMetadata)
+                .setFields(GoogleApiFields.ID));
                 
         return folder.getId();
     }
@@ -224,10 +221,10 @@ public class DriveService {
         // Create file content
         FileContent mediaContent = new FileContent(mimeType, file);
         
-        // Upload file
-        File uploadedFile = service.files().create(fileMetadata, mediaContent)
-                .setFields("id")
-                .execute();
+        // Upload file. A media upload can only be executed once, so every attempt builds a new request.
+        File uploadedFile = requests.execute(accountName, () -> service.files().create(fileMetadata, mediaContent)
+                .setFields(GoogleApiFields.ID)
+                .execute(), false);
                 
         return uploadedFile.getId();
     }
@@ -6,8 +6,6 @@ import android.util.Log;
 
 import com.google.api.client.googleapis.extensions.android.gms.auth.GoogleAccountCredential;
 import com.google.api.client.googleapis.json.GoogleJsonResponseException;
-import com.google.api.client.http.javanet.NetHttpTransport;
-import com.google.api.client.json.gson.GsonFactory;
 import com.google.api.client.util.Base64;
 import com.google.api.services.gmail.Gmail;
 import com.google.api.services.gmail.GmailScopes;
@@ -30,7 +28,6 @@ import javax.mail.internet.MimeMessage;
  */
 public class GmailService {
     private static final String TAG = "GmailService";
-    private static final String APPLICATION_NAME = "TaskFlow";
     
     private final Context context;
     private final String accountName;
@@ -54,12 +51,7 @@ public class GmailService {
             credential.setSelectedAccountName(accountName);
 
             // Build the Gmail service
-            NetHttpTransport transport = new NetHttpTransport();
-            GsonFactory jsonFactory = GsonFactory.getDefaultInstance();
-            
-            service = new Gmail.Builder(transport, jsonFactory, credential)
-                    .setApplicationName(APPLICATION_NAME)
-                    .build();
+            service = GoogleApiClientFactory.gmail(credential);
             
             if (service != null) {
                 Log.d(TAG, "Gmail service initialized successfully");
@@ -94,7 +86,9 @@ public class GmailService {
                 
                 Log.d(TAG, "Sending email via Gmail API...");
                 // Send the message
-                Message sentMessage = service.users().messages().send("me", message).execute();
+                Message sentMessage = service.users().messages().send("me", message)
+                        .setFields(GoogleApiFields.ID)
+                        .execute();
                 
                 if (sentMessage != null && sentMessage.getId() != null) {
                     Log.d(TAG, "Email sent successfully, message ID: " + sentMessage.getId());
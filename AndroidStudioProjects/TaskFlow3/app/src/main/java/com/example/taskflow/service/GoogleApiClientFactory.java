@@ -0,0 +1,77 @@
+package com.example.taskflow.service;
+
+import com.google.api.client.googleapis.extensions.android.gms.auth.GoogleAccountCredential;
+import com.google.api.client.googleapis.services.GoogleClientRequestInitializer;
+import com.google.api.client.http.HttpRequestInitializer;
+import com.google.api.client.http.HttpTransport;
+import com.google.api.client.json.JsonFactory;
+import com.google.api.client.json.gson.GsonFactory;
+import com.google.api.services.drive.Drive;
+import com.google.api.services.gmail.Gmail;
+import com.google.api.services.tasks.Tasks;
+
+/**
+ * Builds the Google API clients used by the services, configured the same way.
+ *
+ * Google only compresses responses for clients that both accept gzip and have "gzip"
+ * in their User-Agent, which the client library builds from the application name.
+ *
+ * Every client shares one {@link OkHttpTransport}, so all API calls draw from the same
+ * pool of kept-alive connections. The client library gives every request 20 s connect
+ * and read timeouts; the transport's own timeouts are set on each request instead.
+ */
+public final class GoogleApiClientFactory {
+    static final String APPLICATION_NAME = "TaskFlow (gzip)";
+    
+    private static final GoogleClientRequestInitializer GZIP_RESPONSES =
+            request -> request.getRequestHeaders().setAcceptEncoding("gzip");
+    
+    // Created on first use; thread-safe and never shut down while the app runs
+    private static HttpTransport transport;
+    
+    private GoogleApiClientFactory() {
+    }
+    
+    public static Tasks tasks(GoogleAccountCredential credential) {
+        return new Tasks.Builder(transport(), jsonFactory(), withTimeouts(credential))
+                .setApplicationName(APPLICATION_NAME)
+                .setGoogleClientRequestInitializer(GZIP_RESPONSES)
+                .build();
+    }
+    
+    public static Drive drive(GoogleAccountCredential credential) {
+        return new Drive.Builder(transport(), jsonFactory(), withTimeouts(credential))
+                .setApplicationName(APPLICATION_NAME)
+                .setGoogleClientRequestInitializer(GZIP_RESPONSES)
+                .build();
+    }
+    
+    public static Gmail gmail(GoogleAccountCredential credential) {
+        return new Gmail.Builder(transport(), jsonFactory(), withTimeouts(credential))
+                .setApplicationName(APPLICATION_NAME)
+                .setGoogleClientRequestInitializer(GZIP_RESPONSES)
+                .build();
+    }
+    
+    /**
+     * The credential's setup followed by the transport's timeouts
+     */
+    private static HttpRequestInitializer withTimeouts(GoogleAccountCredential credential) {
+        return request -> {
+            credential.initialize(request);
+            request.setConnectTimeout(OkHttpTransport.CONNECT_TIMEOUT_MILLIS);
+            request.setReadTimeout(OkHttpTransport.READ_TIMEOUT_MILLIS);
+        };
+    }
+    
+    static synchronized HttpTransport transport() {
+        if (transport == null) {
+            transport = new OkHttpTransport();
+        }
+        return transport;
+    }
+    
+    private static JsonFactory jsonFactory() {
+        return GsonFactory.getDefaultInstance();
+    }
+}
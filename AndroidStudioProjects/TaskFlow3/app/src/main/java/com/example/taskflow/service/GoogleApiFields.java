@@ -0,0 +1,30 @@
+package com.example.taskflow.service;
+
+/**
+ * Partial-response field masks for Google API calls.
+ *
+ * Every list, get and mutation names the fields it actually reads, so responses carry
+ * a handful of fields per item instead of the full resource. When a caller starts
+ * reading another field, add it to the mask here.
+ */
+public final class GoogleApiFields {
+    // Fields of a Google task that GoogleTaskParser and the sync read
+    public static final String TASK = "id,title,notes,due,completed,updated,deleted,parent";
+    
+    // One page of tasks().list()
+    public static final String TASK_PAGE = "items(" + TASK + "),nextPageToken";
+    
+    // Finding tasks by the local ID in their notes footer
+    public static final String TASK_NOTES_PAGE = "items(id,notes),nextPageToken";
+    
+    // Response to an insert or patch when only the ID is needed
+    public static final String ID = "id";
+    
+    public static final String TASK_LIST = "id,title";
+    public static final String TASK_LIST_PAGE = "items(" + TASK_LIST + "),nextPageToken";
+    
+    public static final String DRIVE_FILE_PAGE = "files(id,name)";
+    
+    private GoogleApiFields() {
+    }
+}
@@ -0,0 +1,259 @@
+package com.example.taskflow.service;
+
+import android.util.Log;
+
+import com.example.taskflow.util.VersionClock;
+import com.google.api.client.googleapis.json.GoogleJsonError;
+import com.google.api.client.googleapis.json.GoogleJsonResponseException;
+import com.google.api.client.googleapis.services.AbstractGoogleClientRequest;
+import com.google.api.client.http.HttpResponseException;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Runs Google API requests with rate limiting and retries, shared by all services.
+ *
+ * Each account gets a token bucket, so a sync burst is spread out instead of hitting the
+ * per-user quota all at once. Failures Google asks clients to retry (429, 403 with a
+ * rate limit reason, and 5xx) are retried with jittered exponential backoff, honoring
+ * Retry-After when the server sends one. A 5xx may arrive after the write was committed,
+ * so for inserts only rate limit responses, which guarantee nothing was written, are
+ * retried. A rate limit response also pauses the account's bucket, so other threads
+ * syncing the same account slow down too.
+ */
+public final class GoogleRequestExecutor {
+    private static final String TAG = "GoogleRequestExecutor";
+    private static GoogleRequestExecutor instance;
+    
+    static final int MAX_ATTEMPTS = 5;
+    private static final long BASE_DELAY_MS = 500;
+    private static final long MAX_DELAY_MS = 30 * 1000;
+    
+    // Sustained rate and burst allowed per account; well under the Tasks API per-user limit
+    private static final double REQUESTS_PER_SECOND = 10;
+    private static final int BURST = 20;
+    
+    private final Map<String, TokenBucket> buckets = new HashMap<>();
+    
+    /**
+     * A request to run; lets callers wrap calls that aren't a single client request
+     */
+    public interface Call<T> {
+        T execute() throws IOException;
+    }
+    
+    private GoogleRequestExecutor() {
+    }
+    
+    public static synchronized GoogleRequestExecutor getInstance() {
+        if (instance == null) {
+            instance = new GoogleRequestExecutor();
+        }
+        return instance;
+    }
+    
+    public <T> T execute(String accountName, AbstractGoogleClientRequest<T> request) throws IOException {
+        T result = execute(accountName, request::execute, isIdempotent(request.getRequestMethod()));
+        // Keeps locally stamped versions from running ahead of Google's clock
+        if (request.getLastResponseHeaders() != null) {
+            VersionClock.observeServerDate(request.getLastResponseHeaders().getDate());
+        }
+        return result;
+    }
+    
+    /**
+     * Run a call for an account, waiting for the rate limiter and retrying transient
+     * failures. Blocks, so must be called off the main thread.
+     *
+     * @param idempotent whether sending the call twice has the same effect as sending it once;
+     *                   if not, server errors aren't retried
+     * @throws IOException the last failure once retries are used up, or the first one that isn't retryable
+     */
+    public <T> T execute(String accountName, Call<T> call, boolean idempotent) throws IOException {
+        TokenBucket bucket = bucketFor(accountName);
+        for (int attempt = 1; ; attempt++) {
+            sleep(bucket.reserve(1));
+            try {
+                return call.execute();
+            } catch (IOException e) {
+                if (attempt >= MAX_ATTEMPTS || !isRetryable(e, idempotent)) {
+                    throw e;
+                }
+                long delay = retryDelayMillis(e, attempt);
+                if (isRateLimited(e)) {
+                    bucket.pause(delay);
+                }
+                Log.w(TAG, "Attempt " + attempt + " failed (" + describe(e) + "), retrying in " + delay + " ms");
+                sleep(delay);
+            }
+        }
+    }
+    
+    /**
+     * Take several tokens at once, e.g. for a batch request that counts as one call per
+     * operation against the quota. Blocks until they are available.
+     */
+    public void acquire(String accountName, int permits) throws InterruptedIOException {
+        sleep(bucketFor(accountName).reserve(permits));
+    }
+    
+    /**
+     * Slow an account down after a rate limit response that didn't go through
+     * {@link #execute}, such as one operation inside a batch
+     */
+    public void onRateLimited(String accountName, long delayMillis) {
+        bucketFor(accountName).pause(delayMillis);
+    }
+    
+    /**
+     * Whether a failed request is worth trying again
+     */
+    public static boolean isRetryable(IOException e, boolean idempotent) {
+        if (e instanceof HttpResponseException) {
+            return isRetryable(((HttpResponseException) e).getStatusCode(), reasonOf(e), idempotent);
+        }
+        // The request never reached the server, so sending it again can't duplicate it
+        return e instanceof ConnectException;
+    }
+    
+    public static boolean isRetryable(int statusCode, String reason, boolean idempotent) {
+        return isRateLimited(statusCode, reason) || (idempotent && statusCode >= 500 && statusCode != 501);
+    }
+    
+    /**
+     * GET, PATCH, PUT and DELETE can be repeated safely; a repeated POST may create a second resource
+     */
+    public static boolean isIdempotent(String requestMethod) {
+        return !"POST".equals(requestMethod);
+    }
+    
+    public static boolean isRateLimited(int statusCode, String reason) {
+        return statusCode == 429
+                || (statusCode == 403 && ("rateLimitExceeded".equals(reason) || "userRateLimitExceeded".equals(reason)));
+    }
+    
+    public static boolean isNotFound(IOException e) {
+        return e instanceof HttpResponseException && ((HttpResponseException) e).getStatusCode() == 404;
+    }
+    
+    /**
+     * The first error reason in a JSON error, e.g. "rateLimitExceeded"
+     */
+    public static String reasonOf(GoogleJsonError error) {
+        if (error == null) {
+            return null;
+        }
+        List<GoogleJsonError.ErrorInfo> errors = error.getErrors();
+        return errors != null && !errors.isEmpty() ? errors.get(0).getReason() : null;
+    }
+    
+    /**
+     * Exponential backoff with jitter: attempt 1 waits 250-500 ms, attempt 2 500-1000 ms,
+     * and so on up to {@link #MAX_DELAY_MS}, so clients that failed together don't retry together
+     */
+    public static long backoffDelayMillis(int attempt) {
+        long ceiling = Math.min(MAX_DELAY_MS, BASE_DELAY_MS << Math.min(attempt - 1, 16));
+        return ceiling / 2 + ThreadLocalRandom.current().nextLong(ceiling / 2 + 1);
+    }
+    
+    private static boolean isRateLimited(IOException e) {
+        return e instanceof HttpResponseException
+                && isRateLimited(((HttpResponseException) e).getStatusCode(), reasonOf(e));
+    }
+    
+    private static String reasonOf(IOException e) {
+        return e instanceof GoogleJsonResponseException
+                ? reasonOf(((GoogleJsonResponseException) e).getDetails())
+                : null;
+    }
+    
+    private static long retryDelayMillis(IOException e, int attempt) {
+        if (e instanceof HttpResponseException) {
+            String retryAfter = ((HttpResponseException) e).getHeaders().getFirstHeaderStringValue("Retry-After");
+            if (retryAfter != null) {
+                try {
+                    return Math.min(MAX_DELAY_MS, Long.parseLong(retryAfter.trim()) * 1000);
+                } catch (NumberFormatException ignored) {
+                    // An HTTP date; fall back to our own backoff
+                }
+            }
+        }
+        return backoffDelayMillis(attempt);
+    }
+    
+    private static String describe(IOException e) {
+        if (e instanceof HttpResponseException) {
+            String reason = reasonOf(e);
+            return ((HttpResponseException) e).getStatusCode() + (reason != null ? " " + reason : "");
+        }
+        return e.getClass().getSimpleName();
+    }
+    
+    private synchronized TokenBucket bucketFor(String accountName) {
+        String key = accountName != null ? accountName : "";
+        TokenBucket bucket = buckets.get(key);
+        if (bucket == null) {
+            bucket = new TokenBucket(REQUESTS_PER_SECOND, BURST);
+            buckets.put(key, bucket);
+        }
+        return bucket;
+    }
+    
+    private static void sleep(long millis) throws InterruptedIOException {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to send a request");
+        }
+    }
+    
+    /**
+     * Tokens refill continuously up to the burst size. Taking more than are available
+     * puts the bucket in debt, and the caller waits until the debt is paid off, so a
+     * large batch is charged in full without a separate queue.
+     */
+    private static class TokenBucket {
+        private final double tokensPerMilli;
+        private final double capacity;
+        private double tokens;
+        private long lastRefill;
+        private long pausedUntil;
+        
+        TokenBucket(double tokensPerSecond, int capacity) {
+            this.tokensPerMilli = tokensPerSecond / 1000;
+            this.capacity = capacity;
+            this.tokens = capacity;
+            this.lastRefill = System.currentTimeMillis();
+        }
+        
+        /**
+         * Take tokens and return how long the caller must wait before using them
+         */
+        synchronized long reserve(int permits) {
+            long now = System.currentTimeMillis();
+            tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerMilli);
+            lastRefill = now;
+            tokens -= permits;
+            
+            long wait = Math.max(0, pausedUntil - now);
+            if (tokens < 0) {
+                wait = Math.max(wait, (long) Math.ceil(-tokens / tokensPerMilli));
+            }
+            return wait;
+        }
+        
+        synchronized void pause(long millis) {
+            pausedUntil = Math.max(pausedUntil, System.currentTimeMillis() + millis);
+        }
+    }
+}
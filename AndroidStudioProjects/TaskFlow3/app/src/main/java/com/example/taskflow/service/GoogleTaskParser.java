@@ -0,0 +1,176 @@
+package com.example.taskflow.service;
+
+import com.example.taskflow.db.TaskIdentityMapper;
+import com.example.taskflow.model.Task;
+import com.example.taskflow.util.TimeOfDay;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Date;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Converts Google Tasks API tasks into local tasks.
+ *
+ * Tasks written by this app carry a {@link TaskNotesMetadata} footer that is read without
+ * regexes. Older tasks still have their times in the title and notes; for those the
+ * patterns are compiled once, titles without a "(" and notes without "Time: " skip them,
+ * and end times use minute-of-day arithmetic instead of Calendar.
+ *
+ * Everything it needs is immutable, so a single instance is shared by all threads.
+ */
+public class GoogleTaskParser {
+    private static GoogleTaskParser instance;
+    
+    // "Task Title (10:00 AM - 11:00 AM)"
+    private static final Pattern FULL_TIME_PATTERN =
+            Pattern.compile("(.*) \\((\\d{1,2}:\\d{2} [AP]M) - (\\d{1,2}:\\d{2} [AP]M)\\)");
+    // "Task Title (10:00 AM)" - just start time
+    private static final Pattern SINGLE_TIME_PATTERN =
+            Pattern.compile("(.*) \\((\\d{1,2}:\\d{2} [AP]M)\\)");
+    private static final Pattern START_TIME_PATTERN = Pattern.compile("Start Time: (\\d{1,2}:\\d{2} [AP]M)");
+    private static final Pattern END_TIME_PATTERN = Pattern.compile("End Time: (\\d{1,2}:\\d{2} [AP]M)");
+    
+    // Accepts due dates with and without fractional seconds, e.g. 2023-07-15T10:00:00.000Z
+    private static final DateTimeFormatter DUE_FORMAT = DateTimeFormatter.ISO_INSTANT;
+    
+    // Tasks without an explicit end time last an hour
+    private static final int DEFAULT_DURATION_MINUTES = 60;
+    
+    private GoogleTaskParser() {
+    }
+    
+    public static synchronized GoogleTaskParser getInstance() {
+        if (instance == null) {
+            instance = new GoogleTaskParser();
+        }
+        return instance;
+    }
+    
+    /**
+     * Convert a Google task, reading times in the device's current time zone
+     */
+    public Task parse(com.google.api.services.tasks.model.Task googleTask) {
+        return parse(googleTask, ZoneId.systemDefault());
+    }
+    
+    public Task parse(com.google.api.services.tasks.model.Task googleTask, ZoneId zone) {
+        Task localTask = new Task();
+        
+        // The same Google task always converts to the same ID
+        localTask.setId(TaskIdentityMapper.localIdFor(googleTask.getId()));
+        localTask.setGoogleTaskId(googleTask.getId());
+        
+        String title = googleTask.getTitle() != null ? googleTask.getTitle() : "";
+        String notes = googleTask.getNotes();
+        
+        String startTime = "";
+        String endTime = "";
+        
+        TaskNotesMetadata metadata = TaskNotesMetadata.parse(notes);
+        if (metadata != null) {
+            // Written by this app: everything we need is in the footer
+            if (metadata.getLocalId() != null) {
+                localTask.setId(metadata.getLocalId());
+            }
+            startTime = metadata.getStartTime();
+            endTime = metadata.getEndTime();
+            localTask.setTitle(title);
+            localTask.setDescription(metadata.description(notes));
+            localTask.setCategory(metadata.getCategory());
+            localTask.setDriveFileId(metadata.getAttachmentRef());
+        } else {
+            // Older tasks carry their times in the title and in "Start Time:" lines
+            String extractedTitle = title;
+            
+            // Titles we decorated always contain " (", most others don't
+            if (title.indexOf('(') >= 0) {
+                Matcher fullTimeMatcher = FULL_TIME_PATTERN.matcher(title);
+                if (fullTimeMatcher.find()) {
+                    extractedTitle = fullTimeMatcher.group(1);
+                    startTime = fullTimeMatcher.group(2);
+                    endTime = fullTimeMatcher.group(3);
+                } else {
+                    Matcher singleTimeMatcher = SINGLE_TIME_PATTERN.matcher(title);
+                    if (singleTimeMatcher.find()) {
+                        extractedTitle = singleTimeMatcher.group(1);
+                        startTime = singleTimeMatcher.group(2);
+                    }
+                }
+            }
+            localTask.setTitle(extractedTitle);
+            
+            if (notes != null) {
+                if (notes.contains("Time: ")) {
+                    if (startTime.isEmpty()) {
+                        Matcher startTimeMatcher = START_TIME_PATTERN.matcher(notes);
+                        if (startTimeMatcher.find()) {
+                            startTime = startTimeMatcher.group(1);
+                        }
+                    }
+                    if (endTime.isEmpty()) {
+                        Matcher endTimeMatcher = END_TIME_PATTERN.matcher(notes);
+                        if (endTimeMatcher.find()) {
+                            endTime = endTimeMatcher.group(1);
+                        }
+                    }
+                }
+                
+                // Skip the time information at the beginning of the notes
+                int descriptionStart = notes.indexOf("\n\n");
+                if (descriptionStart != -1 && descriptionStart + 2 < notes.length()) {
+                    localTask.setDescription(notes.substring(descriptionStart + 2));
+                } else {
+                    localTask.setDescription(notes);
+                }
+            } else {
+                localTask.setDescription("");
+            }
+        }
+        
+        Instant due = parseDue(googleTask.getDue());
+        if (due != null) {
+            localTask.setDate(new Date(due.toEpochMilli()));
+            
+            // With no footer and no time in the title or notes, the due time is the start time
+            if (metadata == null && startTime.isEmpty() && endTime.isEmpty()) {
+                startTime = TimeOfDay.format(minuteOfDay(due, zone));
+            }
+            if (!startTime.isEmpty() && endTime.isEmpty()) {
+                String defaultEnd = TimeOfDay.plusMinutes(startTime, DEFAULT_DURATION_MINUTES);
+                if (defaultEnd != null) {
+                    endTime = defaultEnd;
+                }
+            }
+        } else {
+            localTask.setDate(new Date());  // Default to current date
+        }
+        
+        localTask.setStartTime(startTime);
+        localTask.setEndTime(endTime);
+        localTask.setStatus(googleTask.getCompleted() != null ? "COMPLETED" : "PENDING");
+        return localTask;
+    }
+    
+    /**
+     * Parse an RFC 3339 due timestamp, or null if it is missing or malformed
+     */
+    static Instant parseDue(String due) {
+        if (due == null) {
+            return null;
+        }
+        try {
+            return DUE_FORMAT.parse(due, Instant::from);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+    
+    private static int minuteOfDay(Instant instant, ZoneId zone) {
+        long localSeconds = instant.getEpochSecond() + zone.getRules().getOffset(instant).getTotalSeconds();
+        return (int) (Math.floorMod(localSeconds, 24L * 60 * 60) / 60);
+    }
+}
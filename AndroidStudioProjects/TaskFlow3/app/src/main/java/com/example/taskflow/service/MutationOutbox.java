@@ -0,0 +1,519 @@
+package com.example.taskflow.service;
+
+import android.content.Context;
+import android.net.Uri;
+import android.util.Log;
+
+import com.example.taskflow.db.FirebaseTaskRepository;
+import com.example.taskflow.db.PendingOperationDao;
+import com.example.taskflow.db.TaskDao;
+import com.example.taskflow.db.TaskDatabase;
+import com.example.taskflow.model.PendingOperation;
+import com.example.taskflow.model.Task;
+import com.example.taskflow.util.ContentHash;
+import com.google.api.client.http.HttpResponseException;
+import com.google.api.client.json.gson.GsonFactory;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Durable queue of task changes waiting to reach Google Tasks and Drive.
+ *
+ * Enqueueing only writes to Room, so the caller's change is committed locally right away
+ * and survives the app being killed. {@link OutboxWorker} replays the queue once the
+ * device is online: operations run in the order they were queued, and when one of a
+ * task's operations can't be sent yet, the task's later operations wait for it while
+ * other tasks carry on.
+ *
+ * Replaying an operation twice is harmless: a create first looks in Google for a task
+ * carrying its local ID in the notes footer, in case an earlier attempt got through without
+ * the app recording it; an upload checks for a Drive file ID; patches set absolute values
+ * and a delete of a task that is already gone counts as done.
+ *
+ * Operations are keyed by type, task and a hash of their payload, so queueing the same
+ * change twice keeps one copy.
+ */
+public class MutationOutbox {
+    private static final String TAG = "MutationOutbox";
+    private static MutationOutbox instance;
+    
+    // Give up on an operation after this many failed replays
+    private static final int MAX_ATTEMPTS = 10;
+    // Operations queued while draining, e.g. the patch after an upload, are picked up by another pass
+    private static final int MAX_PASSES = 5;
+    private static final String FILES_DIR = "outbox";
+    
+    private final Context context;
+    private final TaskDatabase database;
+    private final TaskDao taskDao;
+    private final PendingOperationDao operationDao;
+    // Local commits happen here, off the caller's thread
+    private final ExecutorService writer = Executors.newSingleThreadExecutor();
+    // Held while an operation is replayed, so a delete can't cancel a create halfway through
+    private final Object replayLock = new Object();
+    // Only one drain at a time
+    private final Object drainLock = new Object();
+    
+    private MutationOutbox(Context context) {
+        this.context = context.getApplicationContext();
+        this.database = TaskDatabase.getInstance(context);
+        this.taskDao = database.taskDao();
+        this.operationDao = database.pendingOperationDao();
+    }
+    
+    public static synchronized MutationOutbox getInstance(Context context) {
+        if (instance == null) {
+            instance = new MutationOutbox(context);
+        }
+        return instance;
+    }
+    
+    /**
+     * Save a new task in Room and queue its creation in Google Tasks
+     */
+    public void enqueueCreate(String userEmail, Task task) {
+        enqueueCreate(userEmail, task, null);
+    }
+    
+    /**
+     * Same as {@link #enqueueCreate(String, Task)}, running {@code onCommitted} on a background
+     * thread once the task is in Room
+     */
+    public void enqueueCreate(String userEmail, Task task, Runnable onCommitted) {
+        writer.execute(() -> {
+            database.runInTransaction(() -> {
+                taskDao.insertOrUpdate(task);
+                operationDao.insert(newOperation(PendingOperation.CREATE, userEmail, task, null));
+            });
+            OutboxWorker.schedule(context);
+            if (onCommitted != null) {
+                onCommitted.run();
+            }
+        });
+    }
+    
+    /**
+     * Queue a patch, e.g. from {@link TaskPatchBuilder}. Fields cleared in the patch stay cleared.
+     */
+    public void enqueuePatch(String userEmail, Task task, com.google.api.services.tasks.model.Task patch) {
+        String payload;
+        try {
+            payload = GsonFactory.getDefaultInstance().toString(patch);
+        } catch (IOException e) {
+            Log.e(TAG, "Could not serialize patch for task " + task.getId(), e);
+            return;
+        }
+        writer.execute(() -> {
+            PendingOperation operation = newOperation(PendingOperation.PATCH, userEmail, task, payload);
+            operation.setPayload(payload);
+            // A repeat of a patch still queued moves to the back, so the latest value is applied last
+            operationDao.insertReplacing(operation);
+            OutboxWorker.schedule(context);
+        });
+    }
+    
+    /**
+     * Delete a task from Room and queue its deletion in Google Tasks.
+     * A task whose creation is still queued is simply never sent.
+     */
+    public void enqueueDelete(String userEmail, Task task) {
+        writer.execute(() -> {
+            boolean queued;
+            synchronized (replayLock) {
+                queued = database.runInTransaction(() -> {
+                    List<PendingOperation> pending = operationDao.getForTask(task.getId());
+                    String googleTaskId = googleTaskIdOf(task);
+                    taskDao.deleteTaskById(task.getId());
+                    if (googleTaskId == null) {
+                        // Never reached Google, so dropping its queued operations is enough
+                        operationDao.deleteForTask(task.getId());
+                        deleteFiles(pending);
+                        return false;
+                    }
+                    PendingOperation operation = newOperation(PendingOperation.DELETE, userEmail, task, null);
+                    operation.setGoogleTaskId(googleTaskId);
+                    operationDao.insert(operation);
+                    return true;
+                });
+            }
+            if (queued) {
+                OutboxWorker.schedule(context);
+            }
+        });
+    }
+    
+    /**
+     * Queue an attachment upload. The file is copied into app storage first, since
+     * permission to read the picked Uri may be gone by the time the upload runs.
+     */
+    public void enqueueUpload(String userEmail, Task task, Uri uri, String fileName, String mimeType) {
+        writer.execute(() -> {
+            PendingOperation operation = newOperation(PendingOperation.UPLOAD, userEmail, task, uri + "|" + fileName);
+            File copy = new File(filesDir(), operation.getIdempotencyKey());
+            try (InputStream in = context.getContentResolver().openInputStream(uri);
+                 OutputStream out = new FileOutputStream(copy)) {
+                if (in == null) {
+                    throw new IOException("Could not open " + uri);
+                }
+                byte[] buffer = new byte[8192];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                }
+            } catch (IOException e) {
+                Log.e(TAG, "Could not queue attachment for task " + task.getId(), e);
+                copy.delete();
+                return;
+            }
+            operation.setPayload(copy.getPath());
+            operation.setFileName(fileName);
+            operation.setMimeType(mimeType);
+            operationDao.insert(operation);
+            OutboxWorker.schedule(context);
+        });
+    }
+    
+    /**
+     * Replay queued operations. Blocks, so must be called off the main thread.
+     * Runs of patches and deletes for different tasks of one account are sent together in
+     * batch requests; everything else is replayed one operation at a time.
+     *
+     * @return true if the queue is empty, false if some operations have to be tried again later
+     */
+    public boolean drain() {
+        synchronized (drainLock) {
+            // Tasks with an operation that failed this time; their later operations wait
+            Set<String> blocked = new HashSet<>();
+            
+            for (int pass = 0; pass < MAX_PASSES; pass++) {
+                boolean progressed = false;
+                List<PendingOperation> queue = operationDao.getAll();
+                int next = 0;
+                while (next < queue.size()) {
+                    List<PendingOperation> run = batchableRun(queue, next, blocked);
+                    if (run.size() > 1) {
+                        progressed |= replayBatch(run, blocked);
+                        next += run.size();
+                        continue;
+                    }
+                    
+                    PendingOperation queued = queue.get(next++);
+                    if (blocked.contains(blockKey(queued))) {
+                        continue;
+                    }
+                    synchronized (replayLock) {
+                        PendingOperation operation = operationDao.get(queued.getSequence());
+                        if (operation == null) {
+                            // Cancelled since the list was read
+                            continue;
+                        }
+                        try {
+                            progressed |= settle(operation, replay(operation), null, blocked);
+                        } catch (IOException e) {
+                            progressed |= settle(operation, false, e, blocked);
+                        }
+                    }
+                }
+                if (!progressed) {
+                    break;
+                }
+            }
+            return blocked.isEmpty() && operationDao.count() == 0;
+        }
+    }
+    
+    /**
+     * The patches and deletes starting at {@code start} that can go out in one batch:
+     * consecutive, for the same account, at most one per task and none for a blocked task
+     */
+    private static List<PendingOperation> batchableRun(List<PendingOperation> queue, int start, Set<String> blocked) {
+        List<PendingOperation> run = new ArrayList<>();
+        Set<String> taskIds = new HashSet<>();
+        for (int i = start; i < queue.size() && run.size() < TasksBatcher.MAX_BATCH_SIZE; i++) {
+            PendingOperation operation = queue.get(i);
+            boolean batchable = PendingOperation.PATCH.equals(operation.getType())
+                    || PendingOperation.DELETE.equals(operation.getType());
+            if (!batchable || operation.getTaskId() == null || blocked.contains(operation.getTaskId())
+                    || !taskIds.add(operation.getTaskId())
+                    || !Objects.equals(operation.getUserEmail(), queue.get(start).getUserEmail())) {
+                break;
+            }
+            run.add(operation);
+        }
+        return run;
+    }
+    
+    /**
+     * Replay a run from {@link #batchableRun} with one wait for all of it
+     *
+     * @return true if any operation is done with
+     */
+    private boolean replayBatch(List<PendingOperation> run, Set<String> blocked) {
+        synchronized (replayLock) {
+            List<PendingOperation> operations = new ArrayList<>();
+            List<TaskService.BatchedChange> changes = new ArrayList<>();
+            boolean progressed = false;
+            for (PendingOperation queued : run) {
+                PendingOperation operation = operationDao.get(queued.getSequence());
+                if (operation == null) {
+                    // Cancelled since the list was read
+                    continue;
+                }
+                String googleTaskId = googleTaskIdOf(operation);
+                if (googleTaskId == null) {
+                    progressed |= settle(operation, false, null, blocked);
+                    continue;
+                }
+                TaskService.BatchedChange change;
+                if (PendingOperation.PATCH.equals(operation.getType())) {
+                    try {
+                        change = TaskService.BatchedChange.patch(googleTaskId, parsePatch(operation));
+                    } catch (IOException e) {
+                        progressed |= settle(operation, false, e, blocked);
+                        continue;
+                    }
+                } else {
+                    change = TaskService.BatchedChange.delete(googleTaskId);
+                }
+                operations.add(operation);
+                changes.add(change);
+            }
+            if (changes.isEmpty()) {
+                return progressed;
+            }
+            
+            TaskService.getInstance(context, run.get(0).getUserEmail()).sendBatchBlocking(changes);
+            for (int i = 0; i < operations.size(); i++) {
+                PendingOperation operation = operations.get(i);
+                TaskService.BatchedChange change = changes.get(i);
+                IOException error = change.getError();
+                if (error != null && PendingOperation.DELETE.equals(operation.getType()) && isGone(error)) {
+                    progressed |= settle(operation, true, null, blocked);
+                } else {
+                    progressed |= settle(operation, change.isApplied(), error, blocked);
+                }
+            }
+            return progressed;
+        }
+    }
+    
+    /**
+     * Record the outcome of replaying an operation: done, to be retried, or given up on.
+     * Must be called with the replay lock held.
+     *
+     * @param applied false if there was nothing to apply the operation to
+     * @param error   why it couldn't be sent, or null if it was
+     * @return true if the operation is done with
+     */
+    private boolean settle(PendingOperation operation, boolean applied, IOException error, Set<String> blocked) {
+        if (error == null) {
+            if (!applied) {
+                Log.w(TAG, "Dropped " + describe(operation) + ", nothing to apply it to");
+            }
+            finish(operation);
+            return true;
+        }
+        if (isWorthRetrying(error) && operation.getAttempts() + 1 < MAX_ATTEMPTS) {
+            operationDao.recordFailure(operation.getSequence(), String.valueOf(error.getMessage()));
+            blocked.add(blockKey(operation));
+            Log.w(TAG, "Will retry " + describe(operation) + ": " + error.getMessage());
+            return false;
+        }
+        Log.e(TAG, "Giving up on " + describe(operation), error);
+        finish(operation);
+        return true;
+    }
+    
+    private static String blockKey(PendingOperation operation) {
+        return operation.getTaskId() != null ? operation.getTaskId() : operation.getIdempotencyKey();
+    }
+    
+    /**
+     * Apply one operation remotely
+     *
+     * @return false if there was nothing to apply it to, e.g. a task deleted before it was ever sent
+     */
+    private boolean replay(PendingOperation operation) throws IOException {
+        TaskService taskService = TaskService.getInstance(context, operation.getUserEmail());
+        switch (operation.getType()) {
+            case PendingOperation.CREATE: {
+                Task task = taskDao.getTaskById(operation.getTaskId());
+                if (task == null) {
+                    return false;
+                }
+                String googleTaskId = task.getGoogleTaskId();
+                if (googleTaskId == null) {
+                    // An earlier attempt may have been inserted without us recording the ID
+                    googleTaskId = taskService.findCreatedTaskBlocking(task.getId(), operation.getCreatedAt());
+                    if (googleTaskId != null) {
+                        Log.d(TAG, "Queued task " + task.getId() + " was already created as " + googleTaskId);
+                    }
+                }
+                if (googleTaskId == null) {
+                    googleTaskId = taskService.createTaskBlocking(task);
+                    Log.d(TAG, "Created queued task " + task.getId() + " as " + googleTaskId);
+                }
+                onCreated(operation, googleTaskId);
+                return true;
+            }
+            case PendingOperation.PATCH: {
+                String googleTaskId = googleTaskIdOf(operation);
+                if (googleTaskId == null) {
+                    return false;
+                }
+                return taskService.patchTaskBlocking(googleTaskId, parsePatch(operation));
+            }
+            case PendingOperation.DELETE: {
+                String googleTaskId = googleTaskIdOf(operation);
+                if (googleTaskId == null) {
+                    return false;
+                }
+                try {
+                    return taskService.deleteTaskBlocking(googleTaskId);
+                } catch (HttpResponseException e) {
+                    if (isGone(e)) {
+                        return true;
+                    }
+                    throw e;
+                }
+            }
+            case PendingOperation.UPLOAD:
+                return replayUpload(operation);
+            default:
+                return false;
+        }
+    }
+    
+    private boolean replayUpload(PendingOperation operation) throws IOException {
+        Task task = taskDao.getTaskById(operation.getTaskId());
+        if (task != null && task.getDriveFileId() != null) {
+            // Uploaded by an earlier attempt
+            return true;
+        }
+        File file = new File(operation.getPayload());
+        if (!file.exists()) {
+            return false;
+        }
+        
+        DriveService driveService = new DriveService(context, operation.getUserEmail());
+        String driveFileId = driveService.uploadFileBlocking(file, operation.getTaskId(), operation.getFileName(),
+                operation.getMimeType());
+        Log.d(TAG, "Uploaded queued attachment for task " + operation.getTaskId());
+        
+        FirebaseTaskRepository.getInstance().updateTaskFields(operation.getUserEmail(), operation.getTaskId(),
+                Collections.singletonMap("driveFileId", driveFileId), null);
+        if (task != null) {
+            task.setDriveFileId(driveFileId);
+            taskDao.updateTask(task);
+            // The notes footer carries the attachment reference to Google Tasks
+            com.google.api.services.tasks.model.Task notesPatch = new com.google.api.services.tasks.model.Task();
+            notesPatch.setNotes(TaskNotesMetadata.buildNotes(task));
+            enqueuePatch(operation.getUserEmail(), task, notesPatch);
+        }
+        return true;
+    }
+    
+    private static com.google.api.services.tasks.model.Task parsePatch(PendingOperation operation) throws IOException {
+        return GsonFactory.getDefaultInstance()
+                .fromString(operation.getPayload(), com.google.api.services.tasks.model.Task.class);
+    }
+    
+    /**
+     * A delete answered with 410: the task is already deleted
+     */
+    private static boolean isGone(IOException e) {
+        return e instanceof HttpResponseException && ((HttpResponseException) e).getStatusCode() == 410;
+    }
+    
+    private void onCreated(PendingOperation operation, String googleTaskId) {
+        database.runInTransaction(() -> {
+            Task task = taskDao.getTaskById(operation.getTaskId());
+            if (task != null && task.getGoogleTaskId() == null) {
+                task.setGoogleTaskId(googleTaskId);
+                taskDao.updateTask(task);
+            }
+            // Later operations of this task can now address it
+            operationDao.setGoogleTaskId(operation.getTaskId(), googleTaskId);
+        });
+        FirebaseTaskRepository.getInstance().updateTaskFields(operation.getUserEmail(), operation.getTaskId(),
+                Collections.singletonMap("googleTaskId", googleTaskId), null);
+    }
+    
+    private void finish(PendingOperation operation) {
+        operationDao.delete(operation.getSequence());
+        deleteFiles(Collections.singletonList(operation));
+    }
+    
+    private String googleTaskIdOf(PendingOperation operation) {
+        if (operation.getGoogleTaskId() != null) {
+            return operation.getGoogleTaskId();
+        }
+        Task task = taskDao.getTaskById(operation.getTaskId());
+        return task != null ? task.getGoogleTaskId() : null;
+    }
+    
+    private String googleTaskIdOf(Task task) {
+        if (task.getGoogleTaskId() != null) {
+            return task.getGoogleTaskId();
+        }
+        // Created by the outbox after the caller loaded this task
+        Task stored = taskDao.getTaskById(task.getId());
+        return stored != null ? stored.getGoogleTaskId() : null;
+    }
+    
+    /**
+     * Network trouble, rate limits and server errors pass; anything else the server
+     * rejected will be rejected again
+     */
+    private static boolean isWorthRetrying(IOException e) {
+        // Unlike an immediate retry, a replay checks what already reached Google before resending
+        return !(e instanceof HttpResponseException) || GoogleRequestExecutor.isRetryable(e, true);
+    }
+    
+    private PendingOperation newOperation(String type, String userEmail, Task task, String payload) {
+        PendingOperation operation = new PendingOperation(idempotencyKey(type, task.getId(), payload), type);
+        operation.setUserEmail(userEmail);
+        operation.setTaskId(task.getId());
+        operation.setGoogleTaskId(task.getGoogleTaskId());
+        return operation;
+    }
+    
+    /**
+     * Same type, task and payload give the same key, e.g. "PATCH-3f2a...-9c1e0b7d2a4f6e18"
+     */
+    static String idempotencyKey(String type, String taskId, String payload) {
+        return type + "-" + taskId + "-" + Long.toHexString(new ContentHash().add(payload).get());
+    }
+    
+    private void deleteFiles(List<PendingOperation> operations) {
+        for (PendingOperation operation : operations) {
+            if (PendingOperation.UPLOAD.equals(operation.getType()) && operation.getPayload() != null) {
+                new File(operation.getPayload()).delete();
+            }
+        }
+    }
+    
+    private File filesDir() {
+        File dir = new File(context.getFilesDir(), FILES_DIR);
+        if (!dir.exists() && !dir.mkdirs()) {
+            Log.w(TAG, "Could not create " + dir);
+        }
+        return dir;
+    }
+    
+    private static String describe(PendingOperation operation) {
+        return operation.getType() + " #" + operation.getSequence() + " for task " + operation.getTaskId();
+    }
+}
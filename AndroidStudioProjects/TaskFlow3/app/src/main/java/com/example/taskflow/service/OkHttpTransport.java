@@ -0,0 +1,223 @@
+package com.example.taskflow.service;
+
+import com.google.api.client.http.HttpTransport;
+import com.google.api.client.http.LowLevelHttpRequest;
+import com.google.api.client.http.LowLevelHttpResponse;
+import com.google.api.client.util.StreamingContent;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.ConnectionPool;
+import okhttp3.Headers;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.BufferedSink;
+
+/**
+ * Google API client transport on top of OkHttp.
+ *
+ * NetHttpTransport goes through HttpURLConnection, and every instance manages its own
+ * connections. This transport uses one OkHttpClient instead: connections to
+ * googleapis.com are pooled and kept alive between calls, and requests are multiplexed
+ * over HTTP/2 where the server offers it. Successive calls therefore reuse a warm TLS
+ * connection instead of doing a new handshake.
+ */
+public class OkHttpTransport extends HttpTransport {
+    // googleapis.com is the only host we talk to, so a few idle connections are plenty
+    private static final int MAX_IDLE_CONNECTIONS = 5;
+    private static final long KEEP_ALIVE_MINUTES = 5;
+    
+    // The API client sets its own timeouts on every request, so GoogleApiClientFactory
+    // passes these along to keep them from being replaced by the library's 20 s defaults
+    static final int CONNECT_TIMEOUT_MILLIS = 15 * 1000;
+    static final int READ_TIMEOUT_MILLIS = 30 * 1000;
+    private static final int WRITE_TIMEOUT_MILLIS = 30 * 1000;
+    
+    private final OkHttpClient client;
+    
+    public OkHttpTransport() {
+        this(new OkHttpClient.Builder()
+                .connectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_MINUTES, TimeUnit.MINUTES))
+                .connectTimeout(CONNECT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)
+                .readTimeout(READ_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)
+                .writeTimeout(WRITE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)
+                .build());
+    }
+    
+    public OkHttpTransport(OkHttpClient client) {
+        this.client = client;
+    }
+    
+    @Override
+    protected LowLevelHttpRequest buildRequest(String method, String url) {
+        return new OkHttpRequest(method, url);
+    }
+    
+    @Override
+    public void shutdown() {
+        client.dispatcher().executorService().shutdown();
+        client.connectionPool().evictAll();
+    }
+    
+    private class OkHttpRequest extends LowLevelHttpRequest {
+        private final Request.Builder builder;
+        private final String method;
+        private int connectTimeoutMillis = -1;
+        private int readTimeoutMillis = -1;
+        
+        OkHttpRequest(String method, String url) {
+            this.method = method;
+            this.builder = new Request.Builder().url(url);
+        }
+        
+        @Override
+        public void addHeader(String name, String value) {
+            builder.addHeader(name, value);
+        }
+        
+        @Override
+        public void setTimeout(int connectTimeout, int readTimeout) {
+            connectTimeoutMillis = connectTimeout;
+            readTimeoutMillis = readTimeout;
+        }
+        
+        @Override
+        public LowLevelHttpResponse execute() throws IOException {
+            if (getContentEncoding() != null) {
+                builder.header("Content-Encoding", getContentEncoding());
+            }
+            builder.method(method, body());
+            return new OkHttpResponse(clientForRequest().newCall(builder.build()).execute());
+        }
+        
+        private RequestBody body() {
+            StreamingContent content = getStreamingContent();
+            if (content == null) {
+                // OkHttp insists on a body for these methods, even an empty one
+                boolean needsBody = "POST".equals(method) || "PUT".equals(method) || "PATCH".equals(method);
+                return needsBody ? RequestBody.create(new byte[0], null) : null;
+            }
+            MediaType contentType = getContentType() != null ? MediaType.parse(getContentType()) : null;
+            long contentLength = getContentLength();
+            return new RequestBody() {
+                @Override
+                public MediaType contentType() {
+                    return contentType;
+                }
+                
+                @Override
+                public long contentLength() {
+                    return contentLength;
+                }
+                
+                @Override
+                public boolean isOneShot() {
+                    // Upload streams can't be replayed; the API client does its own retries
+                    return true;
+                }
+                
+                @Override
+                public void writeTo(BufferedSink sink) throws IOException {
+                    content.writeTo(sink.outputStream());
+                }
+            };
+        }
+        
+        /**
+         * The shared client, or a variant of it if a request asked for other timeouts than
+         * the ones GoogleApiClientFactory sets. Variants share the connection pool, so they
+         * still reuse connections.
+         */
+        private OkHttpClient clientForRequest() {
+            boolean defaultConnect = connectTimeoutMillis < 0 || connectTimeoutMillis == client.connectTimeoutMillis();
+            boolean defaultRead = readTimeoutMillis < 0 || readTimeoutMillis == client.readTimeoutMillis();
+            if (defaultConnect && defaultRead) {
+                return client;
+            }
+            OkHttpClient.Builder variant = client.newBuilder();
+            if (!defaultConnect) {
+                variant.connectTimeout(connectTimeoutMillis, TimeUnit.MILLISECONDS);
+            }
+            if (!defaultRead) {
+                variant.readTimeout(readTimeoutMillis, TimeUnit.MILLISECONDS);
+            }
+            return variant.build();
+        }
+    }
+    
+    private static class OkHttpResponse extends LowLevelHttpResponse {
+        private final Response response;
+        private final Headers headers;
+        
+        OkHttpResponse(Response response) {
+            this.response = response;
+            this.headers = response.headers();
+        }
+        
+        @Override
+        public InputStream getContent() {
+            ResponseBody body = response.body();
+            return body != null ? body.byteStream() : null;
+        }
+        
+        @Override
+        public String getContentEncoding() {
+            return response.header("Content-Encoding");
+        }
+        
+        @Override
+        public long getContentLength() {
+            ResponseBody body = response.body();
+            return body != null ? body.contentLength() : -1;
+        }
+        
+        @Override
+        public String getContentType() {
+            return response.header("Content-Type");
+        }
+        
+        @Override
+        public String getStatusLine() {
+            // HTTP/2 has no reason phrase, so the message may be empty
+            return response.protocol().toString().toUpperCase(Locale.US) + " " + response.code() + " " + response.message();
+        }
+        
+        @Override
+        public int getStatusCode() {
+            return response.code();
+        }
+        
+        @Override
+        public String getReasonPhrase() {
+            return response.message();
+        }
+        
+        @Override
+        public int getHeaderCount() {
+            return headers.size();
+        }
+        
+        @Override
+        public String getHeaderName(int index) {
+            return headers.name(index);
+        }
+        
+        @Override
+        public String getHeaderValue(int index) {
+            return headers.value(index);
+        }
+        
+        @Override
+        public void disconnect() {
+            // Returns the connection to the pool rather than closing it
+            response.close();
+        }
+    }
+}
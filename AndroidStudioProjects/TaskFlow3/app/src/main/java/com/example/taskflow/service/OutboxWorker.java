@@ -0,0 +1,54 @@
+package com.example.taskflow.service;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.BackoffPolicy;
+import androidx.work.Constraints;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drains the {@link MutationOutbox} in the background once the device has a network
+ * connection. If some operations couldn't be sent, WorkManager runs it again with
+ * exponential backoff.
+ */
+public class OutboxWorker extends Worker {
+    private static final String TAG = "OutboxWorker";
+    private static final String WORK_NAME = "outbox-replay";
+    private static final long INITIAL_BACKOFF_SECONDS = 30;
+    
+    public OutboxWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+    
+    /**
+     * Make sure a replay is scheduled. Runs right away when online, otherwise as soon as
+     * connectivity returns; a replay that is already scheduled or running is kept.
+     */
+    public static void schedule(Context context) {
+        Constraints constraints = new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.CONNECTED)
+                .build();
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(OutboxWorker.class)
+                .setConstraints(constraints)
+                .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, INITIAL_BACKOFF_SECONDS, TimeUnit.SECONDS)
+                .build();
+        WorkManager.getInstance(context).enqueueUniqueWork(WORK_NAME, ExistingWorkPolicy.KEEP, request);
+    }
+    
+    @NonNull
+    @Override
+    public Result doWork() {
+        boolean drained = MutationOutbox.getInstance(getApplicationContext()).drain();
+        Log.d(TAG, drained ? "Outbox drained" : "Outbox has operations left, retrying later");
+        return drained ? Result.success() : Result.retry();
+    }
+}
@@ -0,0 +1,365 @@
+package com.example.taskflow.service;
+
+import android.content.Context;
+import android.net.Uri;
+import android.util.Log;
+
+import com.example.taskflow.db.FirebaseTaskRepository;
+import com.example.taskflow.db.PendingOperationDao;
+import com.example.taskflow.db.TaskDao;
+import com.example.taskflow.db.TaskDatabase;
+import com.example.taskflow.db.TaskMergeEngine;
+import com.example.taskflow.db.TimeConflictIndex;
+import com.example.taskflow.model.Task;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Keeps Room, Google Tasks and Firestore in step.
+ *
+ * Screens make their changes here instead of writing to each store in turn. A change is
+ * committed to Room together with an entry in the operation log ({@link MutationOutbox})
+ * and handed to both remotes at once: the outbox delivers it to Google Tasks, while
+ * Firestore's SDK keeps the write in its own persistent queue until it reaches the server.
+ *
+ * A sync pass pushes whatever is still queued, pulls the changes made elsewhere from
+ * Google and Firestore in parallel, and reconciles them field by field:
+ * <ul>
+ *   <li>a task with changes still in the outbox keeps its local values until they are sent;</li>
+ *   <li>otherwise every field carries a version, and {@link TaskMergeEngine} keeps the newer
+ *       value of each; the store holding the older one is sent the newer.</li>
+ * </ul>
+ */
+public class SyncOrchestrator {
+    private static final String TAG = "SyncOrchestrator";
+    private static SyncOrchestrator instance;
+    
+    // A pass normally takes seconds; give up on a remote that hangs rather than block the next one
+    private static final long PULL_TIMEOUT_MINUTES = 5;
+    
+    private final Context context;
+    private final TaskDatabase database;
+    private final TaskDao taskDao;
+    private final PendingOperationDao operationDao;
+    private final MutationOutbox outbox;
+    private final FirebaseTaskRepository firestore = FirebaseTaskRepository.getInstance();
+    // Local commits happen here, off the caller's thread
+    private final ExecutorService writer = Executors.newSingleThreadExecutor();
+    // Sync passes run one at a time
+    private final ExecutorService syncExecutor = Executors.newSingleThreadExecutor();
+    // Callers waiting on the pass queued or running for each account
+    private final Map<String, List<SyncCallback>> waiting = new HashMap<>();
+    
+    public interface SyncCallback {
+        void onSuccess(List<Task> tasks);
+        void onFailure(Exception e);
+    }
+    
+    private SyncOrchestrator(Context context) {
+        this.context = context.getApplicationContext();
+        this.database = TaskDatabase.getInstance(context);
+        this.taskDao = database.taskDao();
+        this.operationDao = database.pendingOperationDao();
+        this.outbox = MutationOutbox.getInstance(context);
+    }
+    
+    public static synchronized SyncOrchestrator getInstance(Context context) {
+        if (instance == null) {
+            instance = new SyncOrchestrator(context);
+        }
+        return instance;
+    }
+    
+    /**
+     * Create a task, with an optional attachment to upload to Drive.
+     *
+     * @param onCommitted runs on a background thread once the task is saved locally
+     */
+    public void createTask(String userEmail, Task task, Uri attachmentUri, String attachmentName,
+                           String attachmentMimeType, Runnable onCommitted) {
+        task.setUserEmail(userEmail);
+        boolean hasAttachment = attachmentUri != null && attachmentName != null && !attachmentName.isEmpty();
+        if (hasAttachment) {
+            task.setAttachmentUri(attachmentUri.toString());
+            task.setAttachmentName(attachmentName);
+        }
+        TaskMergeEngine.stampAll(task);
+        
+        TaskService.getInstance(context, userEmail).invalidateCache();
+        outbox.enqueueCreate(userEmail, task, () -> {
+            // Later conflict checks should see the new task's time slot
+            TimeConflictIndex.getInstance(context, userEmail).put(task);
+            if (onCommitted != null) {
+                onCommitted.run();
+            }
+        });
+        if (hasAttachment) {
+            outbox.enqueueUpload(userEmail, task, attachmentUri, attachmentName, attachmentMimeType);
+        }
+        // The Google task ID and Drive file ID are filled in by the outbox once known
+        firestore.updateTaskFields(userEmail, task.getId(), task.toMap(), null);
+    }
+    
+    /**
+     * Mark a task completed or pending everywhere
+     */
+    public void setTaskStatus(String userEmail, Task task, boolean isCompleted) {
+        String status = isCompleted ? "COMPLETED" : "PENDING";
+        task.setStatus(status);
+        task.stamp(TaskMergeEngine.STATUS);
+        long version = task.getFieldVersion(TaskMergeEngine.STATUS);
+        
+        writer.execute(() -> {
+            Task row = taskDao.getTaskById(task.getId());
+            if (row != null) {
+                row.setStatus(status);
+                row.setFieldVersion(TaskMergeEngine.STATUS, version);
+                taskDao.updateTask(row);
+            }
+        });
+        TaskService.getInstance(context, userEmail).updateTaskStatus(task, isCompleted);
+        // Only the status and its version, so edits to other fields made elsewhere survive
+        firestore.updateTaskFields(userEmail, task.getId(), TaskMergeEngine.fieldsOf(task, TaskMergeEngine.STATUS), null);
+    }
+    
+    /**
+     * Delete a task everywhere
+     */
+    public void deleteTask(String userEmail, Task task) {
+        if (task.getUserEmail() == null) {
+            task.setUserEmail(userEmail);
+        }
+        TaskService.getInstance(context, userEmail).deleteTask(task);
+        firestore.deleteTask(task, null);
+    }
+    
+    /**
+     * Run a sync pass for an account and report the tasks in Room afterwards.
+     * Callers arriving while a pass is queued or running share it.
+     */
+    public void sync(String userEmail, SyncCallback callback) {
+        synchronized (waiting) {
+            List<SyncCallback> callbacks = waiting.get(userEmail);
+            if (callbacks != null) {
+                if (callback != null) {
+                    callbacks.add(callback);
+                }
+                return;
+            }
+            callbacks = new ArrayList<>();
+            if (callback != null) {
+                callbacks.add(callback);
+            }
+            waiting.put(userEmail, callbacks);
+        }
+        
+        syncExecutor.execute(() -> {
+            List<Task> tasks = null;
+            Exception error = null;
+            try {
+                tasks = runPass(userEmail);
+            } catch (Exception e) {
+                Log.e(TAG, "Sync pass failed", e);
+                error = e;
+            }
+            
+            List<SyncCallback> callbacks;
+            synchronized (waiting) {
+                callbacks = waiting.remove(userEmail);
+            }
+            for (SyncCallback waiter : callbacks) {
+                if (tasks != null) {
+                    waiter.onSuccess(tasks);
+                } else {
+                    waiter.onFailure(error);
+                }
+            }
+        });
+    }
+    
+    private List<Task> runPass(String userEmail) throws IOException, InterruptedException {
+        // Push first, so the pull sees our own changes rather than the values they replace
+        if (!outbox.drain()) {
+            Log.d(TAG, "Some changes are still queued; their tasks keep their local values");
+        }
+        
+        Map<String, Task> before = byId(taskDao.getAllTasksForUser(userEmail));
+        SyncStateStore syncState = new SyncStateStore(context, userEmail);
+        
+        // Pull from both remotes at once
+        TaskService taskService = TaskService.getInstance(context, userEmail);
+        long pullStarted = System.currentTimeMillis();
+        CountDownLatch pulled = new CountDownLatch(2);
+        AtomicReference<Exception> googleError = new AtomicReference<>();
+        AtomicReference<List<Task>> firestoreChanges = new AtomicReference<>();
+        AtomicReference<Date> firestoreWatermark = new AtomicReference<>();
+        
+        taskService.refreshAllTasks(null, new TaskService.TasksCallback() {
+            @Override
+            public void onSuccess(List<Task> tasks) {
+                pulled.countDown();
+            }
+            
+            @Override
+            public void onFailure(Exception e) {
+                googleError.set(e);
+                pulled.countDown();
+            }
+        });
+        firestore.getTaskChangesSince(userEmail, syncState.getFirestoreWatermark(),
+                new FirebaseTaskRepository.TaskChangesCallback() {
+                    @Override
+                    public void onSuccess(List<Task> tasks, Date watermark) {
+                        firestoreChanges.set(tasks);
+                        firestoreWatermark.set(watermark);
+                        pulled.countDown();
+                    }
+                    
+                    @Override
+                    public void onFailure(Exception e) {
+                        Log.w(TAG, "Could not pull Firestore changes", e);
+                        pulled.countDown();
+                    }
+                });
+        
+        if (!pulled.await(PULL_TIMEOUT_MINUTES, TimeUnit.MINUTES)) {
+            throw new IOException("Timed out pulling changes");
+        }
+        // Getting local tasks back isn't proof that Google was reached
+        boolean googlePulled = googleError.get() == null && taskService.getLastSyncTime() >= pullStarted;
+        if (!googlePulled && firestoreChanges.get() == null) {
+            throw new IOException("Could not pull changes", googleError.get());
+        }
+        
+        // Re-read after the pull: these are the rows that must not be overwritten yet
+        Set<String> pending = new HashSet<>(operationDao.getPendingTaskIds());
+        pushGoogleChangesToFirestore(userEmail, before, byId(taskDao.getAllTasksForUser(userEmail)), pending);
+        if (firestoreChanges.get() != null) {
+            applyFirestoreChanges(userEmail, firestoreChanges.get(), pending, googlePulled);
+            if (firestoreWatermark.get() != null) {
+                syncState.setFirestoreWatermark(firestoreWatermark.get());
+            }
+        }
+        
+        return taskDao.getAllTasksForUser(userEmail);
+    }
+    
+    /**
+     * Bring Firestore in line with what the Google pull changed in Room
+     */
+    private void pushGoogleChangesToFirestore(String userEmail, Map<String, Task> before, Map<String, Task> after,
+                                              Set<String> pending) {
+        int updated = 0;
+        int deleted = 0;
+        for (Task task : after.values()) {
+            Task previous = before.get(task.getId());
+            // New rows are left alone; whichever client created the task also wrote its document
+            if (previous == null || task.getGoogleTaskId() == null || pending.contains(task.getId())) {
+                continue;
+            }
+            List<String> changed = TaskMergeEngine.changedFields(previous, task);
+            if (!changed.isEmpty()) {
+                firestore.updateTaskFields(userEmail, task.getId(), TaskMergeEngine.fieldsOf(task, changed), null);
+                updated++;
+            }
+        }
+        for (Task previous : before.values()) {
+            // A synced row that vanished was deleted in Google (or by this device, which already told Firestore)
+            if (!after.containsKey(previous.getId()) && previous.getGoogleTaskId() != null
+                    && !pending.contains(previous.getId())) {
+                if (previous.getUserEmail() == null) {
+                    previous.setUserEmail(userEmail);
+                }
+                firestore.deleteTask(previous, null);
+                deleted++;
+            }
+        }
+        if (updated + deleted > 0) {
+            Log.d(TAG, "Pushed " + updated + " updates and " + deleted + " deletes from Google to Firestore");
+        }
+    }
+    
+    /**
+     * Merge tasks changed in Firestore into Room, field by field. Fields where Room is newer
+     * are written back to Firestore, and fields Firestore won on a synced task are sent on
+     * to Google. Ties are only settled in Room's favour if Room was just refreshed from Google.
+     */
+    private void applyFirestoreChanges(String userEmail, List<Task> changes, Set<String> pending,
+                                       boolean googlePulled) {
+        List<Task> changedRows = new ArrayList<>();
+        Map<String, Map<String, Object>> corrections = new HashMap<>();
+        // Room's copy before and after the merge, for synced tasks Google has to catch up on
+        List<Task[]> staleInGoogle = new ArrayList<>();
+        
+        database.runInTransaction(() -> {
+            for (Task remote : changes) {
+                if (pending.contains(remote.getId())) {
+                    continue;
+                }
+                Task local = taskDao.getTaskById(remote.getId());
+                if (local == null && remote.getGoogleTaskId() != null) {
+                    local = taskDao.getTaskByGoogleTaskId(remote.getGoogleTaskId());
+                }
+                
+                if (local == null) {
+                    // Only tasks that never reached Google are imported; a synced task missing
+                    // from Room after the Google pull no longer exists there
+                    if (remote.getGoogleTaskId() == null) {
+                        remote.setUserEmail(userEmail);
+                        taskDao.insertOrUpdate(remote);
+                        changedRows.add(remote);
+                    }
+                    continue;
+                }
+                
+                TaskMergeEngine.Result merge = TaskMergeEngine.merge(local, remote, googlePulled);
+                Task merged = merge.getMerged();
+                if (!merge.getLocalWins().isEmpty()) {
+                    corrections.put(remote.getId(), TaskMergeEngine.fieldsOf(merged, merge.getLocalWins()));
+                }
+                if (!merge.getRemoteWins().isEmpty()) {
+                    taskDao.updateTask(merged);
+                    changedRows.add(merged);
+                    if (merged.getGoogleTaskId() != null) {
+                        staleInGoogle.add(new Task[] {local, merged});
+                    }
+                }
+            }
+        });
+        
+        for (Map.Entry<String, Map<String, Object>> correction : corrections.entrySet()) {
+            firestore.updateTaskFields(userEmail, correction.getKey(), correction.getValue(), null);
+        }
+        TaskService taskService = TaskService.getInstance(context, userEmail);
+        for (Task[] stale : staleInGoogle) {
+            // Only queues a patch if a field Google stores actually changed
+            taskService.enqueueUpdate(stale[0], stale[1]);
+        }
+        if (!changedRows.isEmpty()) {
+            TimeConflictIndex.getInstance(context, userEmail).applyChanges(changedRows, Collections.emptyList());
+            taskService.invalidateCache();
+        }
+        Log.d(TAG, "Applied " + changedRows.size() + " Firestore changes, corrected " + corrections.size() + " documents");
+    }
+    
+    private static Map<String, Task> byId(List<Task> tasks) {
+        Map<String, Task> map = new HashMap<>();
+        for (Task task : tasks) {
+            map.put(task.getId(), task);
+        }
+        return map;
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.taskflow.service;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import java.util.Date;
+
+/**
+ * Remembers how far each Google task list has been synced for an account.
+ *
+ * The watermark is the newest "updated" timestamp seen in a list, exactly as the
+ * server returned it (RFC 3339). It is passed back as updatedMin, which is inclusive,
+ * so the boundary task is fetched again and applying it twice is harmless.
+ *
+ * Alongside the watermark it keeps the ETag of the last response to that same request,
+ * so a list with no new changes can be checked with If-None-Match. The ETag is dropped
+ * whenever the watermark moves, since the request it belongs to changes with it.
+ */
+public class SyncStateStore {
+    private static final String PREFS_NAME = "task_sync_state";
+    private static final String KEY_UPDATED_MIN = "updated_min_";
+    private static final String KEY_ETAG = "etag_";
+    private static final String KEY_FIRESTORE_WATERMARK = "firestore_updated_at_";
+    
+    private final SharedPreferences preferences;
+    private final String accountName;
+    
+    public SyncStateStore(Context context, String accountName) {
+        this.preferences = context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        this.accountName = accountName;
+    }
+    
+    /**
+     * The updatedMin to request for a list, or null if the list has never been fully synced
+     */
+    public String getUpdatedMin(String taskListId) {
+        return preferences.getString(key(taskListId), null);
+    }
+    
+    public void setUpdatedMin(String taskListId, String updatedMin) {
+        SharedPreferences.Editor editor = preferences.edit().putString(key(taskListId), updatedMin);
+        if (!updatedMin.equals(getUpdatedMin(taskListId))) {
+            editor.remove(etagKey(taskListId));
+        }
+        editor.apply();
+    }
+    
+    /**
+     * ETag of the last response for the list at its current watermark, or null if unknown
+     */
+    public String getETag(String taskListId) {
+        return preferences.getString(etagKey(taskListId), null);
+    }
+    
+    public void setETag(String taskListId, String etag) {
+        preferences.edit().putString(etagKey(taskListId), etag).apply();
+    }
+    
+    /**
+     * Newest Firestore update time already pulled for this account, or null before the first pull
+     */
+    public Date getFirestoreWatermark() {
+        long millis = preferences.getLong(KEY_FIRESTORE_WATERMARK + accountName, 0);
+        return millis > 0 ? new Date(millis) : null;
+    }
+    
+    public void setFirestoreWatermark(Date watermark) {
+        preferences.edit().putLong(KEY_FIRESTORE_WATERMARK + accountName, watermark.getTime()).apply();
+    }
+    
+    /**
+     * Forget all watermarks for this account so the next sync downloads everything again
+     */
+    public void clear() {
+        SharedPreferences.Editor editor = preferences.edit();
+        String prefix = KEY_UPDATED_MIN + accountName + "_";
+        String etagPrefix = KEY_ETAG + accountName + "_";
+        for (String key : preferences.getAll().keySet()) {
+            if (key.startsWith(prefix) || key.startsWith(etagPrefix)) {
+                editor.remove(key);
+            }
+        }
+        editor.remove(KEY_FIRESTORE_WATERMARK + accountName);
+        editor.apply();
+    }
+    
+    private String key(String taskListId) {
+        return KEY_UPDATED_MIN + accountName + "_" + taskListId;
+    }
+    
+    private String etagKey(String taskListId) {
+        return KEY_ETAG + accountName + "_" + taskListId;
+    }
+}
@@ -0,0 +1,188 @@
+package com.example.taskflow.service;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import com.example.taskflow.model.TaskList;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Persisted cache of a Google account's task lists.
+ *
+ * Task lists rarely change, yet almost every Google Tasks operation needs a list ID.
+ * Keeping them in SharedPreferences (one entry per account) lets a create go straight
+ * to tasks().insert instead of listing task lists first, even after a restart.
+ * The ETag of the last listing is kept too, so once the TTL runs out the lists can be
+ * revalidated with a conditional request instead of downloaded again.
+ */
+public class TaskListCache {
+    private static final String TAG = "TaskListCache";
+    private static final String PREFS_NAME = "task_list_cache";
+    private static final String KEY_LISTS = "lists_";
+    private static final String KEY_TIMESTAMP = "timestamp_";
+    private static final String KEY_ETAG = "etag_";
+    
+    // Lists are refreshed from the server at least this often
+    static final long REFRESH_TTL_MS = 12 * 60 * 60 * 1000; // 12 hours
+    
+    private final SharedPreferences preferences;
+    private final String accountName;
+    
+    // In-memory copy so reads don't parse JSON every time
+    private List<TaskList> taskLists;
+    private long timestamp;
+    private String etag;
+    
+    public TaskListCache(Context context, String accountName) {
+        this.preferences = context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        this.accountName = accountName;
+        load();
+    }
+    
+    /**
+     * The cached task lists, or null if nothing is cached or the cache is older than the TTL
+     */
+    public synchronized List<TaskList> get() {
+        if (taskLists == null || System.currentTimeMillis() - timestamp > REFRESH_TTL_MS) {
+            return null;
+        }
+        return Collections.unmodifiableList(taskLists);
+    }
+    
+    /**
+     * The cached task lists even if they are older than the TTL, or null if nothing is cached.
+     * Only to be served once the server confirms they are unchanged.
+     */
+    public synchronized List<TaskList> peek() {
+        return taskLists != null ? Collections.unmodifiableList(taskLists) : null;
+    }
+    
+    /**
+     * ETag of the listing the cached lists came from, or null if unknown
+     */
+    public synchronized String getETag() {
+        return taskLists != null ? etag : null;
+    }
+    
+    /**
+     * ID of the list new tasks are created in, or null if it has to be looked up
+     */
+    public synchronized String getDefaultTaskListId() {
+        List<TaskList> lists = get();
+        return lists != null && !lists.isEmpty() ? lists.get(0).getId() : null;
+    }
+    
+    /**
+     * Replace the cached lists with a fresh server result
+     *
+     * @param etag the ETag of the listing, or null if it can't be revalidated
+     */
+    public synchronized void put(List<TaskList> lists, String etag) {
+        taskLists = new ArrayList<>(lists);
+        timestamp = System.currentTimeMillis();
+        this.etag = etag;
+        save();
+    }
+    
+    /**
+     * The server confirmed the cached lists are unchanged; keep them for another TTL
+     */
+    public synchronized void onNotModified() {
+        if (taskLists == null) {
+            return;
+        }
+        timestamp = System.currentTimeMillis();
+        save();
+    }
+    
+    /**
+     * Record a list created by this app without refetching everything
+     */
+    public synchronized void onTaskListCreated(TaskList taskList) {
+        if (taskLists == null) {
+            taskLists = new ArrayList<>();
+            timestamp = System.currentTimeMillis();
+        }
+        taskLists.add(taskList);
+        etag = null;
+        save();
+    }
+    
+    /**
+     * Drop a deleted list from the cache
+     */
+    public synchronized void onTaskListDeleted(String taskListId) {
+        if (taskLists == null) {
+            return;
+        }
+        for (int i = taskLists.size() - 1; i >= 0; i--) {
+            if (taskLists.get(i).getId().equals(taskListId)) {
+                taskLists.remove(i);
+            }
+        }
+        etag = null;
+        save();
+    }
+    
+    /**
+     * Forget everything so the next read goes to the server, e.g. after a list ID turned out to be stale
+     */
+    public synchronized void invalidate() {
+        taskLists = null;
+        timestamp = 0;
+        etag = null;
+        preferences.edit()
+            .remove(KEY_LISTS + accountName)
+            .remove(KEY_TIMESTAMP + accountName)
+            .remove(KEY_ETAG + accountName)
+            .apply();
+    }
+    
+    private void load() {
+        String json = preferences.getString(KEY_LISTS + accountName, null);
+        if (json == null) {
+            return;
+        }
+        try {
+            JSONArray array = new JSONArray(json);
+            List<TaskList> lists = new ArrayList<>();
+            for (int i = 0; i < array.length(); i++) {
+                JSONObject item = array.getJSONObject(i);
+                lists.add(new TaskList(item.getString("id"), item.optString("title")));
+            }
+            taskLists = lists;
+            timestamp = preferences.getLong(KEY_TIMESTAMP + accountName, 0);
+            etag = preferences.getString(KEY_ETAG + accountName, null);
+        } catch (JSONException e) {
+            Log.e(TAG, "Discarding unreadable task list cache", e);
+            invalidate();
+        }
+    }
+    
+    private void save() {
+        try {
+            JSONArray array = new JSONArray();
+            for (TaskList taskList : taskLists) {
+                JSONObject item = new JSONObject();
+                item.put("id", taskList.getId());
+                item.put("title", taskList.getTitle());
+                array.put(item);
+            }
+            preferences.edit()
+                .putString(KEY_LISTS + accountName, array.toString())
+                .putLong(KEY_TIMESTAMP + accountName, timestamp)
+                .putString(KEY_ETAG + accountName, etag)
+                .apply();
+        } catch (JSONException e) {
+            Log.e(TAG, "Error saving task list cache", e);
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package com.example.taskflow.service;
+
+import com.example.taskflow.model.Task;
+import com.example.taskflow.util.TimeOfDay;
+
+/**
+ * The machine-readable footer TaskFlow keeps at the end of a Google task's notes.
+ *
+ * Google Tasks has no fields for times, categories or attachments, so they travel as
+ * one line after the description:
+ *
+ * <pre>
+ * Bring the slides
+ *
+ * [taskflow:1|id=3f2a...|s=600|e=660|c=Work|a=1AbCd...]
+ * </pre>
+ *
+ * s and e are minutes since midnight. Values are percent-escaped, so the footer is found
+ * with a single lastIndexOf and split without regexes. Keys a reader doesn't know are
+ * skipped, which lets later versions add fields without breaking older apps.
+ */
+public final class TaskNotesMetadata {
+    static final int VERSION = 1;
+    
+    private static final String PREFIX = "[taskflow:";
+    private static final char SEPARATOR = '|';
+    private static final char SUFFIX = ']';
+    
+    private final String localId;
+    private final int startMinutes;
+    private final int endMinutes;
+    private final String category;
+    private final String attachmentRef;
+    // Where the footer begins in the notes it was read from; the description is everything before
+    private final int footerStart;
+    
+    private TaskNotesMetadata(String localId, int startMinutes, int endMinutes, String category,
+                              String attachmentRef, int footerStart) {
+        this.localId = localId;
+        this.startMinutes = startMinutes;
+        this.endMinutes = endMinutes;
+        this.category = category;
+        this.attachmentRef = attachmentRef;
+        this.footerStart = footerStart;
+    }
+    
+    /**
+     * Notes for a Google task: the task's description followed by its metadata footer
+     */
+    public static String buildNotes(Task task) {
+        String description = task.getDescription() != null ? task.getDescription() : "";
+        
+        StringBuilder notes = new StringBuilder(description.length() + 96);
+        if (!description.isEmpty()) {
+            notes.append(description).append("\n\n");
+        }
+        notes.append(PREFIX).append(VERSION);
+        appendField(notes, "id", task.getId());
+        int start = TimeOfDay.parse(task.getStartTime());
+        if (start != TimeOfDay.INVALID) {
+            appendField(notes, "s", Integer.toString(start));
+        }
+        int end = TimeOfDay.parse(task.getEndTime());
+        if (end != TimeOfDay.INVALID) {
+            appendField(notes, "e", Integer.toString(end));
+        }
+        appendField(notes, "c", task.getCategory());
+        appendField(notes, "a", task.getDriveFileId());
+        notes.append(SUFFIX);
+        return notes.toString();
+    }
+    
+    /**
+     * Read the footer from a Google task's notes
+     *
+     * @return null if the notes have no footer, e.g. tasks written before it existed
+     */
+    public static TaskNotesMetadata parse(String notes) {
+        if (notes == null) {
+            return null;
+        }
+        int end = notes.length();
+        while (end > 0 && Character.isWhitespace(notes.charAt(end - 1))) {
+            end--;
+        }
+        if (end == 0 || notes.charAt(end - 1) != SUFFIX) {
+            return null;
+        }
+        int start = notes.lastIndexOf(PREFIX, end);
+        // The footer is always on a line of its own
+        if (start < 0 || (start > 0 && notes.charAt(start - 1) != '\n')) {
+            return null;
+        }
+        
+        String localId = null;
+        int startMinutes = TimeOfDay.INVALID;
+        int endMinutes = TimeOfDay.INVALID;
+        String category = null;
+        String attachmentRef = null;
+        
+        // Skip the version; every version so far uses the same layout
+        int fieldStart = notes.indexOf(SEPARATOR, start);
+        while (fieldStart >= 0 && fieldStart < end - 1) {
+            int fieldEnd = notes.indexOf(SEPARATOR, fieldStart + 1);
+            if (fieldEnd < 0 || fieldEnd > end - 1) {
+                fieldEnd = end - 1;
+            }
+            int equals = notes.indexOf('=', fieldStart + 1);
+            if (equals > fieldStart && equals < fieldEnd) {
+                String key = notes.substring(fieldStart + 1, equals);
+                String value = unescape(notes.substring(equals + 1, fieldEnd));
+                switch (key) {
+                    case "id":
+                        localId = value;
+                        break;
+                    case "s":
+                        startMinutes = parseMinutes(value);
+                        break;
+                    case "e":
+                        endMinutes = parseMinutes(value);
+                        break;
+                    case "c":
+                        category = value;
+                        break;
+                    case "a":
+                        attachmentRef = value;
+                        break;
+                    default:
+                        // Written by a newer version
+                        break;
+                }
+            }
+            fieldStart = fieldEnd;
+        }
+        
+        int footerStart = start;
+        while (footerStart > 0 && notes.charAt(footerStart - 1) == '\n') {
+            footerStart--;
+        }
+        return new TaskNotesMetadata(localId, startMinutes, endMinutes, category, attachmentRef, footerStart);
+    }
+    
+    /**
+     * The user's description, i.e. the notes without the footer
+     */
+    public String description(String notes) {
+        return notes.substring(0, footerStart);
+    }
+    
+    public String getLocalId() {
+        return localId;
+    }
+    
+    /**
+     * Start time as "hh:mm AM", or "" if the task has none
+     */
+    public String getStartTime() {
+        return startMinutes != TimeOfDay.INVALID ? TimeOfDay.format(startMinutes) : "";
+    }
+    
+    public String getEndTime() {
+        return endMinutes != TimeOfDay.INVALID ? TimeOfDay.format(endMinutes) : "";
+    }
+    
+    public String getCategory() {
+        return category;
+    }
+    
+    public String getAttachmentRef() {
+        return attachmentRef;
+    }
+    
+    private static void appendField(StringBuilder notes, String key, String value) {
+        if (value == null || value.isEmpty()) {
+            return;
+        }
+        notes.append(SEPARATOR).append(key).append('=');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == SEPARATOR || c == SUFFIX || c == '%' || c == '\n' || c == '\r') {
+                notes.append('%').append(Character.forDigit(c >> 4, 16)).append(Character.forDigit(c & 0xF, 16));
+            } else {
+                notes.append(c);
+            }
+        }
+    }
+    
+    private static String unescape(String value) {
+        if (value.indexOf('%') < 0) {
+            return value;
+        }
+        StringBuilder result = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '%' && i + 2 < value.length()) {
+                int high = Character.digit(value.charAt(i + 1), 16);
+                int low = Character.digit(value.charAt(i + 2), 16);
+                if (high >= 0 && low >= 0) {
+                    result.append((char) ((high << 4) | low));
+                    i += 2;
+                    continue;
+                }
+            }
+            result.append(c);
+        }
+        return result.toString();
+    }
+    
+    private static int parseMinutes(String value) {
+        try {
+            int minutes = Integer.parseInt(value);
+            return minutes >= 0 && minutes < TimeOfDay.MINUTES_PER_DAY ? minutes : TimeOfDay.INVALID;
+        } catch (NumberFormatException e) {
+            return TimeOfDay.INVALID;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.taskflow.service;
+
+import com.google.api.client.http.HttpResponseException;
+import com.google.api.services.tasks.Tasks;
+import com.google.api.services.tasks.model.Task;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Walks every page of a tasks().list() request.
+ *
+ * The API returns at most 100 tasks per call (20 by default) and signals more with
+ * nextPageToken. The pager asks for the maximum page size and keeps following the
+ * token, so callers can process each page as it arrives. Pages are fetched through
+ * {@link GoogleRequestExecutor}, so a rate-limited page is retried rather than ending the walk:
+ *
+ * <pre>
+ * TaskPager pager = new TaskPager(service.tasks().list(taskListId), accountName);
+ * while (pager.hasNextPage()) {
+ *     List&lt;Task&gt; page = pager.nextPage();
+ *     ...
+ * }
+ * </pre>
+ *
+ * Given the ETag of an earlier walk with {@link #ifNoneMatch}, the first page is sent as a
+ * conditional request; a 304 ends the walk at once with no tasks and no payload.
+ */
+public class TaskPager {
+    static final int PAGE_SIZE = 100;
+    
+    private final Tasks.TasksOperations.List request;
+    private final String accountName;
+    private String nextPageToken;
+    private boolean finished;
+    private int pagesFetched;
+    private int tasksFetched;
+    private String ifNoneMatch;
+    private String firstPageETag;
+    private boolean notModified;
+    
+    /**
+     * @param request a configured list request; its page size and page token are managed by the pager
+     * @param accountName the account whose rate limit the requests count against
+     */
+    public TaskPager(Tasks.TasksOperations.List request, String accountName) {
+        this.request = request.setMaxResults(PAGE_SIZE);
+        this.accountName = accountName;
+    }
+    
+    /**
+     * Make the first page conditional on the listing still having this ETag
+     */
+    public TaskPager ifNoneMatch(String etag) {
+        this.ifNoneMatch = etag;
+        return this;
+    }
+    
+    public boolean hasNextPage() {
+        return !finished;
+    }
+    
+    /**
+     * Fetch the next page. Returns an empty list for an empty task list.
+     */
+    public List<Task> nextPage() throws IOException {
+        if (finished) {
+            return Collections.emptyList();
+        }
+        
+        boolean firstPage = pagesFetched == 0;
+        request.getRequestHeaders().setIfNoneMatch(firstPage ? ifNoneMatch : null);
+        com.google.api.services.tasks.model.Tasks page;
+        try {
+            page = GoogleRequestExecutor.getInstance()
+                    .execute(accountName, request.setPageToken(nextPageToken));
+        } catch (HttpResponseException e) {
+            if (!firstPage || ifNoneMatch == null || e.getStatusCode() != 304) {
+                throw e;
+            }
+            notModified = true;
+            finished = true;
+            return Collections.emptyList();
+        }
+        if (firstPage && request.getLastResponseHeaders() != null) {
+            firstPageETag = request.getLastResponseHeaders().getETag();
+        }
+        nextPageToken = page.getNextPageToken();
+        finished = nextPageToken == null || nextPageToken.isEmpty();
+        pagesFetched++;
+        
+        List<Task> items = page.getItems() != null ? page.getItems() : Collections.emptyList();
+        tasksFetched += items.size();
+        return items;
+    }
+    
+    public int getPagesFetched() {
+        return pagesFetched;
+    }
+    
+    public int getTasksFetched() {
+        return tasksFetched;
+    }
+    
+    /**
+     * Whether the server answered the conditional first page with 304 Not Modified
+     */
+    public boolean isNotModified() {
+        return notModified;
+    }
+    
+    /**
+     * ETag to revalidate this listing with next time, or null. Only a listing that fit on
+     * one page has one, since a 304 for the first page says nothing about later pages.
+     */
+    public String getETag() {
+        return finished && !notModified && pagesFetched == 1 ? firstPageETag : null;
+    }
+}
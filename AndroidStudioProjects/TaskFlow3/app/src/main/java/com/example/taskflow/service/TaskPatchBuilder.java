@@ -0,0 +1,105 @@
+package com.example.taskflow.service;
+
+import com.google.api.client.util.Data;
+import com.google.api.services.tasks.model.Task;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.TimeZone;
+
+/**
+ * Builds tasks().patch() bodies that carry only the fields that changed.
+ *
+ * Fields left unset are omitted from the JSON and the server keeps its values, so a
+ * status toggle is one small request instead of a get followed by a full update.
+ * A field that is cleared locally is sent as an explicit JSON null.
+ *
+ * <pre>
+ * TaskPatchBuilder builder = TaskPatchBuilder.diff(before, after);
+ * if (!builder.isEmpty()) {
+ *     service.tasks().patch(taskListId, taskId, builder.build()).execute();
+ * }
+ * </pre>
+ */
+public class TaskPatchBuilder {
+    static final String STATUS_COMPLETED = "completed";
+    static final String STATUS_NEEDS_ACTION = "needsAction";
+    
+    private final Task patch = new Task();
+    private boolean empty = true;
+    
+    /**
+     * Patch for every field that differs between two Google representations of a task
+     */
+    public static TaskPatchBuilder diff(Task before, Task after) {
+        return new TaskPatchBuilder()
+            .title(before.getTitle(), after.getTitle())
+            .notes(before.getNotes(), after.getNotes())
+            .due(before.getDue(), after.getDue());
+    }
+    
+    /**
+     * Patch body that only touches the completion state
+     */
+    public static Task statusPatch(boolean isCompleted) {
+        return new TaskPatchBuilder().completed(!isCompleted, isCompleted).build();
+    }
+    
+    public TaskPatchBuilder title(String before, String after) {
+        if (!Objects.equals(before, after)) {
+            patch.setTitle(orNull(after));
+            empty = false;
+        }
+        return this;
+    }
+    
+    public TaskPatchBuilder notes(String before, String after) {
+        if (!Objects.equals(before, after)) {
+            patch.setNotes(orNull(after));
+            empty = false;
+        }
+        return this;
+    }
+    
+    public TaskPatchBuilder due(String before, String after) {
+        if (!Objects.equals(before, after)) {
+            patch.setDue(orNull(after));
+            empty = false;
+        }
+        return this;
+    }
+    
+    public TaskPatchBuilder completed(boolean wasCompleted, boolean isCompleted) {
+        if (wasCompleted != isCompleted) {
+            if (isCompleted) {
+                SimpleDateFormat rfc3339Format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'", Locale.US);
+                rfc3339Format.setTimeZone(TimeZone.getTimeZone("UTC"));
+                patch.setStatus(STATUS_COMPLETED);
+                patch.setCompleted(rfc3339Format.format(new Date()));
+            } else {
+                patch.setStatus(STATUS_NEEDS_ACTION);
+                patch.setCompleted(Data.NULL_STRING);
+            }
+            empty = false;
+        }
+        return this;
+    }
+    
+    /**
+     * True if nothing changed and there is no request to send
+     */
+    public boolean isEmpty() {
+        return empty;
+    }
+    
+    public Task build() {
+        return patch;
+    }
+    
+    // A plain null is left out of the JSON; NULL_STRING sends an explicit null to clear the field
+    private static String orNull(String value) {
+        return value != null ? value : Data.NULL_STRING;
+    }
+}
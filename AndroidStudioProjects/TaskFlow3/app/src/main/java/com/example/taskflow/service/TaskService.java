@@ -5,62 +5,104 @@ import android.util.Log;
 
 import androidx.annotation.NonNull;
 
+import com.example.taskflow.db.TaskDao;
 import com.example.taskflow.db.TaskDatabase;
+import com.example.taskflow.db.TaskIdentityMapper;
+import com.example.taskflow.db.TaskLocationDao;
+import com.example.taskflow.db.TaskMergeEngine;
+import com.example.taskflow.db.TimeConflictIndex;
 import com.example.taskflow.model.Task;
 import com.example.taskflow.model.TaskList;
+import com.example.taskflow.model.TaskLocation;
+import com.example.taskflow.util.VersionClock;
 import com.google.api.client.googleapis.extensions.android.gms.auth.GoogleAccountCredential;
-import com.google.api.client.http.HttpTransport;
-import com.google.api.client.http.javanet.NetHttpTransport;
-import com.google.api.client.json.JsonFactory;
-import com.google.api.client.json.gson.GsonFactory;
+import com.google.api.client.googleapis.json.GoogleJsonResponseException;
+import com.google.api.client.http.HttpResponseException;
 import com.google.api.client.util.DateTime;
 import com.google.api.services.tasks.Tasks;
 import com.google.api.services.tasks.TasksScopes;
 import com.google.api.services.tasks.model.TaskLists;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Collections;
 import java.util.Date;
 import java.util.Locale;
 import java.util.TimeZone;
-import java.util.concurrent.Executor;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.Calendar;
 import java.util.List;
 import java.util.ArrayList;
-import java.util.UUID;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
 public class TaskService {
     private static final String TAG = "TaskService";
-    private static final String APPLICATION_NAME = "TaskFlow";
+    
+    // One service per signed-in account, shared by every screen
+    private static final Map<String, TaskService> instances = new HashMap<>();
     
     private final Context context;
     private final String accountName;
-    private final Executor executor;
-    private GoogleAccountCredential credential;
-    private Tasks service;
-    private final Tasks mService;
+    // Serializes syncs and writes
+    private final ExecutorService executor;
+    private final Tasks service;
+    // Independent reads that shouldn't queue behind a sync
     private final ExecutorService executorService;
+    
+    // Bounded pool for fetching task lists in parallel during a sync
+    private static final int LIST_FETCH_CONCURRENCY = 4;
+    private final ExecutorService listFetchExecutor = idleTimeoutPool(LIST_FETCH_CONCURRENCY);
+    
+    // Pool threads exit after this long idle, so a released service holds no threads
+    private static final long IDLE_THREAD_TIMEOUT_SECONDS = 60;
+    
+    // How far before a queued create to look for a copy an earlier attempt already inserted
+    private static final long CREATE_LOOKUP_SLACK_MS = 10 * 60 * 1000; // 10 minutes
     private final String userEmail;
     
-    // Cache task lists to avoid repeated API calls
-    private List<TaskList> cachedTaskLists = null;
+    // Task lists persisted per account, so most calls skip tasklists().list()
+    private final TaskListCache taskListCache;
+    
+    // Per-list updatedMin watermarks for incremental sync
+    private final SyncStateStore syncStateStore;
+    
+    // Groups bulk mutations into HTTP batch requests
+    private final TasksBatcher batcher;
+    
+    // Shared, thread-safe converter for incoming Google tasks
+    private final GoogleTaskParser taskParser = GoogleTaskParser.getInstance();
     
-    // Cache tasks to reduce API calls (expires after 5 minutes)
-    private List<Task> cachedTasks = null;
-    private long cachedTasksTimestamp = 0;
+    // Rate limits and retries every request this service sends
+    private final GoogleRequestExecutor requests = GoogleRequestExecutor.getInstance();
+    
+    // Status changes and deletes are queued here and replayed once Google can be reached
+    private final MutationOutbox outbox;
+    
+    // Cache tasks to reduce API calls (expires after 5 minutes); shared by all screens
+    private volatile List<Task> cachedTasks = null;
+    private volatile long cachedTasksTimestamp = 0;
     private static final long CACHE_EXPIRATION_MS = 5 * 60 * 1000; // 5 minutes
     
-    // Cache for task conflicts check
-    private Map<String, List<Task>> dateTasksCache = new HashMap<>();
-    private long dateTasksCacheTimestamp = 0;
+    // The sync currently running, if any. Guarded by flightLock, like the cache generation,
+    // which invalidateCache bumps so a sync started before a local change isn't cached.
+    private final Object flightLock = new Object();
+    private SyncFlight inFlight;
+    private long cacheGeneration;
+    // When Room was last brought up to date with Google; falling back to local tasks doesn't count
+    private volatile long lastSyncTime;
+    
 
     public interface TaskCallback {
         void onSuccess(String taskId);
@@ -72,59 +114,94 @@ public class TaskService {
         void onFailure(Exception e);
     }
 
-    public TaskService(Context context, String accountName) {
+    private TaskService(Context context, String accountName) {
         this.context = context;
         this.accountName = accountName;
-        this.executor = Executors.newSingleThreadExecutor();
-        setupCredential();
+        this.executor = idleTimeoutPool(1);
+        
         GoogleAccountCredential credential = GoogleAccountCredential.usingOAuth2(
-                context,
-                Collections.singleton(TasksScopes.TASKS));
-                
+                context, Collections.singletonList(TasksScopes.TASKS));
         credential.setSelectedAccountName(accountName);
-        userEmail = accountName;
-
-        NetHttpTransport transport = new NetHttpTransport();
-        GsonFactory jsonFactory = GsonFactory.getDefaultInstance();
+        service = GoogleApiClientFactory.tasks(credential);
         
-        mService = new Tasks.Builder(transport, jsonFactory, credential)
-                .setApplicationName(APPLICATION_NAME)
-                .build();
+        userEmail = accountName;
+        taskListCache = new TaskListCache(context, accountName);
+        syncStateStore = new SyncStateStore(context, accountName);
+        batcher = new TasksBatcher(service, accountName);
+        outbox = MutationOutbox.getInstance(context);
         
         executorService = Executors.newCachedThreadPool();
     }
-
-    private void setupCredential() {
-        // Initialize credentials and service object
-        credential = GoogleAccountCredential.usingOAuth2(
-                context, Collections.singletonList(TasksScopes.TASKS));
-        credential.setSelectedAccountName(accountName);
-
-        // Use NetHttpTransport instead of AndroidHttp
-        HttpTransport transport = new NetHttpTransport();
-        JsonFactory jsonFactory = GsonFactory.getDefaultInstance();
-        
-        service = new Tasks.Builder(transport, jsonFactory, credential)
-                .setApplicationName(APPLICATION_NAME)
-                .build();
+    
+    /**
+     * The service for an account, created on first use and kept until {@link #releaseAll}.
+     * Screens share it, so its client, threads and task cache survive navigation.
+     */
+    public static synchronized TaskService getInstance(Context context, String accountName) {
+        TaskService taskService = instances.get(accountName);
+        if (taskService == null) {
+            taskService = new TaskService(context.getApplicationContext(), accountName);
+            instances.put(accountName, taskService);
+        }
+        return taskService;
+    }
+    
+    /**
+     * Forget every account's service, e.g. when the user signs out, so the next getInstance
+     * starts fresh.
+     *
+     * Executors are not shut down: screens, the outbox and sync passes may still hold a
+     * service, and their calls have to keep working. Queued batch operations are sent now,
+     * and the services' threads exit on their own once idle.
+     */
+    public static synchronized void releaseAll() {
+        for (TaskService taskService : instances.values()) {
+            taskService.batcher.flush();
+        }
+        instances.clear();
+    }
+    
+    /**
+     * A fixed-size pool whose threads all time out when idle
+     */
+    private static ExecutorService idleTimeoutPool(int threads) {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads,
+                IDLE_THREAD_TIMEOUT_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+    
+    /**
+     * Drop every account's cached task list, e.g. when the system is low on memory.
+     * The next getAllTasks reads Room and syncs again.
+     */
+    public static synchronized void trimMemory() {
+        for (TaskService taskService : instances.values()) {
+            taskService.invalidateCache();
+        }
+    }
+    
+    /**
+     * Forget the cached tasks so the next getAllTasks syncs, e.g. after a local change
+     */
+    public void invalidateCache() {
+        synchronized (flightLock) {
+            cacheGeneration++;
+            cachedTasks = null;
+            cachedTasksTimestamp = 0;
+        }
     }
 
     public void createTask(Task localTask, TaskCallback callback) {
+        // Screens share the cached tasks, so none of them should see the old version
+        invalidateCache();
         executor.execute(() -> {
             try {
-                // First, find or create a default task list
-                String taskListId = getDefaultTaskListId();
-                
-                // Create a Google Tasks API task
-                com.google.api.services.tasks.model.Task googleTask = convertToGoogleTask(localTask);
-                
-                // Insert the task
-                com.google.api.services.tasks.model.Task createdTask = 
-                    service.tasks().insert(taskListId, googleTask).execute();
+                String googleTaskId = createTaskBlocking(localTask);
                 
                 // Return the created task ID
                 if (callback != null) {
-                    callback.onSuccess(createdTask.getId());
+                    callback.onSuccess(googleTaskId);
                 }
                 
             } catch (Exception e) {
@@ -135,64 +212,176 @@ public class TaskService {
             }
         });
     }
+    
+    /**
+     * Insert a task into the default list and return its Google Task ID.
+     * Blocks, so must be called off the main thread.
+     */
+    public String createTaskBlocking(Task localTask) throws IOException {
+        // First, find or create a default task list (usually answered from the cache)
+        String taskListId = getDefaultTaskListId();
+        
+        // Create a Google Tasks API task
+        com.google.api.services.tasks.model.Task googleTask = convertToGoogleTask(localTask);
+        
+        // Insert the task
+        com.google.api.services.tasks.model.Task createdTask;
+        try {
+            createdTask = requests.execute(userEmail, service.tasks().insert(taskListId, googleTask)
+                    .setFields(GoogleApiFields.ID));
+        } catch (GoogleJsonResponseException e) {
+            if (e.getStatusCode() != 404) {
+                throw e;
+            }
+            // The cached list was deleted elsewhere, look it up again and retry once
+            Log.w(TAG, "Cached task list no longer exists: " + taskListId);
+            taskListCache.invalidate();
+            taskListId = getDefaultTaskListId();
+            createdTask = requests.execute(userEmail, service.tasks().insert(taskListId, googleTask)
+                    .setFields(GoogleApiFields.ID));
+        }
+        rememberTaskLocation(createdTask.getId(), taskListId);
+        return createdTask.getId();
+    }
+    
+    /**
+     * Google ID of a task an earlier attempt already created for a local task, or null.
+     * An insert can reach Google without the app learning its ID (killed before recording it,
+     * or the reply lost), so the default list's tasks updated since the create was queued
+     * are checked for the local ID in their notes footer. Blocks, so must be called off the main thread.
+     */
+    public String findCreatedTaskBlocking(String localId, long queuedAtMillis) throws IOException {
+        String taskListId = getDefaultTaskListId();
+        // Leave room for the device clock running ahead of Google's
+        String updatedMin = new DateTime(queuedAtMillis - CREATE_LOOKUP_SLACK_MS).toStringRfc3339();
+        TaskPager pager = new TaskPager(service.tasks()
+                .list(taskListId)
+                .setShowHidden(true)
+                .setUpdatedMin(updatedMin)
+                .setFields(GoogleApiFields.TASK_NOTES_PAGE), userEmail);
+        while (pager.hasNextPage()) {
+            for (com.google.api.services.tasks.model.Task item : pager.nextPage()) {
+                TaskNotesMetadata metadata = TaskNotesMetadata.parse(item.getNotes());
+                if (metadata != null && localId.equals(metadata.getLocalId())) {
+                    rememberTaskLocation(item.getId(), taskListId);
+                    return item.getId();
+                }
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Send a patch to a task, wherever it lives. Blocks, so must be called off the main thread.
+     *
+     * @return false if the task isn't in any of the user's lists
+     */
+    public boolean patchTaskBlocking(String googleTaskId, com.google.api.services.tasks.model.Task patch) throws IOException {
+        return runInTaskList(googleTaskId, taskListId ->
+                requests.execute(userEmail, service.tasks().patch(taskListId, googleTaskId, patch)
+                        .setFields(GoogleApiFields.ID)));
+    }
+    
+    /**
+     * Delete a task, wherever it lives. Blocks, so must be called off the main thread.
+     *
+     * @return false if the task isn't in any of the user's lists
+     */
+    public boolean deleteTaskBlocking(String googleTaskId) throws IOException {
+        boolean deleted = runInTaskList(googleTaskId, taskListId ->
+                requests.execute(userEmail, service.tasks().delete(taskListId, googleTaskId)));
+        if (deleted) {
+            forgetTaskLocation(googleTaskId);
+        }
+        return deleted;
+    }
 
     private String getDefaultTaskListId() throws IOException {
+        String cachedId = taskListCache.getDefaultTaskListId();
+        if (cachedId != null) {
+            return cachedId;
+        }
+        
         // Get the first available task list or create one if none exists
-        TaskLists result = service.tasklists().list().execute();
+        List<TaskList> taskLists = getTaskListsBlocking();
         
-        if (result.getItems() != null && !result.getItems().isEmpty()) {
+        if (!taskLists.isEmpty()) {
             // Return the first task list ID
-            return result.getItems().get(0).getId();
+            return taskLists.get(0).getId();
         } else {
             // Create a new task list
             com.google.api.services.tasks.model.TaskList taskList = new com.google.api.services.tasks.model.TaskList();
             taskList.setTitle("TaskFlow");
-            com.google.api.services.tasks.model.TaskList createdList = service.tasklists().insert(taskList).execute();
+            com.google.api.services.tasks.model.TaskList createdList = requests.execute(userEmail,
+                    service.tasklists().insert(taskList).setFields(GoogleApiFields.TASK_LIST));
+            taskListCache.onTaskListCreated(new TaskList(createdList.getId(), createdList.getTitle()));
             return createdList.getId();
         }
     }
+    
+    /**
+     * Get the user's task lists, from the persisted cache while it is fresh.
+     * Once it has expired the server is asked whether the lists changed, and on a
+     * 304 the cached lists are served again. Must be called off the main thread.
+     */
+    private List<TaskList> getTaskListsBlocking() throws IOException {
+        List<TaskList> cached = taskListCache.get();
+        if (cached != null) {
+            return cached;
+        }
+        
+        List<TaskList> stale = taskListCache.peek();
+        String etag = stale != null ? taskListCache.getETag() : null;
+        
+        List<TaskList> taskLists = new ArrayList<>();
+        String pageToken = null;
+        String firstPageETag = null;
+        int pages = 0;
+        do {
+            Tasks.Tasklists.List request = service.tasklists().list()
+                    .setMaxResults(TaskPager.PAGE_SIZE)
+                    .setFields(GoogleApiFields.TASK_LIST_PAGE)
+                    .setPageToken(pageToken);
+            if (pages == 0) {
+                request.getRequestHeaders().setIfNoneMatch(etag);
+            }
+            TaskLists result;
+            try {
+                result = requests.execute(userEmail, request);
+            } catch (HttpResponseException e) {
+                if (pages > 0 || etag == null || e.getStatusCode() != 304) {
+                    throw e;
+                }
+                taskListCache.onNotModified();
+                return stale;
+            }
+            if (pages == 0 && request.getLastResponseHeaders() != null) {
+                firstPageETag = request.getLastResponseHeaders().getETag();
+            }
+            pages++;
+            if (result.getItems() != null) {
+                for (com.google.api.services.tasks.model.TaskList item : result.getItems()) {
+                    taskLists.add(new TaskList(item.getId(), item.getTitle()));
+                }
+            }
+            pageToken = result.getNextPageToken();
+        } while (pageToken != null && !pageToken.isEmpty());
+        // A 304 for the first page would say nothing about the rest, so only one page can be revalidated
+        taskListCache.put(taskLists, pages == 1 ? firstPageETag : null);
+        return taskLists;
+    }
 
     private com.google.api.services.tasks.model.Task convertToGoogleTask(Task localTask) {
         com.google.api.services.tasks.model.Task googleTask = new com.google.api.services.tasks.model.Task();
         
-        // Set title and notes
-        String title = localTask.getTitle();
-        String description = localTask.getDescription() != null ? localTask.getDescription() : "";
+        // Times, category and attachment travel in a footer at the end of the notes,
+        // so the title is sent exactly as the user typed it
+        googleTask.setTitle(localTask.getTitle());
+        googleTask.setNotes(TaskNotesMetadata.buildNotes(localTask));
         
-        // Add time information to title since Google Tasks doesn't display time in UI
         String startTime = localTask.getStartTime();
         String endTime = localTask.getEndTime();
         
-        // Always include time in title if available (even if just start time)
-        if (startTime != null && !startTime.isEmpty()) {
-            if (endTime != null && !endTime.isEmpty()) {
-                // Both start and end times available
-                title = title + " (" + startTime + " - " + endTime + ")";
-            } else {
-                // Only start time available
-                title = title + " (" + startTime + ")";
-            }
-        }
-        
-        googleTask.setTitle(title);
-        
-        // Add time information to notes as well
-        StringBuilder timeInfoBuilder = new StringBuilder();
-        if (startTime != null && !startTime.isEmpty()) {
-            timeInfoBuilder.append("Start Time: ").append(startTime);
-            
-            if (endTime != null && !endTime.isEmpty()) {
-                timeInfoBuilder.append("\nEnd Time: ").append(endTime);
-            }
-            
-            // Add the time information to the beginning of the description
-            if (timeInfoBuilder.length() > 0) {
-                description = timeInfoBuilder.toString() + "\n\n" + description;
-            }
-        }
-        
-        googleTask.setNotes(description);
-        
         // Set due date with proper RFC3339 format
         try {
             Date taskDate = localTask.getDate();
@@ -257,507 +446,576 @@ public class TaskService {
         void onFailure(Exception e);
     }
 
+    /**
+     * Progress of a sync, reported after each page of tasks is downloaded.
+     * May be called from several background threads, one at a time.
+     */
+    public interface SyncProgressListener {
+        void onProgress(int tasksFetched, int listsCompleted, int listsTotal);
+    }
+
     /**
      * Retrieves all tasks from the user's Google Tasks account
      * and synchronizes with local database
      */
     public void getAllTasks(TaskListCallback listCallback, TasksCallback tasksCallback) {
-        // Check if we have a valid cache
-        long currentTime = System.currentTimeMillis();
-        if (cachedTasks != null && (currentTime - cachedTasksTimestamp) < CACHE_EXPIRATION_MS) {
+        getAllTasks(listCallback, tasksCallback, null);
+    }
+
+    /**
+     * Same as {@link #getAllTasks(TaskListCallback, TasksCallback)}, reporting progress
+     * as pages arrive so a large first sync can show something other than a spinner.
+     */
+    public void getAllTasks(TaskListCallback listCallback, TasksCallback tasksCallback,
+                            SyncProgressListener progressListener) {
+        getAllTasks(listCallback, tasksCallback, progressListener, false);
+    }
+    
+    /**
+     * Sync with Google even if the cached tasks are still fresh, e.g. for pull-to-refresh.
+     * A sync that is already running is joined rather than started a second time.
+     */
+    public void refreshAllTasks(TaskListCallback listCallback, TasksCallback tasksCallback) {
+        getAllTasks(listCallback, tasksCallback, null, true);
+    }
+    
+    private void getAllTasks(TaskListCallback listCallback, TasksCallback tasksCallback,
+                             SyncProgressListener progressListener, boolean ignoreCache) {
+        List<Task> cached = null;
+        SyncFlight flight = null;
+        List<com.google.api.services.tasks.model.TaskList> knownLists = null;
+        boolean startSync = false;
+        
+        synchronized (flightLock) {
+            // Check if we have a valid cache
+            long currentTime = System.currentTimeMillis();
+            if (!ignoreCache && cachedTasks != null && (currentTime - cachedTasksTimestamp) < CACHE_EXPIRATION_MS) {
+                cached = cachedTasks;
+            } else {
+                // Screens often ask at the same moment; they all share one download
+                if (inFlight == null) {
+                    inFlight = new SyncFlight(cacheGeneration);
+                    startSync = true;
+                }
+                flight = inFlight;
+                knownLists = flight.join(listCallback, tasksCallback, progressListener);
+            }
+        }
+        
+        if (cached != null) {
             // Use cached tasks if not expired
             if (tasksCallback != null) {
-                tasksCallback.onSuccess(cachedTasks);
+                tasksCallback.onSuccess(cached);
             }
             return;
         }
-        
-        executor.execute(() -> {
+        if (knownLists != null && listCallback != null) {
+            listCallback.onSuccess(knownLists);
+        }
+        if (startSync) {
+            SyncFlight syncFlight = flight;
             try {
-                // First get available task lists
-                TaskLists taskLists = service.tasklists().list().execute();
-                
-                if (listCallback != null) {
-                    listCallback.onSuccess(taskLists.getItems());
-                }
-                
-                List<Task> allTasks = new ArrayList<>();
-                
-                // For each task list, get all tasks
-                if (taskLists.getItems() != null) {
-                    for (com.google.api.services.tasks.model.TaskList taskList : taskLists.getItems()) {
-                        com.google.api.services.tasks.model.Tasks tasks = 
-                                service.tasks().list(taskList.getId()).execute();
-                        
-                        if (tasks.getItems() != null) {
-                            for (com.google.api.services.tasks.model.Task googleTask : tasks.getItems()) {
-                                Task localTask = convertFromGoogleTask(googleTask);
-                                allTasks.add(localTask);
-                                
-                                // Save or update each task in the local database
-                                TaskDatabase.getInstance(context)
-                                    .taskDao()
-                                    .insertTask(localTask);
-                            }
-                        }
-                    }
-                }
-                
-                // After syncing with Google, merge with any locally-created tasks that haven't been synced
-                List<Task> localOnlyTasks = TaskDatabase.getInstance(context)
-                    .taskDao()
-                    .getLocalOnlyTasks();
-                    
-                if (localOnlyTasks != null && !localOnlyTasks.isEmpty()) {
-                    allTasks.addAll(localOnlyTasks);
-                }
-                
-                // Update cache
-                cachedTasks = allTasks;
-                cachedTasksTimestamp = System.currentTimeMillis();
-                
-                if (tasksCallback != null) {
-                    tasksCallback.onSuccess(allTasks);
-                }
-                
-            } catch (IOException e) {
-                Log.e(TAG, "Error fetching tasks", e);
-                
-                // On error, return all local tasks
-                List<Task> localTasks = TaskDatabase.getInstance(context)
-                    .taskDao()
-                    .getAllTasks();
-                    
-                if (tasksCallback != null) {
-                    if (localTasks != null && !localTasks.isEmpty()) {
-                        // Update cache with local tasks
-                        cachedTasks = localTasks;
-                        cachedTasksTimestamp = System.currentTimeMillis();
-                        tasksCallback.onSuccess(localTasks);
-                    } else {
-                        tasksCallback.onFailure(e);
-                    }
-                }
+                executor.execute(() -> runSync(syncFlight));
+            } catch (RuntimeException e) {
+                // The flight is already shared; close it so its callers hear about the failure
+                Log.e(TAG, "Could not start sync", e);
+                finishSync(syncFlight, null, e);
             }
-        });
+        }
     }
-
+    
     /**
-     * Converts a Google Task to our local Task model
+     * Time of the last sync that actually reached Google, or 0 if none has yet
      */
-    private Task convertFromGoogleTask(com.google.api.services.tasks.model.Task googleTask) {
-        Task localTask = new Task();
-        
-        // Set basic properties
-        localTask.setId(UUID.randomUUID().toString());
-        localTask.setGoogleTaskId(googleTask.getId());
-        
-        String title = googleTask.getTitle();
-        String notes = googleTask.getNotes();
-        
-        // Parse title to extract possible time information
-        String extractedTitle = title;
-        String startTime = "";
-        String endTime = "";
-        
-        // Extract time if format is "Task Title (10:00 AM - 11:00 AM)"
-        Pattern fullTimePattern = Pattern.compile("(.*) \\((\\d{1,2}:\\d{2} [AP]M) - (\\d{1,2}:\\d{2} [AP]M)\\)");
-        Matcher fullTimeMatcher = fullTimePattern.matcher(title);
-        
-        // Extract time if format is "Task Title (10:00 AM)" - just start time
-        Pattern singleTimePattern = Pattern.compile("(.*) \\((\\d{1,2}:\\d{2} [AP]M)\\)");
-        Matcher singleTimeMatcher = singleTimePattern.matcher(title);
-        
-        if (fullTimeMatcher.find()) {
-            // Full time range found
-            extractedTitle = fullTimeMatcher.group(1);
-            startTime = fullTimeMatcher.group(2);
-            endTime = fullTimeMatcher.group(3);
-        } else if (singleTimeMatcher.find()) {
-            // Just start time found
-            extractedTitle = singleTimeMatcher.group(1);
-            startTime = singleTimeMatcher.group(2);
-            // We'll try to calculate a default end time later
-        }
-        
-        localTask.setTitle(extractedTitle);
-        localTask.setStartTime(startTime);
-        localTask.setEndTime(endTime);
-        
-        // Extract time information from notes if available
-        if (notes != null) {
-            // Check for "Start Time:" and "End Time:" format
-            Pattern startTimePattern = Pattern.compile("Start Time: (\\d{1,2}:\\d{2} [AP]M)");
-            Pattern endTimePattern = Pattern.compile("End Time: (\\d{1,2}:\\d{2} [AP]M)");
-            
-            Matcher startTimeMatcher = startTimePattern.matcher(notes);
-            if (startTimeMatcher.find() && startTime.isEmpty()) {
-                startTime = startTimeMatcher.group(1);
-                localTask.setStartTime(startTime);
-            }
+    public long getLastSyncTime() {
+        return lastSyncTime;
+    }
+    
+    private void runSync(SyncFlight flight) {
+        try {
+            List<Task> allTasks = syncAllTasks(flight);
+            lastSyncTime = System.currentTimeMillis();
+            finishSync(flight, allTasks, null);
+        } catch (IOException e) {
+            Log.e(TAG, "Error fetching tasks", e);
             
-            Matcher endTimeMatcher = endTimePattern.matcher(notes);
-            if (endTimeMatcher.find() && endTime.isEmpty()) {
-                endTime = endTimeMatcher.group(1);
-                localTask.setEndTime(endTime);
-            }
+            // On error, return this account's local tasks
+            List<Task> localTasks = TaskDatabase.getInstance(context)
+                .taskDao()
+                .getAllTasksForUser(userEmail);
             
-            // Extract description - skip time information at the beginning
-            int descriptionStart = notes.indexOf("\n\n");
-            if (descriptionStart != -1 && descriptionStart + 2 < notes.length()) {
-                localTask.setDescription(notes.substring(descriptionStart + 2));
+            if (localTasks != null && !localTasks.isEmpty()) {
+                finishSync(flight, localTasks, e);
             } else {
-                // Use the whole note as description if we can't find the separator
-                localTask.setDescription(notes);
+                finishSync(flight, null, e);
             }
-        } else {
-            localTask.setDescription("");
+        } catch (RuntimeException e) {
+            // Never leave the flight open, or every later caller would wait on it forever
+            Log.e(TAG, "Sync failed", e);
+            finishSync(flight, null, e);
         }
+    }
+    
+    /**
+     * Download the changes for every list, apply them to Room and return the account's tasks
+     */
+    private List<Task> syncAllTasks(SyncFlight flight) throws IOException {
+        // First get available task lists
+        List<TaskList> taskLists = getTaskListsBlocking();
         
-        // Parse due date with time - this is the Google Task's due date
-        if (googleTask.getDue() != null) {
-            try {
-                // Try both formats with and without milliseconds
-                Date dueDate = null;
-                try {
-                    // RFC 3339 format with milliseconds: 2023-07-15T10:00:00.000Z
-                    SimpleDateFormat rfc3339FormatWithMS = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", Locale.US);
-                    rfc3339FormatWithMS.setTimeZone(TimeZone.getTimeZone("UTC"));
-                    dueDate = rfc3339FormatWithMS.parse(googleTask.getDue());
-                } catch (ParseException e1) {
-                    try {
-                        // Try without milliseconds: 2023-07-15T10:00:00Z
-                        SimpleDateFormat rfc3339FormatNoMS = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'", Locale.US);
-                        rfc3339FormatNoMS.setTimeZone(TimeZone.getTimeZone("UTC"));
-                        dueDate = rfc3339FormatNoMS.parse(googleTask.getDue());
-                    } catch (ParseException e2) {
-                        Log.e(TAG, "Error parsing due date: " + e2.getMessage());
-                    }
-                }
-                
-                if (dueDate != null) {
-                    localTask.setDate(dueDate);
-                    
-                    // If we don't have time info from title or notes, extract it from the due date
-                    SimpleDateFormat timeFormat = new SimpleDateFormat("hh:mm a", Locale.US);
-                    String timeFromDue = timeFormat.format(dueDate);
-                    
-                    // If we have no time information at all, use due date time as start time
-                    if (startTime.isEmpty() && endTime.isEmpty()) {
-                        startTime = timeFromDue;
-                        localTask.setStartTime(startTime);
-                        
-                        // Calculate an end time 1 hour after start time
-                        try {
-                            Date startTimeDate = timeFormat.parse(startTime);
-                            Calendar cal = Calendar.getInstance();
-                            cal.setTime(startTimeDate);
-                            cal.add(Calendar.HOUR, 1);
-                            endTime = timeFormat.format(cal.getTime());
-                            localTask.setEndTime(endTime);
-                        } catch (ParseException e) {
-                            Log.e(TAG, "Error calculating end time: " + e.getMessage());
-                        }
-                    } 
-                    // If we only have start time but no end time
-                    else if (!startTime.isEmpty() && endTime.isEmpty()) {
-                        // Calculate an end time 1 hour after start time
-                        try {
-                            Date startTimeDate = timeFormat.parse(startTime);
-                            Calendar cal = Calendar.getInstance();
-                            cal.setTime(startTimeDate);
-                            cal.add(Calendar.HOUR, 1);
-                            endTime = timeFormat.format(cal.getTime());
-                            localTask.setEndTime(endTime);
-                        } catch (ParseException e) {
-                            Log.e(TAG, "Error calculating end time: " + e.getMessage());
-                        }
-                    }
+        List<com.google.api.services.tasks.model.TaskList> items = new ArrayList<>();
+        for (TaskList taskList : taskLists) {
+            items.add(new com.google.api.services.tasks.model.TaskList()
+                    .setId(taskList.getId())
+                    .setTitle(taskList.getTitle()));
+        }
+        flight.onTaskLists(items);
+        
+        boolean fullSync = true;
+        for (TaskList taskList : taskLists) {
+            if (syncStateStore.getUpdatedMin(taskList.getId()) != null) {
+                fullSync = false;
+                break;
+            }
+        }
+        
+        // Fetch all lists concurrently on the bounded pool, so a refresh takes
+        // about as long as the slowest list rather than the sum of all of them
+        SyncProgress progress = new SyncProgress(taskLists.size(), flight);
+        List<Future<ListChanges>> futures = new ArrayList<>();
+        for (TaskList taskList : taskLists) {
+            futures.add(listFetchExecutor.submit(() -> fetchListChanges(taskList.getId(), progress)));
+        }
+        
+        List<ListChanges> results = new ArrayList<>();
+        try {
+            for (Future<ListChanges> future : futures) {
+                ListChanges changes = future.get();
+                if (changes != null) {
+                    results.add(changes);
                 }
-            } catch (Exception e) {
-                Log.e(TAG, "Error handling due date: " + e.getMessage());
-                localTask.setDate(new Date());  // Default to current date
             }
-        } else {
-            localTask.setDate(new Date());  // Default to current date
+        } catch (ExecutionException e) {
+            cancelAll(futures);
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        } catch (InterruptedException e) {
+            cancelAll(futures);
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
         }
         
-        // Set status (completed or pending)
-        String status = "PENDING";
-        if (googleTask.getCompleted() != null) {
-            status = "COMPLETED";
+        applyGoogleChanges(results, fullSync);
+        
+        // Only advance the watermarks once the changes are safely in Room
+        int changeCount = 0;
+        for (ListChanges changes : results) {
+            if (changes.watermark != null) {
+                syncStateStore.setUpdatedMin(changes.taskListId, changes.watermark);
+            }
+            if (changes.etag != null) {
+                syncStateStore.setETag(changes.taskListId, changes.etag);
+            }
+            changeCount += changes.tasks.size();
         }
-        localTask.setStatus(status);
+        Log.d(TAG, "Applied " + changeCount + " changes from Google Tasks" + (fullSync ? " (full sync)" : ""));
         
-        return localTask;
+        // Synced and locally-created tasks for this account
+        return TaskDatabase.getInstance(context)
+            .taskDao()
+            .getAllTasksForUser(userEmail);
     }
-
+    
     /**
-     * Callback for retrieving tasks
+     * Close the flight and hand its result to everyone who joined it.
+     * Callers get the tasks if there are any, even after an error, e.g. Room's copy when
+     * Google couldn't be reached. The tasks are only cached if the sync succeeded and
+     * nothing changed locally while it was running, so a failed sync is retried next time.
      */
-    public interface TasksCallback {
-        void onSuccess(List<Task> tasks);
-        void onFailure(Exception e);
+    private void finishSync(SyncFlight flight, List<Task> tasks, Exception error) {
+        List<TasksCallback> callbacks;
+        synchronized (flightLock) {
+            if (inFlight == flight) {
+                inFlight = null;
+            }
+            if (tasks != null && error == null && flight.generation == cacheGeneration) {
+                cachedTasks = tasks;
+                cachedTasksTimestamp = System.currentTimeMillis();
+            }
+            callbacks = flight.close();
+        }
+        
+        for (TasksCallback callback : callbacks) {
+            if (tasks != null) {
+                callback.onSuccess(tasks);
+            } else {
+                callback.onFailure(error);
+            }
+        }
     }
-
+    
     /**
-     * Checks if a task's time conflicts with any existing tasks on the same date
-     * 
-     * @param newTask The task to check for conflicts
-     * @param callback Callback with boolean result (true if conflict exists)
+     * One sync with Google and the callers waiting on it. Callers join until the sync
+     * finishes; the task lists are handed out as soon as they are known, including to
+     * callers that join after that.
      */
-    public void checkForTimeConflict(Task newTask, TimeConflictCallback callback) {
-        executor.execute(() -> {
-            try {
-                // Get all tasks first
-                List<Task> allTasks = new ArrayList<>();
-                
-                // Get the user's task lists
-                TaskLists taskLists = service.tasklists().list().execute();
-                
-                if (taskLists.getItems() != null) {
-                    for (com.google.api.services.tasks.model.TaskList taskList : taskLists.getItems()) {
-                        com.google.api.services.tasks.model.Tasks tasks = 
-                                service.tasks().list(taskList.getId()).execute();
-                        
-                        if (tasks.getItems() != null) {
-                            for (com.google.api.services.tasks.model.Task googleTask : tasks.getItems()) {
-                                Task existingTask = convertFromGoogleTask(googleTask);
-                                allTasks.add(existingTask);
-                            }
-                        }
-                    }
-                }
-                
-                // Check for conflicts
-                boolean hasConflict = hasTimeConflict(newTask, allTasks);
-                
-                if (callback != null) {
-                    callback.onConflictCheckComplete(hasConflict);
-                }
-            } catch (IOException e) {
-                Log.e(TAG, "Error checking for time conflicts", e);
-                if (callback != null) {
-                    callback.onConflictCheckComplete(false); // Default to no conflict on error
-                }
+    private static class SyncFlight implements SyncProgressListener {
+        final long generation;
+        private final List<TaskListCallback> listCallbacks = new ArrayList<>();
+        private final List<TasksCallback> tasksCallbacks = new ArrayList<>();
+        private final List<SyncProgressListener> progressListeners = new ArrayList<>();
+        private List<com.google.api.services.tasks.model.TaskList> taskLists;
+        
+        SyncFlight(long generation) {
+            this.generation = generation;
+        }
+        
+        /**
+         * Register a caller. Returns the task lists if they are already known, for the
+         * caller to deliver itself; otherwise its list callback runs once they arrive.
+         */
+        synchronized List<com.google.api.services.tasks.model.TaskList> join(
+                TaskListCallback listCallback, TasksCallback tasksCallback, SyncProgressListener progressListener) {
+            if (tasksCallback != null) {
+                tasksCallbacks.add(tasksCallback);
             }
-        });
+            if (progressListener != null) {
+                progressListeners.add(progressListener);
+            }
+            if (listCallback != null && taskLists == null) {
+                listCallbacks.add(listCallback);
+            }
+            return taskLists;
+        }
+        
+        void onTaskLists(List<com.google.api.services.tasks.model.TaskList> items) {
+            List<TaskListCallback> callbacks;
+            synchronized (this) {
+                taskLists = items;
+                callbacks = new ArrayList<>(listCallbacks);
+                listCallbacks.clear();
+            }
+            for (TaskListCallback callback : callbacks) {
+                callback.onSuccess(items);
+            }
+        }
+        
+        @Override
+        public void onProgress(int tasksFetched, int listsCompleted, int listsTotal) {
+            List<SyncProgressListener> listeners;
+            synchronized (this) {
+                listeners = new ArrayList<>(progressListeners);
+            }
+            for (SyncProgressListener listener : listeners) {
+                listener.onProgress(tasksFetched, listsCompleted, listsTotal);
+            }
+        }
+        
+        synchronized List<TasksCallback> close() {
+            List<TasksCallback> callbacks = new ArrayList<>(tasksCallbacks);
+            tasksCallbacks.clear();
+            progressListeners.clear();
+            listCallbacks.clear();
+            return callbacks;
+        }
+    }
+
+    /**
+     * Changes downloaded for one task list
+     */
+    private static class ListChanges {
+        final String taskListId;
+        final List<com.google.api.services.tasks.model.Task> tasks;
+        final String watermark;
+        // ETag to revalidate the list with next time, if nothing new arrived
+        final String etag;
+        
+        ListChanges(String taskListId, List<com.google.api.services.tasks.model.Task> tasks,
+                    String watermark, String etag) {
+            this.taskListId = taskListId;
+            this.tasks = tasks;
+            this.watermark = watermark;
+            this.etag = etag;
+        }
     }
     
     /**
-     * Helper method to check if a task conflicts with any in the provided list
+     * Aggregates progress from the concurrent list fetches
      */
-    private boolean hasTimeConflict(Task newTask, List<Task> existingTasks) {
-        // Skip if no time info in new task
-        if (newTask.getStartTime() == null || newTask.getEndTime() == null || 
-            newTask.getStartTime().isEmpty() || newTask.getEndTime().isEmpty() ||
-            newTask.getDate() == null) {
-            return false;
+    private static class SyncProgress {
+        private final int listsTotal;
+        private final SyncProgressListener listener;
+        private int tasksFetched;
+        private int listsCompleted;
+        
+        SyncProgress(int listsTotal, SyncProgressListener listener) {
+            this.listsTotal = listsTotal;
+            this.listener = listener;
         }
         
-        // Get date-only part of the new task
-        Calendar newTaskCal = Calendar.getInstance();
-        newTaskCal.setTime(newTask.getDate());
-        int newTaskYear = newTaskCal.get(Calendar.YEAR);
-        int newTaskMonth = newTaskCal.get(Calendar.MONTH);
-        int newTaskDay = newTaskCal.get(Calendar.DAY_OF_MONTH);
+        synchronized void onPage(int size) {
+            tasksFetched += size;
+            report();
+        }
         
-        // Parse the new task's start and end times
-        SimpleDateFormat timeFormat = new SimpleDateFormat("hh:mm a", Locale.US);
+        synchronized void onListCompleted() {
+            listsCompleted++;
+            report();
+        }
         
+        private void report() {
+            if (listener != null) {
+                listener.onProgress(tasksFetched, listsCompleted, listsTotal);
+            }
+        }
+    }
+    
+    /**
+     * Download every page of changes for one list since its watermark (everything the first time).
+     * An incremental fetch is conditional on the list's last ETag, so a quiet list costs a 304
+     * and no payload. Runs on the list fetch pool. Returns null if the list no longer exists.
+     */
+    private ListChanges fetchListChanges(String taskListId, SyncProgress progress) throws IOException {
+        String updatedMin = syncStateStore.getUpdatedMin(taskListId);
+        Tasks.TasksOperations.List request = service.tasks()
+                .list(taskListId)
+                .setShowHidden(true)
+                .setFields(GoogleApiFields.TASK_PAGE);
+        if (updatedMin != null) {
+            request.setUpdatedMin(updatedMin).setShowDeleted(true);
+        }
+        
+        // A full download is never conditional: Room may not hold what the ETag describes
+        TaskPager pager = new TaskPager(request, userEmail)
+                .ifNoneMatch(updatedMin != null ? syncStateStore.getETag(taskListId) : null);
+        List<com.google.api.services.tasks.model.Task> tasks = new ArrayList<>();
+        String watermark = updatedMin;
         try {
-            Date newTaskStartTime = timeFormat.parse(newTask.getStartTime());
-            Date newTaskEndTime = timeFormat.parse(newTask.getEndTime());
-            
-            if (newTaskStartTime == null || newTaskEndTime == null) {
-                return false;
+            while (pager.hasNextPage()) {
+                List<com.google.api.services.tasks.model.Task> page = pager.nextPage();
+                for (com.google.api.services.tasks.model.Task googleTask : page) {
+                    String updated = googleTask.getUpdated();
+                    if (updated != null && (watermark == null || updated.compareTo(watermark) > 0)) {
+                        watermark = updated;
+                    }
+                }
+                tasks.addAll(page);
+                progress.onPage(page.size());
+            }
+        } catch (GoogleJsonResponseException e) {
+            if (e.getStatusCode() != 404) {
+                throw e;
             }
+            // List was deleted since it was cached
+            taskListCache.onTaskListDeleted(taskListId);
+            TaskDatabase.getInstance(context).taskLocationDao().deleteLocationsInList(taskListId);
+            return null;
+        }
+        
+        progress.onListCompleted();
+        if (pager.isNotModified()) {
+            // Nothing changed since the last sync; Room already holds the parsed tasks
+            return new ListChanges(taskListId, Collections.emptyList(), updatedMin, null);
+        }
+        // The ETag belongs to this request, so it is only worth keeping if the watermark stays put
+        String etag = watermark != null && watermark.equals(updatedMin) ? pager.getETag() : null;
+        return new ListChanges(taskListId, tasks, watermark, etag);
+    }
+    
+    private static void cancelAll(List<? extends Future<?>> futures) {
+        for (Future<?> future : futures) {
+            future.cancel(true);
+        }
+    }
+    
+    /**
+     * Apply the tasks returned by Google for all lists to Room in a single transaction.
+     * Deleted tasks are removed; known tasks keep their local ID and app-only fields,
+     * so every Google task maps to exactly one row.
+     * After a full download, synced rows that Google no longer returned are dropped.
+     * Rows with local changes still in the outbox keep their values until those are sent,
+     * and rows whose content hash matches what Google returned aren't written at all.
+     * Changed rows are merged field by field with {@link TaskMergeEngine}; where Room holds
+     * the newer value, Google is patched to match.
+     */
+    private void applyGoogleChanges(List<ListChanges> results, boolean fullSync) {
+        TaskDatabase database = TaskDatabase.getInstance(context);
+        TaskDao taskDao = database.taskDao();
+        TaskLocationDao taskLocationDao = database.taskLocationDao();
+        List<Task> changedTasks = new ArrayList<>();
+        List<String> removedTaskIds = new ArrayList<>();
+        // Google's copy and the merged row, for tasks where Google lost a field
+        List<Task[]> staleInGoogle = new ArrayList<>();
+        
+        database.runInTransaction(() -> {
+            if (fullSync) {
+                taskDao.deleteUnownedSyncedTasks();
+            }
+            // One query for the user's known rows instead of a lookup per task
+            TaskIdentityMapper identityMapper = new TaskIdentityMapper(taskDao.getSyncedTasksByUser(userEmail));
+            Map<String, Long> storedHashes = new HashMap<>();
+            for (TaskDao.StoredHash row : taskDao.getContentHashesByUser(userEmail)) {
+                storedHashes.put(row.id, row.contentHash);
+            }
+            Set<String> pendingTaskIds = new HashSet<>(database.pendingOperationDao().getPendingTaskIds());
             
-            // For each existing task
-            for (Task existingTask : existingTasks) {
-                // Skip self-comparison if this is an edit operation
-                if (newTask.getId().equals(existingTask.getId())) {
-                    continue;
-                }
-                
-                // Skip tasks without proper time info
-                if (existingTask.getStartTime() == null || existingTask.getEndTime() == null || 
-                    existingTask.getStartTime().isEmpty() || existingTask.getEndTime().isEmpty() ||
-                    existingTask.getDate() == null) {
-                    continue;
-                }
-                
-                // Check if the date matches
-                Calendar existingTaskCal = Calendar.getInstance();
-                existingTaskCal.setTime(existingTask.getDate());
-                
-                // Only check tasks on the same date
-                if (existingTaskCal.get(Calendar.YEAR) == newTaskYear &&
-                    existingTaskCal.get(Calendar.MONTH) == newTaskMonth &&
-                    existingTaskCal.get(Calendar.DAY_OF_MONTH) == newTaskDay) {
-                    
-                    // Parse existing task time
-                    Date existingTaskStartTime = timeFormat.parse(existingTask.getStartTime());
-                    Date existingTaskEndTime = timeFormat.parse(existingTask.getEndTime());
-                    
-                    if (existingTaskStartTime == null || existingTaskEndTime == null) {
+            Set<String> seenGoogleTaskIds = new HashSet<>();
+            for (ListChanges changes : results) {
+                for (com.google.api.services.tasks.model.Task googleTask : changes.tasks) {
+                    if (Boolean.TRUE.equals(googleTask.getDeleted())) {
+                        String localId = identityMapper.localIdOf(googleTask.getId());
+                        if (localId != null) {
+                            removedTaskIds.add(localId);
+                        }
+                        taskDao.deleteTaskByGoogleTaskId(googleTask.getId());
+                        taskLocationDao.deleteLocation(googleTask.getId());
+                        identityMapper.forget(googleTask.getId());
                         continue;
                     }
+                    seenGoogleTaskIds.add(googleTask.getId());
+                    taskLocationDao.insertOrUpdate(new TaskLocation(googleTask.getId(), changes.taskListId));
                     
-                    // Check for time overlap
-                    // Conflict exists if:
-                    // - New task starts during existing task (newStart >= existingStart AND newStart < existingEnd)
-                    // - New task ends during existing task (newEnd > existingStart AND newEnd <= existingEnd)
-                    // - New task completely contains existing task (newStart <= existingStart AND newEnd >= existingEnd)
+                    Task storedTask = identityMapper.rowOf(googleTask.getId());
+                    Task localTask = identityMapper.map(convertFromGoogleTask(googleTask));
+                    if (pendingTaskIds.contains(localTask.getId())) {
+                        continue;
+                    }
+                    localTask.setUserEmail(userEmail);
+                    // Google returns every task on a full download; most of them haven't changed
+                    Long storedHash = storedHashes.get(localTask.getId());
+                    if (storedHash != null && storedHash == localTask.getContentHash()) {
+                        continue;
+                    }
                     
-                    boolean newStartsDuringExisting = !newTaskStartTime.before(existingTaskStartTime) && 
-                                                       newTaskStartTime.before(existingTaskEndTime);
-                                                       
-                    boolean newEndsDuringExisting = newTaskEndTime.after(existingTaskStartTime) && 
-                                                   !newTaskEndTime.after(existingTaskEndTime);
-                                                   
-                    boolean newContainsExisting = !newTaskStartTime.after(existingTaskStartTime) && 
-                                                  !newTaskEndTime.before(existingTaskEndTime);
-                                                  
-                    if (newStartsDuringExisting || newEndsDuringExisting || newContainsExisting) {
-                        Log.d(TAG, "Time conflict found with task: " + existingTask.getTitle());
-                        return true; // Conflict found
+                    // What Google changed is as new as its last update; a field edited more
+                    // recently elsewhere (e.g. on another device, via Firestore) keeps that edit
+                    long googleVersion = versionOf(googleTask);
+                    if (storedTask == null) {
+                        TaskMergeEngine.stampAll(localTask, googleVersion);
+                    } else {
+                        localTask.setFieldVersions(new HashMap<>(storedTask.getFieldVersions()));
+                        for (String field : TaskMergeEngine.changedFields(storedTask, localTask)) {
+                            localTask.setFieldVersion(field, googleVersion);
+                        }
+                        TaskMergeEngine.Result merge = TaskMergeEngine.merge(storedTask, localTask, false);
+                        if (!merge.getLocalWins().isEmpty()) {
+                            staleInGoogle.add(new Task[] {localTask, merge.getMerged()});
+                        }
+                        localTask = merge.getMerged();
+                        localTask.setUserEmail(userEmail);
                     }
+                    taskDao.insertOrUpdate(localTask);
+                    changedTasks.add(localTask);
                 }
             }
             
-        } catch (ParseException e) {
-            Log.e(TAG, "Error parsing task times", e);
-            return false; // On error, assume no conflict
-        }
+            if (fullSync) {
+                for (Task syncedTask : taskDao.getSyncedTasksByUser(userEmail)) {
+                    if (!seenGoogleTaskIds.contains(syncedTask.getGoogleTaskId())) {
+                        taskDao.deleteTask(syncedTask);
+                        removedTaskIds.add(syncedTask.getId());
+                    }
+                }
+            }
+        });
         
-        return false; // No conflicts found
+        // Keep conflict checks current without rebuilding the index
+        TimeConflictIndex.getInstance(context, userEmail).applyChanges(changedTasks, removedTaskIds);
+        for (Task[] stale : staleInGoogle) {
+            enqueueUpdate(stale[0], stale[1]);
+        }
     }
     
     /**
-     * Callback interface for time conflict check
+     * Version for fields Google changed: the time Google last updated the task
      */
-    public interface TimeConflictCallback {
-        void onConflictCheckComplete(boolean hasConflict);
+    private static long versionOf(com.google.api.services.tasks.model.Task googleTask) {
+        if (googleTask.getUpdated() != null) {
+            try {
+                return DateTime.parseRfc3339(googleTask.getUpdated()).getValue();
+            } catch (NumberFormatException e) {
+                Log.w(TAG, "Unreadable update time for task " + googleTask.getId());
+            }
+        }
+        return VersionClock.now();
+    }
+
+    /**
+     * Converts a Google Task to our local Task model
+     */
+    private Task convertFromGoogleTask(com.google.api.services.tasks.model.Task googleTask) {
+        return taskParser.parse(googleTask);
+    }
+
+    /**
+     * Callback for retrieving tasks
+     */
+    public interface TasksCallback {
+        void onSuccess(List<Task> tasks);
+        void onFailure(Exception e);
     }
 
     /**
-     * Updates the completion status of a task in Google Tasks
+     * Updates the completion status of a task in Google Tasks.
+     * Returns at once; the change is sent by the outbox.
      * 
      * @param task The task to update
      * @param isCompleted Whether the task should be marked as completed
      */
     public void updateTaskStatus(Task task, boolean isCompleted) {
-        executor.execute(() -> {
-            try {
-                if (task.getGoogleTaskId() != null) {
-                    // First, we need to find which task list contains this task
-                    TaskLists taskLists = service.tasklists().list().execute();
-                    
-                    if (taskLists.getItems() != null) {
-                        for (com.google.api.services.tasks.model.TaskList taskList : taskLists.getItems()) {
-                            try {
-                                // Get the task from Google Tasks
-                                com.google.api.services.tasks.model.Task googleTask = 
-                                    service.tasks().get(taskList.getId(), task.getGoogleTaskId()).execute();
-                                
-                                // Update completion status
-                                if (isCompleted) {
-                                    // Set completed timestamp to now (RFC 3339 format)
-                                    SimpleDateFormat rfc3339Format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'", Locale.US);
-                                    rfc3339Format.setTimeZone(TimeZone.getTimeZone("UTC"));
-                                    String completedTime = rfc3339Format.format(new Date());
-                                    googleTask.setCompleted(completedTime);
-                                    googleTask.setStatus("completed");
-                                } else {
-                                    // Clear completed timestamp
-                                    googleTask.setCompleted(null);
-                                    googleTask.setStatus("needsAction");
-                                }
-                                
-                                // Update the task
-                                service.tasks().update(taskList.getId(), task.getGoogleTaskId(), googleTask).execute();
-                                
-                                // Success, no need to continue searching other task lists
-                                Log.d(TAG, "Task status updated successfully for: " + task.getTitle());
-                                return;
-                            } catch (IOException e) {
-                                // Task not found in this list, continue to next list
-                                continue;
-                            }
-                        }
-                    }
-                    
-                    Log.e(TAG, "Task not found in any list: " + task.getGoogleTaskId());
-                }
-            } catch (Exception e) {
-                Log.e(TAG, "Error updating task status", e);
-            }
-        });
+        invalidateCache();
+        // Only status and completed are sent, the server keeps everything else.
+        // The outbox retries until it gets through, even across restarts.
+        outbox.enqueuePatch(userEmail, task, TaskPatchBuilder.statusPatch(isCompleted));
     }
     
     /**
-     * Deletes a task from Google Tasks
+     * Queue a patch bringing Google's copy of a task from previous to updated.
+     * Returns at once; the change is sent by the outbox.
+     */
+    public void enqueueUpdate(Task previous, Task updated) {
+        if (updated.getGoogleTaskId() == null) {
+            return;
+        }
+        TaskPatchBuilder builder = patchBetween(previous, updated);
+        if (!builder.isEmpty()) {
+            invalidateCache();
+            outbox.enqueuePatch(userEmail, updated, builder.build());
+        }
+    }
+    
+    private TaskPatchBuilder patchBetween(Task previous, Task updated) {
+        return TaskPatchBuilder
+                .diff(convertToGoogleTask(previous), convertToGoogleTask(updated))
+                .completed("COMPLETED".equals(previous.getStatus()), "COMPLETED".equals(updated.getStatus()));
+    }
+    
+    /**
+     * Deletes a task from Room and Google Tasks.
+     * Returns at once; the delete is sent by the outbox.
      * 
      * @param task The task to delete
      */
     public void deleteTask(Task task) {
-        executor.execute(() -> {
-            try {
-                if (task.getGoogleTaskId() != null) {
-                    // First, we need to find which task list contains this task
-                    TaskLists taskLists = service.tasklists().list().execute();
-                    
-                    if (taskLists.getItems() != null) {
-                        for (com.google.api.services.tasks.model.TaskList taskList : taskLists.getItems()) {
-                            try {
-                                // Try to delete the task from this list
-                                service.tasks().delete(taskList.getId(), task.getGoogleTaskId()).execute();
-                                
-                                // Success, no need to continue searching other task lists
-                                Log.d(TAG, "Task deleted successfully: " + task.getTitle());
-                                return;
-                            } catch (IOException e) {
-                                // Task not found in this list, continue to next list
-                                continue;
-                            }
-                        }
-                    }
-                    
-                    Log.e(TAG, "Task not found in any list: " + task.getGoogleTaskId());
-                }
-            } catch (Exception e) {
-                Log.e(TAG, "Error deleting task", e);
-            }
-        });
+        invalidateCache();
+        TimeConflictIndex.getInstance(context, userEmail).remove(task.getId());
+        outbox.enqueueDelete(userEmail, task);
     }
     
     // Get all task lists for the user
     public void getTaskLists(@NonNull TaskListsCallback callback) {
         // Use cached task lists if available to reduce API calls
-        if (cachedTaskLists != null) {
-            callback.onSuccess(cachedTaskLists);
+        List<TaskList> cached = taskListCache.get();
+        if (cached != null) {
+            callback.onSuccess(cached);
             return;
         }
         
         executorService.execute(() -> {
             try {
-                TaskLists result = mService.tasklists().list().execute();
-                List<com.google.api.services.tasks.model.TaskList> items = result.getItems();
-                
-                List<TaskList> taskLists = new ArrayList<>();
-                if (items != null) {
-                    for (com.google.api.services.tasks.model.TaskList item : items) {
-                        TaskList taskList = new TaskList();
-                        taskList.setId(item.getId());
-                        taskList.setTitle(item.getTitle());
-                        taskLists.add(taskList);
-                    }
-                }
-                
-                // Cache the task lists for future use
-                cachedTaskLists = taskLists;
-                callback.onSuccess(taskLists);
+                callback.onSuccess(getTaskListsBlocking());
             } catch (IOException e) {
                 callback.onFailure(e);
             }
@@ -768,18 +1026,15 @@ public class TaskService {
     private void getTasksFromList(String taskListId, @NonNull TasksCallback callback) {
         executorService.execute(() -> {
             try {
-                com.google.api.services.tasks.model.Tasks result = mService
-                        .tasks()
+                TaskPager pager = new TaskPager(service.tasks()
                         .list(taskListId)
-                        .execute();
-                
-                List<com.google.api.services.tasks.model.Task> items = result.getItems();
+                        .setFields(GoogleApiFields.TASK_PAGE), userEmail);
                 List<Task> tasks = new ArrayList<>();
                 
-                if (items != null) {
-                    for (com.google.api.services.tasks.model.Task item : items) {
+                while (pager.hasNextPage()) {
+                    for (com.google.api.services.tasks.model.Task item : pager.nextPage()) {
                         Task task = new Task();
-                        task.setId(item.getId());  // Use the Google Task ID as the ID
+                        task.setId(TaskIdentityMapper.localIdFor(item.getId()));  // Same ID a sync would give this task
                         task.setGoogleTaskId(item.getId());  // Also store as Google Task ID for reference
                         task.setTitle(item.getTitle());
                         task.setDescription(item.getNotes());
@@ -828,28 +1083,217 @@ public class TaskService {
     
     // Find which task list contains a specific task
     private String getTaskListForTask(String taskId) throws IOException {
-        // Get all task lists
-        TaskLists result = mService.tasklists().list().execute();
-        List<com.google.api.services.tasks.model.TaskList> items = result.getItems();
-        
-        if (items != null) {
-            for (com.google.api.services.tasks.model.TaskList taskList : items) {
-                try {
-                    // Try to get the task from this task list
-                    mService.tasks().get(taskList.getId(), taskId).execute();
-                    // If no exception, task found in this list
-                    return taskList.getId();
-                } catch (IOException e) {
-                    // Task not found in this list, try next one
+        String[] found = new String[1];
+        if (runInTaskList(taskId, taskListId -> {
+            // Try to get the task from this task list
+            requests.execute(userEmail, service.tasks().get(taskListId, taskId).setFields(GoogleApiFields.ID));
+            found[0] = taskListId;
+        })) {
+            return found[0];
+        }
+        
+        // Default to first task list if task not found
+        List<TaskList> items = getTaskListsBlocking();
+        return !items.isEmpty() ? items.get(0).getId() : null;
+    }
+    
+    /**
+     * Whether a failed call means the task isn't in the list it was sent to.
+     * The API answers 404 for a task in another list and 400 for some malformed pairs.
+     */
+    private static boolean isMissingFromList(IOException e) {
+        return GoogleRequestExecutor.isNotFound(e)
+                || (e instanceof GoogleJsonResponseException && ((GoogleJsonResponseException) e).getStatusCode() == 400);
+    }
+    
+    /**
+     * An API call that targets a specific task list
+     */
+    private interface TaskListOperation {
+        void run(String taskListId) throws IOException;
+    }
+    
+    /**
+     * Run an operation against the list that holds a Google task.
+     * The location index answers for any task we have synced or created, so this is
+     * normally a single call. Lists are only tried one by one for unknown tasks, or when
+     * the indexed list no longer has the task because it was moved elsewhere.
+     *
+     * @return false if no list accepted the operation
+     */
+    private boolean runInTaskList(String googleTaskId, TaskListOperation operation) throws IOException {
+        TaskLocationDao taskLocationDao = TaskDatabase.getInstance(context).taskLocationDao();
+        String knownTaskListId = taskLocationDao.getTaskListId(googleTaskId);
+        if (knownTaskListId != null) {
+            try {
+                operation.run(knownTaskListId);
+                return true;
+            } catch (GoogleJsonResponseException e) {
+                if (e.getStatusCode() != 404) {
+                    throw e;
                 }
+                Log.w(TAG, "Task is no longer in its indexed list: " + googleTaskId);
+                taskLocationDao.deleteLocation(googleTaskId);
             }
         }
         
-        // Default to first task list if task not found
-        return items != null && !items.isEmpty() ? items.get(0).getId() : null;
+        for (TaskList taskList : getTaskListsBlocking()) {
+            if (taskList.getId().equals(knownTaskListId)) {
+                continue;
+            }
+            try {
+                operation.run(taskList.getId());
+                rememberTaskLocation(googleTaskId, taskList.getId());
+                return true;
+            } catch (IOException e) {
+                if (!isMissingFromList(e)) {
+                    // Quota, auth or network trouble; trying the other lists wouldn't help
+                    throw e;
+                }
+                // Task not found in this list, continue to next list
+            }
+        }
+        
+        // The task may live in a list created after the cache was filled
+        taskListCache.invalidate();
+        return false;
+    }
+    
+    private void rememberTaskLocation(String googleTaskId, String taskListId) {
+        TaskDatabase.getInstance(context).taskLocationDao().insertOrUpdate(new TaskLocation(googleTaskId, taskListId));
+    }
+    
+    private void forgetTaskLocation(String googleTaskId) {
+        TaskDatabase.getInstance(context).taskLocationDao().deleteLocation(googleTaskId);
     }
     
-    public void shutdown() {
-        executorService.shutdown();
+    /**
+     * A patch or delete for {@link #sendBatchBlocking}, holding its outcome once sent
+     */
+    public static class BatchedChange {
+        private final String googleTaskId;
+        // Null for a delete
+        private final com.google.api.services.tasks.model.Task patch;
+        private volatile boolean applied;
+        private volatile IOException error;
+        
+        private BatchedChange(String googleTaskId, com.google.api.services.tasks.model.Task patch) {
+            this.googleTaskId = googleTaskId;
+            this.patch = patch;
+        }
+        
+        public static BatchedChange patch(String googleTaskId, com.google.api.services.tasks.model.Task patch) {
+            return new BatchedChange(googleTaskId, patch);
+        }
+        
+        public static BatchedChange delete(String googleTaskId) {
+            return new BatchedChange(googleTaskId, null);
+        }
+        
+        /**
+         * False if the task isn't in any of the user's lists
+         */
+        public boolean isApplied() {
+            return applied;
+        }
+        
+        /**
+         * Why the change couldn't be sent, or null if it was
+         */
+        public IOException getError() {
+            return error;
+        }
+    }
+    
+    /**
+     * Send several patches and deletes, each for a different task, and wait until every one
+     * has an outcome. Changes for tasks whose list is in the location index go out through
+     * the {@link TasksBatcher}, so they take as few HTTP round trips as possible. The rest,
+     * and tasks no longer in their indexed list, are sent one at a time like
+     * {@link #patchTaskBlocking} and {@link #deleteTaskBlocking}.
+     * Blocks, so must be called off the main thread.
+     */
+    public void sendBatchBlocking(List<BatchedChange> changes) {
+        TaskLocationDao taskLocationDao = TaskDatabase.getInstance(context).taskLocationDao();
+        Map<String, String> taskListIds = new HashMap<>();
+        for (BatchedChange change : changes) {
+            String taskListId = taskLocationDao.getTaskListId(change.googleTaskId);
+            if (taskListId != null) {
+                taskListIds.put(change.googleTaskId, taskListId);
+            }
+        }
+        
+        CountDownLatch sent = new CountDownLatch(taskListIds.size());
+        for (BatchedChange change : changes) {
+            String taskListId = taskListIds.get(change.googleTaskId);
+            if (taskListId == null) {
+                continue;
+            }
+            try {
+                if (change.patch != null) {
+                    batcher.queuePatch(taskListId, change.googleTaskId, change.patch, settleInto(change, sent));
+                } else {
+                    batcher.queueDelete(taskListId, change.googleTaskId, settleInto(change, sent));
+                }
+            } catch (IOException e) {
+                change.error = e;
+                sent.countDown();
+            }
+        }
+        batcher.flush();
+        try {
+            sent.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            for (BatchedChange change : changes) {
+                if (!change.applied && change.error == null) {
+                    change.error = new InterruptedIOException("Interrupted waiting for the batch");
+                }
+            }
+            return;
+        }
+        Log.d(TAG, "Sent " + taskListIds.size() + " of " + changes.size() + " task changes in batches");
+        
+        for (BatchedChange change : changes) {
+            boolean indexed = taskListIds.containsKey(change.googleTaskId);
+            boolean moved = indexed && change.error != null && isMissingFromList(change.error);
+            if (indexed && !moved) {
+                if (change.applied && change.patch == null) {
+                    forgetTaskLocation(change.googleTaskId);
+                }
+                continue;
+            }
+            if (moved) {
+                Log.w(TAG, "Task is no longer in its indexed list: " + change.googleTaskId);
+                taskLocationDao.deleteLocation(change.googleTaskId);
+            }
+            change.error = null;
+            try {
+                change.applied = change.patch != null
+                        ? patchTaskBlocking(change.googleTaskId, change.patch)
+                        : deleteTaskBlocking(change.googleTaskId);
+            } catch (IOException e) {
+                change.error = e;
+            }
+        }
+    }
+    
+    /**
+     * Records the batcher's answer for one change
+     */
+    private static <T> TasksBatcher.OperationCallback<T> settleInto(BatchedChange change, CountDownLatch sent) {
+        return new TasksBatcher.OperationCallback<T>() {
+            @Override
+            public void onSuccess(T result) {
+                change.applied = true;
+                sent.countDown();
+            }
+            
+            @Override
+            public void onFailure(Exception e) {
+                change.error = e instanceof IOException ? (IOException) e : new IOException(e);
+                sent.countDown();
+            }
+        };
     }
 }
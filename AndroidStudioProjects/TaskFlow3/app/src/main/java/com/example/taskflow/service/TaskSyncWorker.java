@@ -0,0 +1,181 @@
+package com.example.taskflow.service;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.preference.PreferenceManager;
+import androidx.work.Constraints;
+import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.example.taskflow.model.Task;
+import com.google.android.gms.auth.api.signin.GoogleSignIn;
+import com.google.android.gms.auth.api.signin.GoogleSignInAccount;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Syncs the signed-in account with Google Tasks and Firestore in the background, so Room
+ * already holds fresh tasks when a screen opens and the screen never has to wait on the
+ * network.
+ *
+ * Runs only while "data_sync_enabled" is on, the device is online and the battery isn't
+ * low. The interval follows how recently the app was used: every half hour while the user
+ * is active, stretching to a few times a day once they haven't opened it for a while.
+ */
+public class TaskSyncWorker extends Worker {
+    private static final String TAG = "TaskSyncWorker";
+    private static final String WORK_NAME = "task-sync";
+    public static final String PREF_DATA_SYNC_ENABLED = "data_sync_enabled";
+    
+    private static final String PREFS_NAME = "task_sync_worker";
+    private static final String KEY_LAST_ACTIVE = "last_active";
+    private static final String KEY_INTERVAL = "interval_minutes";
+    
+    // How long since the app was last in the foreground -> how often to sync
+    private static final long ACTIVE_WINDOW_MS = 2 * 60 * 60 * 1000; // 2 hours
+    private static final long RECENT_WINDOW_MS = 24 * 60 * 60 * 1000; // 1 day
+    private static final long ACTIVE_INTERVAL_MINUTES = 30;
+    private static final long RECENT_INTERVAL_MINUTES = 2 * 60;
+    private static final long IDLE_INTERVAL_MINUTES = 8 * 60;
+    
+    // Leave WorkManager's 10 minute limit some headroom
+    private static final long SYNC_TIMEOUT_MINUTES = 8;
+    
+    public TaskSyncWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+    
+    /**
+     * Schedule the periodic sync, or cancel it if data sync is turned off.
+     * Call again whenever the setting changes.
+     */
+    public static void schedule(Context context) {
+        if (!isEnabled(context)) {
+            cancel(context);
+            return;
+        }
+        long interval = intervalMinutes(context);
+        boolean unchanged = prefs(context).getLong(KEY_INTERVAL, -1) == interval;
+        enqueue(context, interval, unchanged ? ExistingPeriodicWorkPolicy.KEEP : ExistingPeriodicWorkPolicy.UPDATE);
+    }
+    
+    /**
+     * Record that the user has the app open. Moves the sync back to the short interval
+     * if it had slowed down while the app was idle.
+     */
+    public static void onUserActive(Context context) {
+        prefs(context).edit().putLong(KEY_LAST_ACTIVE, System.currentTimeMillis()).apply();
+        reschedule(context);
+    }
+    
+    public static void cancel(Context context) {
+        WorkManager.getInstance(context).cancelUniqueWork(WORK_NAME);
+        prefs(context).edit().remove(KEY_INTERVAL).apply();
+    }
+    
+    private static boolean isEnabled(Context context) {
+        return PreferenceManager.getDefaultSharedPreferences(context).getBoolean(PREF_DATA_SYNC_ENABLED, true);
+    }
+    
+    private static SharedPreferences prefs(Context context) {
+        return context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+    
+    private static long intervalMinutes(Context context) {
+        long idleMillis = System.currentTimeMillis() - prefs(context).getLong(KEY_LAST_ACTIVE, 0);
+        if (idleMillis < ACTIVE_WINDOW_MS) {
+            return ACTIVE_INTERVAL_MINUTES;
+        }
+        if (idleMillis < RECENT_WINDOW_MS) {
+            return RECENT_INTERVAL_MINUTES;
+        }
+        return IDLE_INTERVAL_MINUTES;
+    }
+    
+    /**
+     * Re-enqueue only when the interval actually changes, so calls on every screen
+     * don't disturb the schedule
+     */
+    private static void reschedule(Context context) {
+        if (!isEnabled(context)) {
+            return;
+        }
+        long interval = intervalMinutes(context);
+        if (prefs(context).getLong(KEY_INTERVAL, -1) != interval) {
+            enqueue(context, interval, ExistingPeriodicWorkPolicy.UPDATE);
+        }
+    }
+    
+    private static void enqueue(Context context, long intervalMinutes, ExistingPeriodicWorkPolicy policy) {
+        Constraints constraints = new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.CONNECTED)
+                .setRequiresBatteryNotLow(true)
+                .build();
+        PeriodicWorkRequest request = new PeriodicWorkRequest.Builder(
+                TaskSyncWorker.class, intervalMinutes, TimeUnit.MINUTES)
+                .setConstraints(constraints)
+                .build();
+        WorkManager.getInstance(context).enqueueUniquePeriodicWork(WORK_NAME, policy, request);
+        prefs(context).edit().putLong(KEY_INTERVAL, intervalMinutes).apply();
+        Log.d(TAG, "Background sync every " + intervalMinutes + " minutes");
+    }
+    
+    @NonNull
+    @Override
+    public Result doWork() {
+        Context context = getApplicationContext();
+        if (!isEnabled(context)) {
+            cancel(context);
+            return Result.success();
+        }
+        
+        GoogleSignInAccount account = GoogleSignIn.getLastSignedInAccount(context);
+        if (account == null || account.getEmail() == null) {
+            Log.d(TAG, "Not signed in, nothing to sync");
+            return Result.success();
+        }
+        
+        // Pushes the outbox, then pulls Google Tasks and Firestore; joins a sync a screen
+        // may already have started, and its result lands in Room
+        CountDownLatch done = new CountDownLatch(1);
+        AtomicBoolean succeeded = new AtomicBoolean();
+        SyncOrchestrator.getInstance(context).sync(account.getEmail(), new SyncOrchestrator.SyncCallback() {
+            @Override
+            public void onSuccess(List<Task> tasks) {
+                Log.d(TAG, "Background sync finished with " + tasks.size() + " tasks");
+                succeeded.set(true);
+                done.countDown();
+            }
+            
+            @Override
+            public void onFailure(Exception e) {
+                Log.e(TAG, "Background sync failed", e);
+                done.countDown();
+            }
+        });
+        
+        try {
+            if (!done.await(SYNC_TIMEOUT_MINUTES, TimeUnit.MINUTES)) {
+                Log.w(TAG, "Background sync timed out");
+                return Result.retry();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Result.retry();
+        }
+        
+        // Slow down if the user hasn't been around lately
+        reschedule(context);
+        return succeeded.get() ? Result.success() : Result.retry();
+    }
+}
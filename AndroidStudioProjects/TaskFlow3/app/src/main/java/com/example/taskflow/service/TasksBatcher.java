@@ -0,0 +1,255 @@
+package com.example.taskflow.service;
+
+import android.util.Log;
+
+import com.example.taskflow.util.VersionClock;
+import com.google.api.client.googleapis.batch.BatchRequest;
+import com.google.api.client.googleapis.batch.json.JsonBatchCallback;
+import com.google.api.client.googleapis.json.GoogleJsonError;
+import com.google.api.client.googleapis.json.GoogleJsonResponseException;
+import com.google.api.client.http.HttpHeaders;
+import com.google.api.client.http.HttpResponseException;
+import com.google.api.services.tasks.Tasks;
+import com.google.api.services.tasks.TasksRequest;
+import com.google.api.services.tasks.model.Task;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coalesces Google Tasks mutations into HTTP batch requests.
+ *
+ * Operations are queued and sent together once the queue holds {@link #MAX_BATCH_SIZE}
+ * operations or {@link #FLUSH_WINDOW_MS} has passed since the first one was queued,
+ * whichever comes first. Each operation's callback is invoked with its own result
+ * on the batcher's thread.
+ *
+ * A batch is charged against the account's rate limit one token per operation.
+ * Operations that come back rate-limited or with a 5xx are sent again in a later batch
+ * after a backoff, instead of being reported as failures.
+ */
+public class TasksBatcher {
+    private static final String TAG = "TasksBatcher";
+    
+    // The Tasks API accepts at most 50 calls in one batch request
+    static final int MAX_BATCH_SIZE = 50;
+    static final long FLUSH_WINDOW_MS = 250;
+    
+    private final Tasks service;
+    private final String accountName;
+    private final GoogleRequestExecutor requests = GoogleRequestExecutor.getInstance();
+    private final ScheduledExecutorService scheduler = newScheduler();
+    private final List<PendingOperation<?>> queue = new ArrayList<>();
+    private ScheduledFuture<?> scheduledFlush;
+    
+    public interface OperationCallback<T> {
+        void onSuccess(T result);
+        void onFailure(Exception e);
+    }
+    
+    /**
+     * A queued request together with the callback waiting for its result
+     */
+    private static class PendingOperation<T> {
+        final TasksRequest<T> request;
+        final OperationCallback<T> callback;
+        // Set once the callback has been told the outcome
+        boolean completed;
+        // Batches this operation has been sent in so far
+        int attempts;
+        // Set when the last batch answered with a failure worth retrying
+        boolean retry;
+        boolean rateLimited;
+        
+        PendingOperation(TasksRequest<T> request, OperationCallback<T> callback) {
+            this.request = request;
+            this.callback = callback;
+        }
+        
+        void queueInto(BatchRequest batch) throws IOException {
+            attempts++;
+            retry = false;
+            rateLimited = false;
+            request.queue(batch, new JsonBatchCallback<T>() {
+                @Override
+                public void onSuccess(T result, HttpHeaders responseHeaders) {
+                    completed = true;
+                    VersionClock.observeServerDate(responseHeaders.getDate());
+                    if (callback != null) {
+                        callback.onSuccess(result);
+                    }
+                }
+                
+                @Override
+                public void onFailure(GoogleJsonError error, HttpHeaders responseHeaders) {
+                    String reason = GoogleRequestExecutor.reasonOf(error);
+                    if (attempts < GoogleRequestExecutor.MAX_ATTEMPTS
+                            && GoogleRequestExecutor.isRetryable(error.getCode(), reason,
+                                    GoogleRequestExecutor.isIdempotent(request.getRequestMethod()))) {
+                        retry = true;
+                        rateLimited = GoogleRequestExecutor.isRateLimited(error.getCode(), reason);
+                        return;
+                    }
+                    completed = true;
+                    if (callback != null) {
+                        // Same exception a single request would throw, so callers can tell a 404 from a 400
+                        callback.onFailure(new GoogleJsonResponseException(
+                                new HttpResponseException.Builder(error.getCode(), error.getMessage(), responseHeaders),
+                                error));
+                    }
+                }
+            });
+        }
+        
+        void fail(Exception e) {
+            if (!completed && callback != null) {
+                callback.onFailure(e);
+            }
+        }
+    }
+    
+    public TasksBatcher(Tasks service, String accountName) {
+        this.service = service;
+        this.accountName = accountName;
+    }
+    
+    public void queueInsert(String taskListId, Task task, OperationCallback<Task> callback) throws IOException {
+        enqueue(new PendingOperation<>(service.tasks().insert(taskListId, task).setFields(GoogleApiFields.ID), callback));
+    }
+    
+    public void queuePatch(String taskListId, String taskId, Task changes, OperationCallback<Task> callback) throws IOException {
+        enqueue(new PendingOperation<>(service.tasks().patch(taskListId, taskId, changes).setFields(GoogleApiFields.ID), callback));
+    }
+    
+    public void queueDelete(String taskListId, String taskId, OperationCallback<Void> callback) throws IOException {
+        enqueue(new PendingOperation<>(service.tasks().delete(taskListId, taskId), callback));
+    }
+    
+    /**
+     * Send everything queued so far without waiting for the window to elapse
+     */
+    public void flush() {
+        scheduler.execute(this::sendQueued);
+    }
+    
+    public void shutdown() {
+        flush();
+        scheduler.shutdown();
+    }
+    
+    /**
+     * Single scheduler thread that exits when nothing is queued, so an idle batcher holds no thread
+     */
+    private static ScheduledExecutorService newScheduler() {
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1);
+        scheduler.setKeepAliveTime(60, TimeUnit.SECONDS);
+        scheduler.allowCoreThreadTimeOut(true);
+        return scheduler;
+    }
+    
+    private synchronized void enqueue(PendingOperation<?> operation) {
+        queue.add(operation);
+        if (queue.size() >= MAX_BATCH_SIZE) {
+            if (scheduledFlush != null) {
+                scheduledFlush.cancel(false);
+                scheduledFlush = null;
+            }
+            scheduler.execute(this::sendQueued);
+        } else if (scheduledFlush == null) {
+            scheduledFlush = scheduler.schedule(this::sendQueued, FLUSH_WINDOW_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+    
+    private synchronized List<PendingOperation<?>> drain() {
+        scheduledFlush = null;
+        int count = Math.min(queue.size(), MAX_BATCH_SIZE);
+        List<PendingOperation<?>> operations = new ArrayList<>(queue.subList(0, count));
+        queue.subList(0, count).clear();
+        return operations;
+    }
+    
+    private void sendQueued() {
+        List<PendingOperation<?>> operations = drain();
+        while (!operations.isEmpty()) {
+            send(operations);
+            operations = drain();
+        }
+    }
+    
+    private void send(List<PendingOperation<?>> operations) {
+        // A batch of one is just overhead
+        if (operations.size() == 1) {
+            sendSingle(operations.get(0));
+            return;
+        }
+        
+        try {
+            BatchRequest batch = service.batch();
+            for (PendingOperation<?> operation : operations) {
+                operation.queueInto(batch);
+            }
+            requests.acquire(accountName, operations.size());
+            batch.execute();
+            Log.d(TAG, "Sent batch of " + operations.size() + " task operations");
+        } catch (IOException e) {
+            Log.e(TAG, "Batch request failed", e);
+            for (PendingOperation<?> operation : operations) {
+                operation.fail(e);
+            }
+            return;
+        }
+        
+        retryLater(operations);
+    }
+    
+    /**
+     * Send the operations that asked to be retried in a new batch after a backoff
+     */
+    private void retryLater(List<PendingOperation<?>> operations) {
+        List<PendingOperation<?>> retries = new ArrayList<>();
+        boolean rateLimited = false;
+        int attempts = 0;
+        for (PendingOperation<?> operation : operations) {
+            if (operation.retry) {
+                retries.add(operation);
+                rateLimited |= operation.rateLimited;
+                attempts = Math.max(attempts, operation.attempts);
+            }
+        }
+        if (retries.isEmpty()) {
+            return;
+        }
+        
+        long delay = GoogleRequestExecutor.backoffDelayMillis(attempts);
+        if (rateLimited) {
+            // Everything else for this account should slow down too
+            requests.onRateLimited(accountName, delay);
+        }
+        Log.w(TAG, "Retrying " + retries.size() + " task operations in " + delay + " ms");
+        try {
+            scheduler.schedule(() -> send(retries), delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Shut down in the meantime
+            for (PendingOperation<?> operation : retries) {
+                operation.fail(new IOException("Batcher shut down before retrying"));
+            }
+        }
+    }
+    
+    private <T> void sendSingle(PendingOperation<T> operation) {
+        try {
+            T result = requests.execute(accountName, operation.request);
+            if (operation.callback != null) {
+                operation.callback.onSuccess(result);
+            }
+        } catch (IOException e) {
+            operation.fail(e);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.taskflow.util;
+
+import java.util.Date;
+
+/**
+ * 64-bit FNV-1a hash built up field by field, for telling whether a record changed
+ * without comparing it to the stored copy field by field.
+ *
+ * Each value is prefixed with its length, so null, "" and values that merely run into
+ * each other ("ab" + "c" vs "a" + "bc") all hash differently.
+ */
+public final class ContentHash {
+    private static final long OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long PRIME = 0x100000001b3L;
+    
+    private long hash = OFFSET_BASIS;
+    
+    public ContentHash add(String value) {
+        if (value == null) {
+            mix(-1);
+            return this;
+        }
+        mix(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            mix(value.charAt(i));
+        }
+        return this;
+    }
+    
+    public ContentHash add(Date value) {
+        if (value == null) {
+            mix(-1);
+            return this;
+        }
+        long time = value.getTime();
+        mix((int) (time >>> 32));
+        mix((int) time);
+        return this;
+    }
+    
+    public long get() {
+        return hash;
+    }
+    
+    private void mix(int value) {
+        for (int shift = 0; shift < 32; shift += 8) {
+            hash ^= (value >>> shift) & 0xff;
+            hash *= PRIME;
+        }
+    }
+}
@@ -54,7 +54,7 @@ public class EmailNotificationUtil {
         String displayDate = displayFormat.format(tomorrow);
         
         // Fetch actual tasks for tomorrow using TaskService
-        TaskService taskService = new TaskService(context, userEmail);
+        TaskService taskService = TaskService.getInstance(context, userEmail);
         taskService.getAllTasks(null, new TaskService.TasksCallback() {
             @Override
             public void onSuccess(List<Task> allTasks) {
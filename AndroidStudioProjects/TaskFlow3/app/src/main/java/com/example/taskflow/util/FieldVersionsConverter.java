@@ -0,0 +1,43 @@
+package com.example.taskflow.util;
+
+import androidx.room.TypeConverter;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Stores a task's per-field versions as a small JSON object, e.g. {"status":1712345678901}
+ */
+public class FieldVersionsConverter {
+    @TypeConverter
+    public static Map<String, Long> fromJson(String value) {
+        Map<String, Long> versions = new HashMap<>();
+        if (value == null || value.isEmpty()) {
+            return versions;
+        }
+        try {
+            JSONObject json = new JSONObject(value);
+            Iterator<String> fields = json.keys();
+            while (fields.hasNext()) {
+                String field = fields.next();
+                versions.put(field, json.getLong(field));
+            }
+        } catch (JSONException e) {
+            // Unreadable versions count as never stamped; the next merge stamps them again
+            versions.clear();
+        }
+        return versions;
+    }
+
+    @TypeConverter
+    public static String toJson(Map<String, Long> versions) {
+        if (versions == null || versions.isEmpty()) {
+            return null;
+        }
+        return new JSONObject(versions).toString();
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.taskflow.util;
+
+/**
+ * Times of day as minutes since midnight, converted to and from the "hh:mm AM" strings
+ * stored on tasks.
+ *
+ * Parsing and formatting are done by hand on the characters, so working with a task's
+ * times allocates nothing beyond the resulting string and needs no Calendar.
+ */
+public final class TimeOfDay {
+    public static final int MINUTES_PER_DAY = 24 * 60;
+    
+    // Returned by parse for anything that isn't a valid time
+    public static final int INVALID = -1;
+    
+    private TimeOfDay() {
+    }
+    
+    /**
+     * Parse "h:mm AM" or "hh:mm PM" (case-insensitive AM/PM, surrounding whitespace ignored).
+     *
+     * @return minutes since midnight, or {@link #INVALID}
+     */
+    public static int parse(String time) {
+        if (time == null) {
+            return INVALID;
+        }
+        int start = 0;
+        int end = time.length();
+        while (start < end && time.charAt(start) == ' ') {
+            start++;
+        }
+        while (end > start && time.charAt(end - 1) == ' ') {
+            end--;
+        }
+        
+        // One or two hour digits, then exactly ":mm AM"
+        int colon = time.indexOf(':', start);
+        if (colon < start + 1 || colon > start + 2 || end - colon != 6) {
+            return INVALID;
+        }
+        
+        int hour = digits(time, start, colon);
+        int minute = digits(time, colon + 1, colon + 3);
+        if (hour < 1 || hour > 12 || minute < 0 || minute > 59 || time.charAt(colon + 3) != ' ') {
+            return INVALID;
+        }
+        
+        char meridiem = Character.toUpperCase(time.charAt(colon + 4));
+        if (Character.toUpperCase(time.charAt(colon + 5)) != 'M' || (meridiem != 'A' && meridiem != 'P')) {
+            return INVALID;
+        }
+        
+        int hourOfDay = hour % 12 + (meridiem == 'P' ? 12 : 0);
+        return hourOfDay * 60 + minute;
+    }
+    
+    /**
+     * Format minutes since midnight as "hh:mm AM", wrapping past midnight
+     */
+    public static String format(int minutes) {
+        int minuteOfDay = Math.floorMod(minutes, MINUTES_PER_DAY);
+        int hourOfDay = minuteOfDay / 60;
+        int minute = minuteOfDay % 60;
+        int hour = hourOfDay % 12 == 0 ? 12 : hourOfDay % 12;
+        
+        char[] chars = {
+                (char) ('0' + hour / 10), (char) ('0' + hour % 10), ':',
+                (char) ('0' + minute / 10), (char) ('0' + minute % 10), ' ',
+                hourOfDay < 12 ? 'A' : 'P', 'M'
+        };
+        return new String(chars);
+    }
+    
+    /**
+     * The time a number of minutes later, e.g. a default end time one hour after the start
+     */
+    public static String plusMinutes(String time, int minutes) {
+        int parsed = parse(time);
+        return parsed == INVALID ? null : format(parsed + minutes);
+    }
+    
+    private static int digits(String text, int from, int to) {
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return INVALID;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.taskflow.util;
+
+import android.os.SystemClock;
+
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Time source for the per-field versions stamped on tasks (see {@link com.example.taskflow.model.Task#stamp}).
+ *
+ * Local versions are compared with Google's server times, so a device clock running ahead
+ * would win every merge it takes part in. Once a server time has been seen, the device
+ * clock is clamped to that time plus the time elapsed since and {@link #MAX_AHEAD_MS}.
+ * Elapsed time is measured with {@link SystemClock#elapsedRealtime()}, which keeps counting
+ * in deep sleep and isn't affected by the user changing the clock. Until then the device
+ * clock is used as is.
+ */
+public final class VersionClock {
+    // Allowance for request latency and the one-second resolution of HTTP dates
+    static final long MAX_AHEAD_MS = 10 * 1000;
+    
+    private static final Object lock = new Object();
+    // Server time minus elapsed realtime, from the freshest server time seen so far
+    private static long serverOffset;
+    private static boolean synced;
+    
+    private VersionClock() {
+    }
+    
+    /**
+     * The current time for a new version, never more than {@link #MAX_AHEAD_MS} past server time
+     */
+    public static long now() {
+        long now = System.currentTimeMillis();
+        synchronized (lock) {
+            if (!synced) {
+                return now;
+            }
+            return Math.min(now, SystemClock.elapsedRealtime() + serverOffset + MAX_AHEAD_MS);
+        }
+    }
+    
+    /**
+     * Record the server's current time, e.g. from a response's Date header
+     */
+    public static void observeServerTime(long serverTimeMillis) {
+        long offset = serverTimeMillis - SystemClock.elapsedRealtime();
+        synchronized (lock) {
+            // Every server time is at or before the real time, so the largest offset is the tightest
+            if (!synced || offset > serverOffset) {
+                serverOffset = offset;
+                synced = true;
+            }
+        }
+    }
+    
+    /**
+     * Record the server time from an HTTP Date header; unreadable or missing dates are ignored
+     */
+    public static void observeServerDate(String httpDate) {
+        if (httpDate == null) {
+            return;
+        }
+        try {
+            ZonedDateTime date = ZonedDateTime.parse(httpDate, DateTimeFormatter.RFC_1123_DATE_TIME);
+            observeServerTime(date.toInstant().toEpochMilli());
+        } catch (DateTimeParseException e) {
+            // Not worth failing a request over; the next response will have another date
+        }
+    }
+}
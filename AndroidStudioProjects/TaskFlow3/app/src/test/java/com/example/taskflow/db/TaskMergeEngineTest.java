@@ -0,0 +1,155 @@
+package com.example.taskflow.db;
+
+import com.example.taskflow.model.Task;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Date;
+
+import static org.junit.Assert.*;
+
+/**
+ * Field-by-field merges of two copies of the same task
+ */
+public class TaskMergeEngineTest {
+    private static final long OLD = 1000;
+    private static final long NEW = 2000;
+    
+    @Test
+    public void newerRemoteVersion_wins() {
+        Task local = task();
+        local.setTitle("Local");
+        local.setFieldVersion("title", OLD);
+        Task remote = new Task(local);
+        remote.setTitle("Remote");
+        remote.setFieldVersion("title", NEW);
+        
+        TaskMergeEngine.Result result = TaskMergeEngine.merge(local, remote, true);
+        
+        assertEquals("Remote", result.getMerged().getTitle());
+        assertEquals(NEW, result.getMerged().getFieldVersion("title"));
+        assertEquals(Collections.singletonList("title"), result.getRemoteWins());
+        assertTrue(result.getLocalWins().isEmpty());
+    }
+    
+    @Test
+    public void newerLocalVersion_wins() {
+        Task local = task();
+        local.setTitle("Local");
+        local.setFieldVersion("title", NEW);
+        Task remote = new Task(local);
+        remote.setTitle("Remote");
+        remote.setFieldVersion("title", OLD);
+        
+        TaskMergeEngine.Result result = TaskMergeEngine.merge(local, remote, false);
+        
+        assertEquals("Local", result.getMerged().getTitle());
+        assertEquals(Collections.singletonList("title"), result.getLocalWins());
+        assertTrue(result.getRemoteWins().isEmpty());
+    }
+    
+    @Test
+    public void concurrentEditsToDifferentFields_bothSurvive() {
+        Task base = task();
+        base.setFieldVersion("title", OLD);
+        base.setFieldVersion(TaskMergeEngine.STATUS, OLD);
+        Task local = new Task(base);
+        local.setTitle("Renamed");
+        local.setFieldVersion("title", NEW);
+        Task remote = new Task(base);
+        remote.setStatus("COMPLETED");
+        remote.setFieldVersion(TaskMergeEngine.STATUS, NEW);
+        
+        Task merged = TaskMergeEngine.merge(local, remote, false).getMerged();
+        
+        assertEquals("Renamed", merged.getTitle());
+        assertEquals("COMPLETED", merged.getStatus());
+    }
+    
+    @Test
+    public void writeOnceTie_valueBeatsNoValue() {
+        Task local = task();
+        local.setFieldVersion("googleTaskId", OLD);
+        Task remote = new Task(local);
+        remote.setGoogleTaskId("google-1");
+        
+        TaskMergeEngine.Result result = TaskMergeEngine.merge(local, remote, true);
+        assertEquals("google-1", result.getMerged().getGoogleTaskId());
+        assertEquals(Collections.singletonList("googleTaskId"), result.getRemoteWins());
+        
+        result = TaskMergeEngine.merge(remote, local, false);
+        assertEquals("google-1", result.getMerged().getGoogleTaskId());
+        assertEquals(Collections.singletonList("googleTaskId"), result.getLocalWins());
+    }
+    
+    @Test
+    public void statusTie_movesForwardOnly() {
+        Task local = task();
+        local.setStatus("PENDING");
+        local.setFieldVersion(TaskMergeEngine.STATUS, OLD);
+        Task remote = new Task(local);
+        remote.setStatus("COMPLETED");
+        
+        TaskMergeEngine.Result result = TaskMergeEngine.merge(local, remote, true);
+        assertEquals("COMPLETED", result.getMerged().getStatus());
+        assertEquals(Collections.singletonList(TaskMergeEngine.STATUS), result.getRemoteWins());
+        
+        result = TaskMergeEngine.merge(remote, local, false);
+        assertEquals("COMPLETED", result.getMerged().getStatus());
+        assertEquals(Collections.singletonList(TaskMergeEngine.STATUS), result.getLocalWins());
+    }
+    
+    @Test
+    public void undecidedTie_keepsLocalValue_andCountsAsLocalWinOnlyWhenAsked() {
+        Task local = task();
+        local.setTitle("Local");
+        local.setFieldVersion("title", OLD);
+        Task remote = new Task(local);
+        remote.setTitle("Remote");
+        
+        TaskMergeEngine.Result result = TaskMergeEngine.merge(local, remote, false);
+        assertEquals("Local", result.getMerged().getTitle());
+        assertTrue(result.getLocalWins().isEmpty());
+        assertTrue(result.getRemoteWins().isEmpty());
+        
+        result = TaskMergeEngine.merge(local, remote, true);
+        assertEquals("Local", result.getMerged().getTitle());
+        assertEquals(Collections.singletonList("title"), result.getLocalWins());
+        assertTrue(result.getRemoteWins().isEmpty());
+    }
+    
+    @Test
+    public void equalValues_keepTheNewerVersion() {
+        Task local = task();
+        local.setFieldVersion("title", OLD);
+        Task remote = new Task(local);
+        remote.setFieldVersion("title", NEW);
+        
+        TaskMergeEngine.Result result = TaskMergeEngine.merge(local, remote, true);
+        
+        assertEquals(NEW, result.getMerged().getFieldVersion("title"));
+        assertTrue(result.getLocalWins().isEmpty());
+        assertTrue(result.getRemoteWins().isEmpty());
+    }
+    
+    @Test
+    public void merge_leavesInputsUnchanged() {
+        Task local = task();
+        local.setFieldVersion("title", OLD);
+        Task remote = new Task(local);
+        remote.setTitle("Remote");
+        remote.setFieldVersion("title", NEW);
+        
+        TaskMergeEngine.merge(local, remote, false);
+        
+        assertEquals("Title", local.getTitle());
+        assertEquals(OLD, local.getFieldVersion("title"));
+    }
+    
+    private static Task task() {
+        Task task = new Task("Title", "Description", new Date(0), "09:00 AM", "10:00 AM", "");
+        TaskMergeEngine.stampAll(task, OLD);
+        return task;
+    }
+}
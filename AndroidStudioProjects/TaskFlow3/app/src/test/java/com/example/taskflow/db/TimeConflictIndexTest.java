@@ -0,0 +1,133 @@
+package com.example.taskflow.db;
+
+import com.example.taskflow.model.Task;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+
+import static org.junit.Assert.*;
+
+/**
+ * Overlap checks against an index built from fixed tasks instead of Room.
+ * The index is loaded up front, so every check answers on the calling thread.
+ */
+public class TimeConflictIndexTest {
+    private TimeConflictIndex index;
+    private Task morning;
+    
+    @Before
+    public void setUp() {
+        morning = task(day(1), "09:00 AM", "10:00 AM");
+        index = new TimeConflictIndex(null, "user@example.com");
+        index.index(Arrays.asList(
+                morning,
+                task(day(1), "01:00 PM", "05:00 PM"),
+                task(day(1), "11:00 PM", "02:00 AM")));
+    }
+    
+    @Test
+    public void adjacentIntervals_doNotConflict() {
+        assertFalse(hasConflict(task(day(1), "08:00 AM", "09:00 AM")));
+        assertFalse(hasConflict(task(day(1), "10:00 AM", "01:00 PM")));
+    }
+    
+    @Test
+    public void overlappingIntervals_conflict() {
+        assertTrue(hasConflict(task(day(1), "09:30 AM", "11:00 AM")));
+        assertTrue(hasConflict(task(day(1), "08:00 AM", "09:01 AM")));
+    }
+    
+    @Test
+    public void containedInterval_conflicts() {
+        assertTrue(hasConflict(task(day(1), "02:00 PM", "03:00 PM")));
+    }
+    
+    @Test
+    public void containingInterval_conflicts() {
+        assertTrue(hasConflict(task(day(1), "12:00 PM", "06:00 PM")));
+    }
+    
+    @Test
+    public void otherDay_doesNotConflict() {
+        assertFalse(hasConflict(task(day(3), "09:00 AM", "10:00 AM")));
+    }
+    
+    @Test
+    public void editedTask_doesNotConflictWithItsOldSlot() {
+        Task moved = new Task(morning);
+        moved.setStartTime("09:30 AM");
+        moved.setEndTime("10:30 AM");
+        assertFalse(hasConflict(moved));
+        
+        // Still conflicts with the other tasks
+        moved.setEndTime("01:30 PM");
+        assertTrue(hasConflict(moved));
+    }
+    
+    @Test
+    public void overnightTask_blocksTheNextMorning() {
+        assertTrue(hasConflict(task(day(2), "01:00 AM", "03:00 AM")));
+        assertFalse(hasConflict(task(day(2), "02:00 AM", "03:00 AM")));
+    }
+    
+    @Test
+    public void overnightTask_blocksTheRestOfItsDay() {
+        assertTrue(hasConflict(task(day(1), "11:30 PM", "11:45 PM")));
+        assertFalse(hasConflict(task(day(1), "10:00 PM", "11:00 PM")));
+    }
+    
+    @Test
+    public void overnightQuery_checksBothDays() {
+        Task lateNight = task(day(0), "10:00 PM", "01:00 AM");
+        assertFalse(hasConflict(lateNight));
+        
+        index.put(task(day(1), "12:30 AM", "01:30 AM"));
+        assertTrue(hasConflict(lateNight));
+    }
+    
+    @Test
+    public void overnightTask_isRemovedFromBothDays() {
+        Task overnight = task(day(4), "11:00 PM", "02:00 AM");
+        index.put(overnight);
+        assertEquals(1, index.getIntervals(TimeConflictIndex.epochDay(day(5).getTime())).size());
+        
+        index.remove(overnight.getId());
+        assertTrue(index.getIntervals(TimeConflictIndex.epochDay(day(4).getTime())).isEmpty());
+        assertTrue(index.getIntervals(TimeConflictIndex.epochDay(day(5).getTime())).isEmpty());
+    }
+    
+    @Test
+    public void taskWithoutTimeRange_neverConflicts() {
+        assertFalse(hasConflict(task(day(1), "09:30 AM", "09:30 AM")));
+        assertFalse(hasConflict(task(day(1), "", "10:00 AM")));
+    }
+    
+    private boolean hasConflict(Task task) {
+        boolean[] result = new boolean[1];
+        boolean[] answered = new boolean[1];
+        index.check(task, hasConflict -> {
+            result[0] = hasConflict;
+            answered[0] = true;
+        });
+        assertTrue("A loaded index should answer on the calling thread", answered[0]);
+        return result[0];
+    }
+    
+    private static Task task(Date date, String startTime, String endTime) {
+        return new Task("Task", "", date, startTime, endTime, "");
+    }
+    
+    /**
+     * Noon on a fixed date plus the given number of days, in the default time zone
+     */
+    private static Date day(int offset) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.clear();
+        calendar.set(2024, Calendar.MARCH, 4 + offset, 12, 0);
+        return calendar.getTime();
+    }
+}
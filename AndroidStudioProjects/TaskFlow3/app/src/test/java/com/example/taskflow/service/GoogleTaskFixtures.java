@@ -0,0 +1,161 @@
+package com.example.taskflow.service;
+
+import com.example.taskflow.model.Task;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Google tasks for the parser test and benchmark, and the conversion TaskService did
+ * inline before GoogleTaskParser, as the reference both compare against
+ */
+final class GoogleTaskFixtures {
+    private GoogleTaskFixtures() {
+    }
+    
+    /**
+     * A mix of the shapes seen in real accounts: decorated titles, notes with time
+     * information, plain tasks, tasks without a due date and completed tasks.
+     */
+    static List<com.google.api.services.tasks.model.Task> sampleTasks(int count) {
+        List<com.google.api.services.tasks.model.Task> tasks = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            com.google.api.services.tasks.model.Task task = new com.google.api.services.tasks.model.Task();
+            task.setId("task" + i);
+            int hour = 1 + i % 12;
+            String time = hour + ":" + (i % 2 == 0 ? "00" : "30") + (i % 3 == 0 ? " AM" : " PM");
+            switch (i % 5) {
+                case 0:
+                    task.setTitle("Meeting " + i + " (" + time + " - " + time + ")");
+                    task.setNotes("Start Time: " + time + "\nEnd Time: " + time + "\n\nAgenda " + i);
+                    break;
+                case 1:
+                    task.setTitle("Call " + i + " (" + time + ")");
+                    task.setNotes("Start Time: " + time + "\n\nNumber " + i);
+                    break;
+                case 2:
+                    task.setTitle("Groceries " + i);
+                    task.setNotes("Milk, eggs");
+                    break;
+                case 3:
+                    task.setTitle("Read chapter " + i);
+                    break;
+                default:
+                    task.setTitle("Gym (legs) " + i);
+                    task.setNotes("Start Time: " + time + "\n\nWarm up first");
+                    break;
+            }
+            if (i % 7 != 3) {
+                task.setDue(String.format(Locale.US, "2024-%02d-%02dT%02d:%02d:00.000Z",
+                        1 + i % 12, 1 + i % 28, i % 24, (i * 7) % 60));
+            }
+            if (i % 4 == 0) {
+                task.setCompleted("2024-01-01T00:00:00.000Z");
+            }
+            tasks.add(task);
+        }
+        return tasks;
+    }
+    
+    /**
+     * The conversion TaskService.convertFromGoogleTask performed before GoogleTaskParser,
+     * without logging
+     */
+    static Task legacyParse(com.google.api.services.tasks.model.Task googleTask) {
+        Task localTask = new Task();
+        localTask.setGoogleTaskId(googleTask.getId());
+        
+        String title = googleTask.getTitle() != null ? googleTask.getTitle() : "";
+        String notes = googleTask.getNotes();
+        String extractedTitle = title;
+        String startTime = "";
+        String endTime = "";
+        
+        Pattern fullTimePattern = Pattern.compile("(.*) \\((\\d{1,2}:\\d{2} [AP]M) - (\\d{1,2}:\\d{2} [AP]M)\\)");
+        Matcher fullTimeMatcher = fullTimePattern.matcher(title);
+        Pattern singleTimePattern = Pattern.compile("(.*) \\((\\d{1,2}:\\d{2} [AP]M)\\)");
+        Matcher singleTimeMatcher = singleTimePattern.matcher(title);
+        if (fullTimeMatcher.find()) {
+            extractedTitle = fullTimeMatcher.group(1);
+            startTime = fullTimeMatcher.group(2);
+            endTime = fullTimeMatcher.group(3);
+        } else if (singleTimeMatcher.find()) {
+            extractedTitle = singleTimeMatcher.group(1);
+            startTime = singleTimeMatcher.group(2);
+        }
+        localTask.setTitle(extractedTitle);
+        localTask.setStartTime(startTime);
+        localTask.setEndTime(endTime);
+        
+        if (notes != null) {
+            Pattern startTimePattern = Pattern.compile("Start Time: (\\d{1,2}:\\d{2} [AP]M)");
+            Pattern endTimePattern = Pattern.compile("End Time: (\\d{1,2}:\\d{2} [AP]M)");
+            Matcher startTimeMatcher = startTimePattern.matcher(notes);
+            if (startTimeMatcher.find() && startTime.isEmpty()) {
+                startTime = startTimeMatcher.group(1);
+                localTask.setStartTime(startTime);
+            }
+            Matcher endTimeMatcher = endTimePattern.matcher(notes);
+            if (endTimeMatcher.find() && endTime.isEmpty()) {
+                endTime = endTimeMatcher.group(1);
+                localTask.setEndTime(endTime);
+            }
+            int descriptionStart = notes.indexOf("\n\n");
+            if (descriptionStart != -1 && descriptionStart + 2 < notes.length()) {
+                localTask.setDescription(notes.substring(descriptionStart + 2));
+            } else {
+                localTask.setDescription(notes);
+            }
+        } else {
+            localTask.setDescription("");
+        }
+        
+        if (googleTask.getDue() != null) {
+            Date dueDate = null;
+            try {
+                SimpleDateFormat rfc3339FormatWithMS = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", Locale.US);
+                rfc3339FormatWithMS.setTimeZone(TimeZone.getTimeZone("UTC"));
+                dueDate = rfc3339FormatWithMS.parse(googleTask.getDue());
+            } catch (ParseException e1) {
+                try {
+                    SimpleDateFormat rfc3339FormatNoMS = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'", Locale.US);
+                    rfc3339FormatNoMS.setTimeZone(TimeZone.getTimeZone("UTC"));
+                    dueDate = rfc3339FormatNoMS.parse(googleTask.getDue());
+                } catch (ParseException e2) {
+                    // Left without a date, as before
+                }
+            }
+            if (dueDate != null) {
+                localTask.setDate(dueDate);
+                SimpleDateFormat timeFormat = new SimpleDateFormat("hh:mm a", Locale.US);
+                if (startTime.isEmpty() && endTime.isEmpty()) {
+                    startTime = timeFormat.format(dueDate);
+                    localTask.setStartTime(startTime);
+                }
+                if (!startTime.isEmpty() && endTime.isEmpty()) {
+                    try {
+                        Calendar cal = Calendar.getInstance();
+                        cal.setTime(timeFormat.parse(startTime));
+                        cal.add(Calendar.HOUR, 1);
+                        localTask.setEndTime(timeFormat.format(cal.getTime()));
+                    } catch (ParseException e) {
+                        // Keep the empty end time
+                    }
+                }
+            }
+        } else {
+            localTask.setDate(new Date());
+        }
+        
+        localTask.setStatus(googleTask.getCompleted() != null ? "COMPLETED" : "PENDING");
+        return localTask;
+    }
+}
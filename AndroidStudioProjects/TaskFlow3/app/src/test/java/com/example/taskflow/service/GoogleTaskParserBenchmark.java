@@ -0,0 +1,59 @@
+package com.example.taskflow.service;
+
+import java.util.List;
+import java.util.Locale;
+
+import static com.example.taskflow.service.GoogleTaskFixtures.legacyParse;
+import static com.example.taskflow.service.GoogleTaskFixtures.sampleTasks;
+
+/**
+ * Compares GoogleTaskParser with the conversion TaskService used to do inline, on a
+ * sync-sized batch of tasks. Run main() from the IDE; it only reports timings and is not
+ * part of the unit test run, since timings depend on the machine and its load.
+ */
+public final class GoogleTaskParserBenchmark {
+    private static final int TASK_COUNT = 2000;
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int ROUNDS = 20;
+    
+    private GoogleTaskParserBenchmark() {
+    }
+    
+    public static void main(String[] args) {
+        List<com.google.api.services.tasks.model.Task> tasks = sampleTasks(TASK_COUNT);
+        GoogleTaskParser parser = GoogleTaskParser.getInstance();
+        
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            runLegacy(tasks);
+            runParser(parser, tasks);
+        }
+        
+        long legacyNanos = Long.MAX_VALUE;
+        long parserNanos = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            runLegacy(tasks);
+            legacyNanos = Math.min(legacyNanos, System.nanoTime() - start);
+            
+            start = System.nanoTime();
+            runParser(parser, tasks);
+            parserNanos = Math.min(parserNanos, System.nanoTime() - start);
+        }
+        
+        System.out.println(String.format(Locale.US,
+                "Converted %d tasks, best of %d rounds: legacy %.2f ms, GoogleTaskParser %.2f ms (%.1fx)",
+                TASK_COUNT, ROUNDS, legacyNanos / 1e6, parserNanos / 1e6, (double) legacyNanos / parserNanos));
+    }
+    
+    private static void runLegacy(List<com.google.api.services.tasks.model.Task> tasks) {
+        for (com.google.api.services.tasks.model.Task googleTask : tasks) {
+            legacyParse(googleTask);
+        }
+    }
+    
+    private static void runParser(GoogleTaskParser parser, List<com.google.api.services.tasks.model.Task> tasks) {
+        for (com.google.api.services.tasks.model.Task googleTask : tasks) {
+            parser.parse(googleTask);
+        }
+    }
+}
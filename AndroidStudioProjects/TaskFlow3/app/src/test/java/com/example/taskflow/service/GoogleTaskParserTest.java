@@ -0,0 +1,63 @@
+package com.example.taskflow.service;
+
+import com.example.taskflow.model.Task;
+
+import org.junit.Test;
+
+import java.time.ZoneId;
+import java.util.TimeZone;
+
+import static com.example.taskflow.service.GoogleTaskFixtures.legacyParse;
+import static com.example.taskflow.service.GoogleTaskFixtures.sampleTasks;
+import static org.junit.Assert.*;
+
+/**
+ * Checks that GoogleTaskParser matches the conversion TaskService used to do inline,
+ * over a sync-sized batch of tasks in every shape the legacy code handled.
+ * Its speed is measured by {@link GoogleTaskParserBenchmark}.
+ */
+public class GoogleTaskParserTest {
+    private static final int TASK_COUNT = 2000;
+    
+    @Test
+    public void parse_matchesLegacyConversion() {
+        GoogleTaskParser parser = GoogleTaskParser.getInstance();
+        for (com.google.api.services.tasks.model.Task googleTask : sampleTasks(TASK_COUNT)) {
+            assertSameTask(googleTask, legacyParse(googleTask), parser.parse(googleTask));
+        }
+    }
+    
+    @Test
+    public void parse_readsDueTimesInTheGivenZone() {
+        // Far from any likely system zone, so due times land on different hours
+        ZoneId zone = ZoneId.of(ZoneId.systemDefault().getId().equals("Pacific/Kiritimati")
+                ? "Pacific/Pago_Pago" : "Pacific/Kiritimati");
+        GoogleTaskParser parser = GoogleTaskParser.getInstance();
+        
+        // The legacy conversion always used the default zone
+        TimeZone systemZone = TimeZone.getDefault();
+        TimeZone.setDefault(TimeZone.getTimeZone(zone));
+        try {
+            for (com.google.api.services.tasks.model.Task googleTask : sampleTasks(TASK_COUNT)) {
+                assertSameTask(googleTask, legacyParse(googleTask), parser.parse(googleTask, zone));
+            }
+        } finally {
+            TimeZone.setDefault(systemZone);
+        }
+    }
+    
+    private static void assertSameTask(com.google.api.services.tasks.model.Task googleTask,
+                                       Task expected, Task actual) {
+        String id = googleTask.getId();
+        assertEquals(id, expected.getGoogleTaskId(), actual.getGoogleTaskId());
+        assertEquals(id, expected.getTitle(), actual.getTitle());
+        assertEquals(id, expected.getDescription(), actual.getDescription());
+        assertEquals(id, expected.getStartTime(), actual.getStartTime());
+        assertEquals(id, expected.getEndTime(), actual.getEndTime());
+        assertEquals(id, expected.getStatus(), actual.getStatus());
+        if (googleTask.getDue() != null) {
+            // Both fall back to the current time without a due date
+            assertEquals(id, expected.getDate(), actual.getDate());
+        }
+    }
+}